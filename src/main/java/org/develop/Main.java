@@ -1,7 +1,5 @@
 package org.develop;
 
-import org.develop.model.Funko;
-import org.develop.model.Modelo;
 import org.develop.model.MyIDGenerator;
 import org.develop.repositories.funkos.FunkoRepositoryImpl;
 import org.develop.services.database.DatabaseManager;
@@ -9,12 +7,8 @@ import org.develop.services.files.BackupManagerImpl;
 import org.develop.services.funkos.FunkoNotification;
 import org.develop.services.funkos.FunkoNotificationImpl;
 import org.develop.services.funkos.FunkoServiceImpl;
-import reactor.core.publisher.Flux;
 
-import java.util.Comparator;
-import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 
 public class Main {
     public static void main(String[] args) {
@@ -39,14 +33,12 @@ public class Main {
                 () -> System.out.println("Completado")
         );
 
-        //Importando Funkos
-        var impFunkos = funkoService.imported("funkos.csv");
+        //Esperando a que la cache termine de precargarse desde la ultima instantanea
+        System.out.println("Funkos precargados en la cache: " + funkoService.ready().block());
 
-        //Guardando Funkos en la BD (Solo 20)
-        impFunkos
-                .subscribe( fk -> funkoService.save(fk).subscribe(
-                fkIn -> System.out.println("Funko Insertado")
-        ));
+        //Importando Funkos y guardandolos en la BD en lotes
+        var summary = funkoService.importFile("funkos.csv", 500, 4).block();
+        System.out.println("Importacion completada: " + summary);
 
 //        //Obteniendo Funko con id: 6
 //        var funkID = funkoService.findById(6);
@@ -82,44 +74,29 @@ public class Main {
 
         //Consultas de Funkos Reactivas
         //Funko mas caro
-          funkoService.findAll()
-                .collectList()
-                .map(funkos -> funkos.stream()
-                    .max(Comparator.comparingDouble(Funko::getPrecio))
-                    .orElse(Funko.builder().build())
-                )
+        funkoService.findMostExpensive()
                 .subscribe(mostExpensive -> {
                     System.out.println("Funko mas Caro");
                     System.out.println(mostExpensive);
                 });
 
         //Media de precios de Funkos
-        funkoService.findAll()
-                .map(Funko::getPrecio)
-                .collect(Collectors.averagingDouble(precio->precio))
+        funkoService.findAveragePrecio()
                 .subscribe(avg -> System.out.println("La media de precios es: " +avg));
 
         //Funkos agrupados por Modelo
-        funkoService.findAll()
-            .collectMultimap(Funko::getModelo)
-            .flatMapMany(map -> Flux.fromIterable(map.entrySet()))
-            .subscribe(entry -> {
-                Modelo modelo = entry.getKey();
-                List<Funko> funkos = (List<Funko>) entry.getValue();
-                System.out.println("Modelo: " + modelo);
-                System.out.println("Funkos: " + funkos);
-            });
+        funkoService.findStatsByModelo()
+                .concatMap(stats -> funkoService.findByModelo(stats.getModelo())
+                        .collectList()
+                        .doOnNext(funkos -> {
+                            System.out.println("Modelo: " + stats.getModelo());
+                            System.out.println("Funkos: " + funkos);
+                        }))
+                .subscribe();
+
         //Numero de Funkos por Modelo
-        funkoService.findAll()
-                .map(Funko::getModelo)
-                .collect(Collectors.groupingBy(fk->fk, Collectors.counting()))
-                .flatMapMany(map -> Flux.fromIterable(map.entrySet()))
-                .subscribe(entry ->{
-                    Modelo modelo = entry.getKey();
-                    Long count = entry.getValue();
-                    System.out.println(modelo + ": " + count);
-                        }
-                );
+        funkoService.findStatsByModelo()
+                .subscribe(stats -> System.out.println(stats.getModelo() + ": " + stats.getCount()));
         //Funkos Lanzados en el 2023
         System.out.println("Funkos Lanzados en el 2023");
         funkoService.findAll()
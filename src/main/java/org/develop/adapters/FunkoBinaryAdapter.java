@@ -0,0 +1,152 @@
+package org.develop.adapters;
+
+import org.develop.model.Funko;
+import org.develop.model.Modelo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Codificacion binaria compacta de objetos Funko, usada cuando se guardan Funkos fuera del heap.
+ * Cada Funko ocupa FIXED_SIZE bytes mas los bytes UTF-8 de su nombre:
+ * mascara de nulos (1), id (4), myId (8), UUID como dos long (16), ordinal del modelo (1), precio (8),
+ * fecha de lanzamiento en dias desde 1970 (4), created_at y updated_at en segundos UTC y nanosegundos (12 + 12)
+ * y longitud del nombre (2) seguida del nombre.
+ */
+public final class FunkoBinaryAdapter {
+    /**
+     * Bytes que ocupa un Funko sin contar su nombre.
+     */
+    public static final int FIXED_SIZE = 68;
+    /**
+     * Longitud maxima en bytes UTF-8 del nombre de un Funko codificado.
+     */
+    public static final int MAX_NAME_BYTES = 0xFFFF;
+
+    private static final int NULL_UUID = 1;
+    private static final int NULL_NAME = 1 << 1;
+    private static final int NULL_MODELO = 1 << 2;
+    private static final int NULL_FECHA = 1 << 3;
+    private static final int NULL_CREATED = 1 << 4;
+    private static final int NULL_UPDATED = 1 << 5;
+    private static final Modelo[] MODELOS = Modelo.values();
+
+    private FunkoBinaryAdapter() {
+    }
+
+    /**
+     * Codifica un Funko en un array de bytes.
+     *
+     * @param funko El Funko a codificar.
+     * @return Los bytes del Funko codificado.
+     * @throws IllegalArgumentException Si el nombre supera MAX_NAME_BYTES bytes.
+     */
+    public static byte[] toBytes(Funko funko) {
+        byte[] name = nameBytes(funko);
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + name.length);
+        write(buffer, funko, name);
+        return buffer.array();
+    }
+
+    /**
+     * Escribe un Funko codificado en la posicion actual del buffer y la avanza.
+     *
+     * @param out   El buffer de destino.
+     * @param funko El Funko a codificar.
+     * @return El numero de bytes escritos.
+     * @throws IllegalArgumentException            Si el nombre supera MAX_NAME_BYTES bytes.
+     * @throws java.nio.BufferOverflowException Si el Funko no cabe en el espacio que queda en el buffer.
+     */
+    public static int write(ByteBuffer out, Funko funko) {
+        byte[] name = nameBytes(funko);
+        write(out, funko, name);
+        return FIXED_SIZE + name.length;
+    }
+
+    /**
+     * Lee un Funko codificado desde la posicion actual del buffer y la avanza.
+     *
+     * @param in El buffer de origen.
+     * @return El Funko leido.
+     */
+    public static Funko read(ByteBuffer in) {
+        int nulls = in.get();
+        int id = in.getInt();
+        long myId = in.getLong();
+        long mostSignificant = in.getLong();
+        long leastSignificant = in.getLong();
+        byte modelo = in.get();
+        double precio = in.getDouble();
+        int fecha = in.getInt();
+        LocalDateTime createdAt = readDateTime(in, (nulls & NULL_CREATED) != 0);
+        LocalDateTime updatedAt = readDateTime(in, (nulls & NULL_UPDATED) != 0);
+        int nameLength = Short.toUnsignedInt(in.getShort());
+        String name = null;
+        if ((nulls & NULL_NAME) == 0) {
+            byte[] bytes = new byte[nameLength];
+            in.get(bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return Funko.builder()
+                .id(id)
+                .myId(myId)
+                .uuid((nulls & NULL_UUID) != 0 ? null : new UUID(mostSignificant, leastSignificant))
+                .name(name)
+                .modelo((nulls & NULL_MODELO) != 0 ? null : MODELOS[modelo])
+                .precio(precio)
+                .fecha_lanzamiento((nulls & NULL_FECHA) != 0 ? null : LocalDate.ofEpochDay(fecha))
+                .created_at(createdAt)
+                .updated_at(updatedAt)
+                .build();
+    }
+
+    private static void write(ByteBuffer out, Funko funko, byte[] name) {
+        UUID uuid = funko.getUuid();
+        Modelo modelo = funko.getModelo();
+        LocalDate fecha = funko.getFecha_lanzamiento();
+        int nulls = (uuid == null ? NULL_UUID : 0)
+                | (funko.getName() == null ? NULL_NAME : 0)
+                | (modelo == null ? NULL_MODELO : 0)
+                | (fecha == null ? NULL_FECHA : 0)
+                | (funko.getCreated_at() == null ? NULL_CREATED : 0)
+                | (funko.getUpdated_at() == null ? NULL_UPDATED : 0);
+        out.put((byte) nulls);
+        out.putInt(funko.getId());
+        out.putLong(funko.getMyId());
+        out.putLong(uuid == null ? 0L : uuid.getMostSignificantBits());
+        out.putLong(uuid == null ? 0L : uuid.getLeastSignificantBits());
+        out.put(modelo == null ? 0 : (byte) modelo.ordinal());
+        out.putDouble(funko.getPrecio());
+        out.putInt(fecha == null ? 0 : (int) fecha.toEpochDay());
+        writeDateTime(out, funko.getCreated_at());
+        writeDateTime(out, funko.getUpdated_at());
+        out.putShort((short) name.length);
+        out.put(name);
+    }
+
+    private static byte[] nameBytes(Funko funko) {
+        if (funko.getName() == null) {
+            return new byte[0];
+        }
+        byte[] name = funko.getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Nombre de Funko demasiado largo para codificarlo: " + name.length + " bytes");
+        }
+        return name;
+    }
+
+    private static void writeDateTime(ByteBuffer out, LocalDateTime value) {
+        out.putLong(value == null ? 0L : value.toEpochSecond(ZoneOffset.UTC));
+        out.putInt(value == null ? 0 : value.getNano());
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer in, boolean isNull) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return isNull ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,17 @@
+package org.develop.model;
+
+import lombok.Builder;
+import lombok.Data;
+import reactor.core.publisher.Flux;
+
+/**
+ * Cambios que aplica una copia de seguridad al restaurarla: los Funkos creados o actualizados y los IDs de los
+ * Funkos eliminados, que se aplican despues. Una copia completa solo tiene Funkos.
+ */
+@Data
+@Builder
+public class BackupChanges {
+    private Flux<Funko> changed;
+    @Builder.Default
+    private Flux<Integer> deleted = Flux.empty();
+}
@@ -0,0 +1,21 @@
+package org.develop.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Una copia de seguridad de una cadena de copias: su archivo, si es incremental y el intervalo de updated_at que
+ * cubre. Una copia completa no tiene inicio (since es null) y una incremental contiene los cambios con updated_at
+ * posterior a since y hasta until incluido. El until de cada copia es la marca de agua desde la que empieza la
+ * siguiente.
+ */
+@Data
+@Builder
+public class BackupInfo {
+    private String file;
+    private boolean incremental;
+    private LocalDateTime since;
+    private LocalDateTime until;
+}
@@ -19,6 +19,8 @@ import java.util.UUID;
 @Data
 @Builder
 public class Funko {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
     private long myId;
     private int id;
     private UUID uuid;
@@ -56,13 +58,12 @@ public class Funko {
      * @return El objeto Funko con los atributos establecidos.
      */
     public Funko setFunko(String line){
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         String[] lineas = line.split(",");
         setUuid(UUID.fromString(lineas[0].length()>36?lineas[0].substring(0,35):lineas[0]));
         setName(lineas[1]);
         setModelo(Modelo.valueOf(lineas[2]));
         setPrecio(Double.parseDouble(lineas[3]));
-        setFecha_lanzamiento(LocalDate.parse(lineas[4],formatter));
+        setFecha_lanzamiento(LocalDate.parse(lineas[4],FORMATTER));
 
         return this;
     }
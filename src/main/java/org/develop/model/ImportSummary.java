@@ -0,0 +1,43 @@
+package org.develop.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Resumen del resultado de una importacion de Funkos: filas insertadas, filas que no se pudieron guardar
+ * y tiempo empleado.
+ */
+@Data
+@Builder
+public class ImportSummary {
+    private long inserted;
+    private long failed;
+    private Duration elapsed;
+
+    /**
+     * Calcula el rendimiento de la importacion.
+     *
+     * @return El numero de filas insertadas por segundo.
+     */
+    public double getRowsPerSecond() {
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return seconds == 0 ? 0 : inserted / seconds;
+    }
+
+    /**
+     * Convierte el resumen en una representacion de cadena.
+     *
+     * @return Una cadena que representa el resumen.
+     */
+    @Override
+    public String toString() {
+        return "ImportSummary{" +
+                "inserted=" + inserted +
+                ", failed=" + failed +
+                ", elapsed=" + elapsed.toMillis() + "ms" +
+                ", rowsPerSecond=" + String.format("%.1f", getRowsPerSecond()) +
+                '}';
+    }
+}
@@ -0,0 +1,18 @@
+package org.develop.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Estadisticas de los Funkos de un mismo modelo: cuantos hay y sus precios medio, minimo y maximo.
+ * Se calculan en la base de datos con una unica consulta agregada.
+ */
+@Data
+@Builder
+public class ModeloStats {
+    private Modelo modelo;
+    private long count;
+    private double precioMedio;
+    private double precioMinimo;
+    private double precioMaximo;
+}
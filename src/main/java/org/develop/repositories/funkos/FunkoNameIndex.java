@@ -0,0 +1,233 @@
+package org.develop.repositories.funkos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indice en memoria de n-gramas (de 1 a 3 caracteres) sobre los nombres de los Funkos, usado para resolver
+ * busquedas por subcadena sin recorrer la tabla completa.
+ * Para cada n-grama se guarda el conjunto de IDs cuyos nombres lo contienen. Una busqueda toma el conjunto
+ * mas pequeno de entre los n-gramas de la consulta y solo comprueba esos candidatos, por lo que su coste depende
+ * del numero de coincidencias y no del tamano del catalogo.
+ * Las lecturas no bloquean; las escrituras se serializan para que un cambio de nombre se aplique entero.
+ * Las busquedas distinguen mayusculas y minusculas, igual que LIKE en H2.
+ * Mientras se carga desde la base de datos se anotan los IDs que las escrituras indexan o eliminan, y la carga
+ * los salta: lo que lee la consulta de carga puede ser anterior a esas escrituras.
+ */
+public class FunkoNameIndex {
+    private static final int GRAM_SIZE = 3;
+
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> postings = new ConcurrentHashMap<>();
+    private final Set<Integer> touched = new HashSet<>();
+    private boolean loading = false;
+
+    /**
+     * Indexa el nombre de un Funko, sustituyendo el nombre anterior si ya estaba indexado.
+     *
+     * @param id   El ID del Funko.
+     * @param name El nombre del Funko.
+     */
+    public synchronized void put(int id, String name) {
+        if (loading) {
+            touched.add(id);
+        }
+        index(id, name);
+    }
+
+    private void index(int id, String name) {
+        String previous = names.put(id, name);
+        if (name.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            unlink(id, previous);
+        }
+        for (String gram : grams(name)) {
+            postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    /**
+     * Elimina un Funko del indice.
+     *
+     * @param id El ID del Funko.
+     */
+    public synchronized void remove(int id) {
+        if (loading) {
+            touched.add(id);
+        }
+        String previous = names.remove(id);
+        if (previous != null) {
+            unlink(id, previous);
+        }
+    }
+
+    /**
+     * Vacia el indice.
+     */
+    public synchronized void clear() {
+        names.clear();
+        postings.clear();
+        // Las filas que queden por cargar se leyeron antes de vaciar la tabla
+        endLoad();
+    }
+
+    /**
+     * Empieza una carga desde la base de datos. Hasta llamar a endLoad se anotan los IDs que se indexan
+     * o eliminan, para que load no los sobrescriba con lo leido.
+     */
+    public synchronized void beginLoad() {
+        loading = true;
+        touched.clear();
+    }
+
+    /**
+     * Indexa el nombre de un Funko leido durante la carga, salvo que una escritura lo haya indexado o eliminado
+     * despues de empezar la carga, o que el indice se haya vaciado.
+     *
+     * @param id   El ID del Funko.
+     * @param name El nombre del Funko.
+     */
+    public synchronized void load(int id, String name) {
+        if (loading && !touched.contains(id)) {
+            index(id, name);
+        }
+    }
+
+    /**
+     * Termina la carga desde la base de datos.
+     */
+    public synchronized void endLoad() {
+        loading = false;
+        touched.clear();
+    }
+
+    /**
+     * Obtiene el numero de nombres indexados.
+     *
+     * @return El numero de Funkos en el indice.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Busca los IDs de los Funkos cuyo nombre contiene la cadena indicada, ordenados por relevancia:
+     * primero las coincidencias exactas, despues las que empiezan por la cadena y por ultimo el resto,
+     * y dentro de cada grupo por posicion de la coincidencia, longitud del nombre e ID.
+     *
+     * @param query La cadena a buscar.
+     * @param limit El numero maximo de resultados.
+     * @return Los IDs encontrados, del mas relevante al menos relevante.
+     */
+    public List<Integer> search(String query, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Iterable<Integer> candidates = candidates(query);
+        Comparator<Match> ranking = Comparator.comparingInt((Match m) -> m.group)
+                .thenComparingInt(m -> m.position)
+                .thenComparingInt(m -> m.length)
+                .thenComparingInt(m -> m.id);
+        PriorityQueue<Match> best = new PriorityQueue<>(ranking.reversed());
+        for (Integer id : candidates) {
+            String name = names.get(id);
+            int position = name == null ? -1 : name.indexOf(query);
+            if (position < 0) {
+                continue;
+            }
+            int group = name.length() == query.length() ? 0 : position == 0 ? 1 : 2;
+            best.offer(new Match(id, group, position, name.length()));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Match> ordered = new ArrayList<>(best);
+        ordered.sort(ranking);
+        List<Integer> ids = new ArrayList<>(ordered.size());
+        for (Match match : ordered) {
+            ids.add(match.id);
+        }
+        return ids;
+    }
+
+    private Iterable<Integer> candidates(String query) {
+        if (query.isEmpty()) {
+            return names.keySet();
+        }
+        Set<Integer> smallest = null;
+        for (String gram : queryGrams(query)) {
+            Set<Integer> ids = postings.get(gram);
+            if (ids == null) {
+                return Collections.emptyList();
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        return smallest;
+    }
+
+    private void unlink(int id, String name) {
+        for (String gram : grams(name)) {
+            Set<Integer> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Todos los n-gramas de 1 a GRAM_SIZE caracteres de un nombre, de forma que cualquier consulta,
+     * incluso de uno o dos caracteres, tenga su propia lista de candidatos.
+     */
+    private static Set<String> grams(String name) {
+        Set<String> grams = new HashSet<>();
+        for (int n = 1; n <= GRAM_SIZE; n++) {
+            for (int i = 0; i + n <= name.length(); i++) {
+                grams.add(name.substring(i, i + n));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * Los n-gramas de la consulta que se usan para acotar candidatos: los de GRAM_SIZE caracteres o,
+     * si la consulta es mas corta, la propia consulta.
+     */
+    private static List<String> queryGrams(String query) {
+        if (query.length() <= GRAM_SIZE) {
+            return List.of(query);
+        }
+        List<String> grams = new ArrayList<>(query.length() - GRAM_SIZE + 1);
+        for (int i = 0; i + GRAM_SIZE <= query.length(); i++) {
+            grams.add(query.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    private static final class Match {
+        private final int id;
+        private final int group;
+        private final int position;
+        private final int length;
+
+        private Match(int id, int group, int position, int length) {
+            this.id = id;
+            this.group = group;
+            this.position = position;
+            this.length = length;
+        }
+    }
+}
@@ -1,17 +1,22 @@
 package org.develop.repositories.funkos;
 
+import org.develop.model.BackupChanges;
 import org.develop.model.Funko;
 import org.develop.repositories.crud.CRUDRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * Interfaz que extiende la interfaz CRUDRepository y proporciona operaciones especificas para
- * trabajar con entidades Funko. Esta interfaz define metodos adicionales para buscar Funkos por nombre y UUID.
+ * trabajar con entidades Funko. Esta interfaz define metodos adicionales para buscar Funkos por nombre y UUID,
+ * y las consultas agregadas de FunkoStatsRepository.
  */
-public interface FunkoRepository extends CRUDRepository<Funko, Integer> {
+public interface FunkoRepository extends CRUDRepository<Funko, Integer>, FunkoStatsRepository {
 
 
     /**
@@ -22,6 +27,25 @@ public interface FunkoRepository extends CRUDRepository<Funko, Integer> {
      */
     Flux<Funko> findByName(String name);
 
+    /**
+     * Busca Funkos cuyo nombre contiene la cadena especificada, ordenados por relevancia: primero las
+     * coincidencias exactas, despues los nombres que empiezan por la cadena y por ultimo el resto.
+     *
+     * @param name  El nombre o parte del nombre de los Funkos a buscar.
+     * @param limit El numero maximo de Funkos a devolver.
+     * @return Un flujo (Flux) con los Funkos encontrados, del mas relevante al menos relevante.
+     */
+    Flux<Funko> findByName(String name, int limit);
+
+    /**
+     * Busca varios Funkos por sus IDs agrupando los IDs en consultas IN, de forma que resolver muchos IDs
+     * cuesta una consulta por lote y no una por ID.
+     *
+     * @param ids Los IDs de los Funkos a buscar.
+     * @return Un flujo (Flux) con los Funkos encontrados, en el orden de los IDs y sin repetidos. Los IDs que no existen se omiten.
+     */
+    Flux<Funko> findByIds(Collection<Integer> ids);
+
     /**
      * Busca un Funko por su UUID.
      *
@@ -29,4 +53,123 @@ public interface FunkoRepository extends CRUDRepository<Funko, Integer> {
      * @return Un mono (Mono) que representa el Funko encontrado por UUID.
      */
     Mono<Funko> findByUuid(UUID uuid);
+
+    /**
+     * Busca una pagina de Funkos ordenados por ID cuyo ID es mayor que el indicado (paginacion por clave).
+     *
+     * @param afterId  El ID del ultimo Funko de la pagina anterior, o 0 para empezar desde el principio.
+     * @param pageSize El numero maximo de Funkos de la pagina.
+     * @return Un flujo (Flux) con los Funkos de la pagina, ordenados por ID.
+     */
+    Flux<Funko> findAll(int afterId, int pageSize);
+
+    /**
+     * Recorre todos los Funkos cuyo ID es mayor que el indicado pagina a pagina. Cada pagina se consulta con
+     * su propia conexion, que se libera antes de pedir la siguiente, y solo se pide una nueva pagina cuando
+     * el suscriptor ha consumido la anterior.
+     *
+     * @param afterId  El ID a partir del cual se reanuda el recorrido, o 0 para empezar desde el principio.
+     * @param pageSize El numero de Funkos que se leen en cada consulta.
+     * @return Un flujo (Flux) con todos los Funkos, ordenados por ID.
+     */
+    Flux<Funko> streamAll(int afterId, int pageSize);
+
+    /**
+     * Guarda un flujo de Funkos en la base de datos agrupandolos en lotes del tamano configurado por defecto.
+     *
+     * @param funkos El flujo de Funkos a guardar.
+     * @return Un flujo (Flux) con los Funkos guardados, emitidos lote a lote una vez confirmado cada lote.
+     */
+    Flux<Funko> saveAll(Flux<Funko> funkos);
+
+    /**
+     * Guarda un flujo de Funkos en la base de datos agrupandolos en lotes. Cada lote se inserta
+     * con una unica sentencia por lotes, una sola conexion y una sola transaccion.
+     *
+     * @param funkos    El flujo de Funkos a guardar.
+     * @param chunkSize El numero maximo de Funkos por lote.
+     * @return Un flujo (Flux) con los Funkos guardados, emitidos lote a lote una vez confirmado cada lote.
+     */
+    Flux<Funko> saveAll(Flux<Funko> funkos, int chunkSize);
+
+    /**
+     * Actualiza varios Funkos en la base de datos en lotes del tamano configurado. Cada lote se actualiza con
+     * una unica sentencia por lotes y una sola transaccion. A diferencia de update, se conserva el updated_at
+     * de cada Funko, que indica cuando se hizo el cambio.
+     *
+     * @param funkos Los Funkos con los valores actualizados.
+     * @return Un flujo (Flux) con los Funkos que existian y se han actualizado.
+     */
+    Flux<Funko> updateAll(List<Funko> funkos);
+
+    /**
+     * Recorre pagina a pagina los Funkos creados o actualizados en un intervalo de updated_at, ordenados por
+     * updated_at e ID, como streamAll.
+     *
+     * @param since    Inicio del intervalo, excluido.
+     * @param until    Fin del intervalo, incluido.
+     * @param pageSize El numero de Funkos que se leen en cada consulta.
+     * @return Un flujo (Flux) con los Funkos modificados en el intervalo.
+     */
+    Flux<Funko> streamChanged(LocalDateTime since, LocalDateTime until, int pageSize);
+
+    /**
+     * Recorre pagina a pagina las marcas de borrado de los Funkos eliminados en un intervalo, ordenadas por fecha
+     * de borrado e ID. Cada marca es un Funko con solo el ID, el UUID y, como updated_at, la fecha de borrado.
+     *
+     * @param since    Inicio del intervalo, excluido.
+     * @param until    Fin del intervalo, incluido.
+     * @param pageSize El numero de marcas que se leen en cada consulta.
+     * @return Un flujo (Flux) con las marcas de borrado del intervalo.
+     */
+    Flux<Funko> streamDeleted(LocalDateTime since, LocalDateTime until, int pageSize);
+
+    /**
+     * Inserta o sustituye Funkos conservando todos sus campos, incluidos el ID y las fechas, en lotes del tamano
+     * configurado, cada uno en una transaccion.
+     *
+     * @param funkos Los Funkos a restaurar.
+     * @return Un mono (Mono) con el numero de Funkos escritos.
+     */
+    Mono<Long> upsertAll(Flux<Funko> funkos);
+
+    /**
+     * Elimina Funkos por ID en lotes sin dejar marcas de borrado.
+     *
+     * @param ids Los IDs de los Funkos a eliminar.
+     * @return Un mono (Mono) con el numero de Funkos eliminados.
+     */
+    Mono<Long> purgeAll(Flux<Integer> ids);
+
+    /**
+     * Elimina todos los Funkos y todas las marcas de borrado, sin dejar marcas nuevas.
+     *
+     * @return Un mono (Mono) que completa cuando se han eliminado.
+     */
+    Mono<Void> purgeAll();
+
+    /**
+     * Sustituye todos los Funkos por los de una cadena de copias de seguridad: elimina todos los Funkos y las marcas
+     * de borrado y aplica en orden los cambios de cada copia, todo en una unica transaccion. Si algo falla se
+     * deshace entero y los Funkos que habia se conservan.
+     *
+     * @param backups Los cambios de cada copia, empezando por la copia completa.
+     * @return Un mono (Mono) con el numero de Funkos escritos o eliminados por las copias.
+     */
+    Mono<Long> restoreAll(Flux<BackupChanges> backups);
+
+    /**
+     * Elimina las marcas de borrado anteriores o iguales a una fecha, una vez que una copia completa las cubre.
+     *
+     * @param until La fecha de borrado maxima de las marcas que se eliminan.
+     * @return Un mono (Mono) con el numero de marcas eliminadas.
+     */
+    Mono<Long> pruneDeleted(LocalDateTime until);
+
+    /**
+     * Hace que el proximo ID generado sea el siguiente al mayor ID guardado, tras insertar Funkos con su ID.
+     *
+     * @return Un mono (Mono) que completa cuando se ha ajustado el generador de IDs.
+     */
+    Mono<Void> resetIdSequence();
 }
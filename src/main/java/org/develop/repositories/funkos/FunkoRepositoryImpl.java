@@ -1,8 +1,9 @@
 package org.develop.repositories.funkos;
 
-import io.r2dbc.pool.ConnectionPool;
+import org.develop.model.BackupChanges;
 import org.develop.model.Funko;
 import org.develop.model.Modelo;
+import org.develop.model.ModeloStats;
 import org.develop.model.MyIDGenerator;
 import org.develop.services.database.DatabaseManager;
 import org.slf4j.Logger;
@@ -10,13 +11,27 @@ import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import io.r2dbc.pool.ConnectionPool;
 import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
 import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Implementacion de la interfaz FunkoRepository que proporciona metodos para interactuar con la base de datos
@@ -27,12 +42,27 @@ public class FunkoRepositoryImpl implements FunkoRepository{
     private static FunkoRepositoryImpl instance;
     private final Logger logger = LoggerFactory.getLogger(FunkoRepositoryImpl.class);
 
-    private final ConnectionPool connectionFactory;
+    private static final String INSERT_SQL = "INSERT INTO FUNKO (myid,uuid,name,modelo,precio,fecha_lanzamiento) VALUES (?,?,?,?,?,?)";
+    private static final String UPDATE_SQL = "UPDATE FUNKO SET name = ? , modelo = ?, precio = ?, updated_at = ? WHERE id = ?";
+    private static final String UPSERT_SQL = "MERGE INTO FUNKO (id,myid,uuid,name,modelo,precio,fecha_lanzamiento,created_at,updated_at) "
+            + "KEY (id) VALUES (?,?,?,?,?,?,?,?,?)";
+    private static final String PURGE_SQL = "DELETE FROM FUNKO WHERE id = ?";
+    private static final String TOMBSTONE_SQL = "MERGE INTO FUNKO_DELETED (id,uuid,deleted_at) KEY (id) SELECT id, uuid, ? FROM FUNKO";
+    private static final int IN_CLAUSE_SIZE = 500;
+    private static final String[] FUNKO_COLUMNS = {
+            "ID", "MYID", "UUID", "NAME", "MODELO", "PRECIO", "FECHA_LANZAMIENTO", "CREATED_AT", "UPDATED_AT"
+    };
+
+    private final ConnectionFactory connectionFactory;
     private final MyIDGenerator idGenerator;
+    private final int batchSize;
+    private final FunkoNameIndex nameIndex = new FunkoNameIndex();
+    private final AtomicReference<Mono<Void>> nameIndexLoad = new AtomicReference<>();
 
     private FunkoRepositoryImpl(DatabaseManager databaseManager,MyIDGenerator idGenerator){
-        this.connectionFactory = databaseManager.getConnectionPool();
+        this.connectionFactory = databaseManager.getConnectionFactory();
         this.idGenerator = idGenerator;
+        this.batchSize = databaseManager.getBatchSize();
     }
 
     /**
@@ -63,23 +93,57 @@ public class FunkoRepositoryImpl implements FunkoRepository{
         return Flux.usingWhen(
                 connectionFactory.create(),
                 connection -> Flux.from(connection.createStatement(sql).execute())
-                        .flatMap(result -> result.map((row, rowMetadata) ->
-                                Funko.builder()
-                                        .id(row.get("id",Integer.class))
-                                        .myId(row.get("myid",Long.class))
-                                        .name(row.get("name",String.class))
-                                        .uuid(row.get("uuid", UUID.class))
-                                        .modelo(Modelo.valueOf(row.get("modelo", Object.class).toString()))
-                                        .precio(row.get("precio", Double.class))
-                                        .fecha_lanzamiento(row.get("fecha_lanzamiento", LocalDate.class))
-                                        .created_at(row.get("created_at", LocalDateTime.class))
-                                        .updated_at(row.get("updated_at", LocalDateTime.class))
-                                        .build()
-                        )),
+                        .flatMap(result -> result.map(FunkoRowMapper.forResult())),
                 Connection::close
         );
     }
 
+    /**
+     * Busca una pagina de Funkos cuyo ID es mayor que afterId, ordenados por ID. La consulta usa el indice
+     * de la clave primaria, por lo que su coste no depende de la posicion de la pagina.
+     *
+     * @param afterId  El ID del ultimo Funko de la pagina anterior, o 0 para la primera pagina.
+     * @param pageSize El numero maximo de Funkos de la pagina.
+     * @return Un flujo (Flux) con los Funkos de la pagina.
+     */
+    @Override
+    public Flux<Funko> findAll(int afterId, int pageSize) {
+        if (pageSize <= 0) {
+            return Flux.error(new IllegalArgumentException("El tamano de pagina debe ser mayor que 0: " + pageSize));
+        }
+        logger.debug("Buscando pagina de Funkos despues del ID " + afterId);
+        String sql = "SELECT * FROM FUNKO WHERE id > ? ORDER BY id LIMIT ?";
+        return Flux.usingWhen(
+                connectionFactory.create(),
+                connection -> Flux.from(connection.createStatement(sql)
+                        .bind(0, afterId)
+                        .bind(1, pageSize)
+                        .fetchSize(pageSize)
+                        .execute()
+                ).flatMap(result -> result.map(FunkoRowMapper.forResult())),
+                Connection::close
+        );
+    }
+
+    /**
+     * Recorre todos los Funkos pagina a pagina. Cada pagina se lee por completo y se libera su conexion
+     * antes de emitirla, y la siguiente pagina solo se consulta cuando el suscriptor ha pedido mas elementos,
+     * de modo que la memoria usada se limita a una pagina y un suscriptor lento no retiene conexiones del pool.
+     *
+     * @param afterId  El ID a partir del cual se reanuda el recorrido, o 0 para empezar desde el principio.
+     * @param pageSize El numero de Funkos que se leen en cada consulta.
+     * @return Un flujo (Flux) con todos los Funkos, ordenados por ID.
+     */
+    @Override
+    public Flux<Funko> streamAll(int afterId, int pageSize) {
+        logger.debug("Recorriendo Funkos en paginas de " + pageSize);
+        return findAll(afterId, pageSize).collectList()
+                .expand(page -> page.size() < pageSize
+                        ? Mono.empty()
+                        : findAll(page.get(page.size() - 1).getId(), pageSize).collectList())
+                .flatMapIterable(page -> page, 1);
+    }
+
     /**
      * Busca un Funko en la base de datos por su ID y devuelve el Funko encontrado, si existe.
      *
@@ -95,25 +159,15 @@ public class FunkoRepositoryImpl implements FunkoRepository{
                 connection -> Mono.from(connection.createStatement(sql)
                         .bind(0, id)
                         .execute()
-                ).flatMap(result -> Mono.from(result.map((row, rowMetadata) ->
-                        Funko.builder()
-                                        .id(row.get("id",Integer.class))
-                                        .myId(row.get("myid",Long.class))
-                                        .name(row.get("name",String.class))
-                                        .uuid(row.get("uuid", UUID.class))
-                                        .modelo(Modelo.valueOf(row.get("modelo", Object.class).toString()))
-                                        .precio(row.get("precio",Double.class))
-                                        .fecha_lanzamiento(row.get("fecha_lanzamiento", LocalDate.class))
-                                        .created_at(row.get("created_at", LocalDateTime.class))
-                                        .updated_at(row.get("updated_at", LocalDateTime.class))
-                                        .build()
-                ))),
+                ).flatMap(result -> Mono.from(result.map(FunkoRowMapper.forResult()))),
                 Connection::close
         );
     }
 
     /**
-     * Guarda un Funko en la base de datos y devuelve el Funko guardado.
+     * Guarda un Funko en la base de datos y devuelve el Funko tal y como ha quedado persistido, con el ID y las
+     * fechas generadas por la base de datos. La fila insertada se obtiene con la propia sentencia INSERT
+     * (valores generados), sin una segunda consulta.
      *
      * @param funko El Funko que se va a guardar en la base de datos.
      * @return Un mono (Mono) que representa el Funko guardado.
@@ -121,20 +175,89 @@ public class FunkoRepositoryImpl implements FunkoRepository{
     @Override
     public Mono<Funko> save(Funko funko) {
         logger.debug("Saving Funko on DB");
-        String sql = "INSERT INTO FUNKO (myid,uuid,name,modelo,precio,fecha_lanzamiento) VALUES (?,?,?,?,?,?)";
         return Mono.usingWhen(
                 connectionFactory.create(),
-                connection -> Mono.from(connection.createStatement(sql)
-                        .bind(0, idGenerator.getIDandIncrement())
-                        .bind(1, funko.getUuid())
-                        .bind(2, funko.getName())
-                        .bind(3,funko.getModelo().toString())
-                        .bind(4,funko.getPrecio())
-                        .bind(5,funko.getFecha_lanzamiento())
+                connection -> Mono.from(bindInsert(connection.createStatement(INSERT_SQL), funko)
+                        .returnGeneratedValues(FUNKO_COLUMNS)
                         .execute()
-        ).then(Mono.just(funko)),
+        ).flatMap(result -> Mono.from(result.map(FunkoRowMapper.forResult()))),
         Connection::close
-        );
+        ).doOnNext(saved -> nameIndex.put(saved.getId(), saved.getName()));
+    }
+
+    /**
+     * Guarda un flujo de Funkos en la base de datos en lotes del tamano configurado en database.batchSize.
+     *
+     * @param funkos El flujo de Funkos a guardar.
+     * @return Un flujo (Flux) con los Funkos guardados.
+     */
+    @Override
+    public Flux<Funko> saveAll(Flux<Funko> funkos) {
+        return saveAll(funkos, batchSize);
+    }
+
+    /**
+     * Guarda un flujo de Funkos en la base de datos agrupandolos en lotes de como maximo chunkSize elementos.
+     * Los lotes se insertan de uno en uno, cada uno con su propia conexion y transaccion.
+     *
+     * @param funkos    El flujo de Funkos a guardar.
+     * @param chunkSize El numero maximo de Funkos por lote.
+     * @return Un flujo (Flux) con los Funkos guardados.
+     */
+    @Override
+    public Flux<Funko> saveAll(Flux<Funko> funkos, int chunkSize) {
+        if (chunkSize <= 0) {
+            return Flux.error(new IllegalArgumentException("El tamano de lote debe ser mayor que 0: " + chunkSize));
+        }
+        logger.debug("Saving Funkos on DB in chunks of " + chunkSize);
+        return funkos.buffer(chunkSize)
+                .concatMap(this::saveChunk);
+    }
+
+    /**
+     * Inserta un lote de Funkos con una unica sentencia por lotes dentro de una transaccion.
+     * Si falla alguna fila se deshace el lote completo.
+     *
+     * @param chunk El lote de Funkos a insertar.
+     * @return Un flujo (Flux) con los Funkos del lote tal y como han quedado persistidos, emitidos tras confirmar la transaccion.
+     */
+    private Flux<Funko> saveChunk(List<Funko> chunk) {
+        logger.debug("Saving chunk of " + chunk.size() + " Funkos on DB");
+        return Flux.usingWhen(
+                connectionFactory.create(),
+                connection -> Mono.from(connection.beginTransaction())
+                        .thenMany(Flux.defer(() -> {
+                            Statement statement = connection.createStatement(INSERT_SQL);
+                            for (int i = 0; i < chunk.size(); i++) {
+                                if (i > 0) statement.add();
+                                bindInsert(statement, chunk.get(i));
+                            }
+                            return Flux.from(statement.returnGeneratedValues(FUNKO_COLUMNS).execute())
+                                    .concatMap(result -> result.map(FunkoRowMapper.forResult()));
+                        }))
+                        .collectList()
+                        .flatMap(saved -> Mono.from(connection.commitTransaction()).thenReturn(saved))
+                        .onErrorResume(e -> Mono.from(connection.rollbackTransaction()).then(Mono.error(e)))
+                        .flatMapIterable(saved -> saved),
+                Connection::close
+        ).doOnNext(saved -> nameIndex.put(saved.getId(), saved.getName()));
+    }
+
+    /**
+     * Enlaza los valores de un Funko con los parametros de la sentencia de insercion.
+     *
+     * @param statement La sentencia de insercion.
+     * @param funko     El Funko cuyos valores se enlazan.
+     * @return La misma sentencia con los parametros enlazados.
+     */
+    private Statement bindInsert(Statement statement, Funko funko) {
+        return statement
+                .bind(0, idGenerator.getIDandIncrement())
+                .bind(1, funko.getUuid())
+                .bind(2, funko.getName())
+                .bind(3, funko.getModelo().toString())
+                .bind(4, funko.getPrecio())
+                .bind(5, funko.getFecha_lanzamiento());
     }
 
     /**
@@ -146,25 +269,81 @@ public class FunkoRepositoryImpl implements FunkoRepository{
     @Override
     public Mono<Funko> update(Funko funko) {
         logger.debug("Updating Funko on DB");
-        String sql = "UPDATE FUNKO SET name = ? , modelo = ?, precio = ?, updated_at = ? WHERE id = ?";
         funko.setUpdated_at(LocalDateTime.now());
         return Mono.usingWhen(
                 connectionFactory.create(),
-                connection -> Mono.from(connection.createStatement(sql)
-                        .bind(0,funko.getName())
-                        .bind(1,funko.getModelo().toString())
-                        .bind(2,funko.getPrecio())
-                        .bind(3,funko.getUpdated_at())
-                        .bind(4,funko.getId())
+                connection -> Mono.from(bindUpdate(connection.createStatement(UPDATE_SQL), funko)
                         .execute()
 
                 ).then(Mono.just(funko)),
                 Connection::close
-        );
+        ).doOnNext(updated -> nameIndex.put(updated.getId(), updated.getName()));
+    }
+
+    /**
+     * Actualiza varios Funkos en la base de datos en lotes del tamano configurado en database.batchSize,
+     * cada uno en una unica transaccion.
+     *
+     * @param funkos Los Funkos con los valores actualizados.
+     * @return Un flujo (Flux) con los Funkos que existian y se han actualizado.
+     */
+    @Override
+    public Flux<Funko> updateAll(List<Funko> funkos) {
+        return Flux.fromIterable(funkos)
+                .buffer(batchSize)
+                .concatMap(this::updateChunk);
+    }
+
+    private Flux<Funko> updateChunk(List<Funko> chunk) {
+        logger.debug("Updating chunk of " + chunk.size() + " Funkos on DB");
+        return Flux.usingWhen(
+                connectionFactory.create(),
+                connection -> Mono.from(connection.beginTransaction())
+                        .thenMany(Flux.defer(() -> {
+                            Statement statement = connection.createStatement(UPDATE_SQL);
+                            for (int i = 0; i < chunk.size(); i++) {
+                                if (i > 0) statement.add();
+                                bindUpdate(statement, chunk.get(i));
+                            }
+                            return Flux.from(statement.execute())
+                                    .concatMap(Result::getRowsUpdated);
+                        }))
+                        .collectList()
+                        .flatMap(rows -> Mono.from(connection.commitTransaction()).thenReturn(rows))
+                        .onErrorResume(e -> Mono.from(connection.rollbackTransaction()).then(Mono.error(e)))
+                        .flatMapIterable(rows -> {
+                            List<Funko> updated = new ArrayList<>(rows.size());
+                            for (int i = 0; i < rows.size(); i++) {
+                                if (rows.get(i) > 0) {
+                                    updated.add(chunk.get(i));
+                                }
+                            }
+                            return updated;
+                        }),
+                Connection::close
+        ).doOnNext(updated -> nameIndex.put(updated.getId(), updated.getName()));
+    }
+
+    /**
+     * Enlaza los valores de un Funko con los parametros de la sentencia de actualizacion.
+     *
+     * @param statement La sentencia de actualizacion.
+     * @param funko     El Funko cuyos valores se enlazan.
+     * @return La misma sentencia con los parametros enlazados.
+     */
+    private Statement bindUpdate(Statement statement, Funko funko) {
+        return statement
+                .bind(0, funko.getName())
+                .bind(1, funko.getModelo().toString())
+                .bind(2, funko.getPrecio())
+                .bind(3, funko.getUpdated_at())
+                .bind(4, funko.getId());
     }
 
     /**
      * Elimina un Funko de la base de datos por su ID y devuelve un valor booleano que indica si la operacion fue exitosa.
+     * En la misma transaccion se guarda una marca de borrado con su ID y UUID, que las copias de seguridad
+     * incrementales usan para registrar el borrado.
      *
      * @param id El ID del Funko que se va a eliminar de la base de datos.
      * @return Un mono (Mono) que representa `true` si se eliminó con exito, o `false` si no se encontro el Funko.
@@ -175,17 +354,25 @@ public class FunkoRepositoryImpl implements FunkoRepository{
         String sql = "DELETE FROM FUNKO WHERE id = ?";
         return Mono.usingWhen(
                 connectionFactory.create(),
-                connection -> Mono.from(connection.createStatement(sql)
-                        .bind(0,id)
-                        .execute()
-                ).flatMapMany(Result::getRowsUpdated)
-                 .hasElements(),
+                connection -> Mono.from(connection.beginTransaction())
+                        .then(Mono.from(connection.createStatement(TOMBSTONE_SQL + " WHERE id = ?")
+                                .bind(0, LocalDateTime.now())
+                                .bind(1, id)
+                                .execute()).flatMap(result -> Mono.from(result.getRowsUpdated())))
+                        .then(Mono.from(connection.createStatement(sql)
+                                .bind(0,id)
+                                .execute()
+                        ).flatMapMany(Result::getRowsUpdated)
+                         .hasElements())
+                        .flatMap(deleted -> Mono.from(connection.commitTransaction()).thenReturn(deleted))
+                        .onErrorResume(e -> Mono.from(connection.rollbackTransaction()).then(Mono.error(e))),
                 Connection::close
-        );
+        ).doOnSuccess(deleted -> nameIndex.remove(id));
     }
 
     /**
-     * Elimina todos los Funkos de la base de datos y no devuelve ningun valor.
+     * Elimina todos los Funkos de la base de datos y no devuelve ningun valor. En la misma transaccion se guarda
+     * una marca de borrado por cada Funko eliminado.
      *
      * @return Un mono (Mono) que completa la operacion sin devolver un valor.
      */
@@ -195,9 +382,274 @@ public class FunkoRepositoryImpl implements FunkoRepository{
         String sql = "DELETE FROM FUNKO";
         return Mono.usingWhen(
                 connectionFactory.create(),
-                connection -> Mono.from(connection.createStatement(sql)
-                           .execute()
-                        ).then(),
+                connection -> Mono.from(connection.beginTransaction())
+                        .then(Mono.from(connection.createStatement(TOMBSTONE_SQL)
+                                .bind(0, LocalDateTime.now())
+                                .execute()).flatMap(result -> Mono.from(result.getRowsUpdated())))
+                        .then(Mono.from(connection.createStatement(sql)
+                                   .execute()
+                                ).flatMap(result -> Mono.from(result.getRowsUpdated())))
+                        .then(Mono.from(connection.commitTransaction()))
+                        .onErrorResume(e -> Mono.from(connection.rollbackTransaction()).then(Mono.error(e))),
+                Connection::close
+        ).doOnSuccess(v -> nameIndex.clear());
+    }
+
+    /**
+     * Recorre los Funkos modificados en el intervalo pagina a pagina, continuando cada pagina a partir del
+     * updated_at y el ID del ultimo Funko de la anterior, de modo que cada consulta es un recorrido por rango del
+     * indice IDX_FUNKO_UPDATED y el coste depende del numero de Funkos modificados y no del tamano de la tabla.
+     *
+     * @param since    Inicio del intervalo, excluido.
+     * @param until    Fin del intervalo, incluido.
+     * @param pageSize El numero de Funkos que se leen en cada consulta.
+     * @return Un flujo (Flux) con los Funkos modificados en el intervalo, ordenados por updated_at e ID.
+     */
+    @Override
+    public Flux<Funko> streamChanged(LocalDateTime since, LocalDateTime until, int pageSize) {
+        logger.debug("Recorriendo Funkos modificados entre " + since + " y " + until);
+        String sql = "SELECT * FROM FUNKO WHERE updated_at >= ? AND updated_at <= ? AND (updated_at, id) > (?, ?) "
+                + "ORDER BY updated_at, id LIMIT ?";
+        return streamPages(sql, since, until, pageSize, FunkoRowMapper::forResult);
+    }
+
+    /**
+     * Recorre las marcas de borrado del intervalo pagina a pagina, igual que streamChanged, sobre el indice
+     * IDX_FUNKO_DELETED_AT.
+     *
+     * @param since    Inicio del intervalo, excluido.
+     * @param until    Fin del intervalo, incluido.
+     * @param pageSize El numero de marcas que se leen en cada consulta.
+     * @return Un flujo (Flux) con las marcas de borrado del intervalo, ordenadas por fecha de borrado e ID.
+     */
+    @Override
+    public Flux<Funko> streamDeleted(LocalDateTime since, LocalDateTime until, int pageSize) {
+        logger.debug("Recorriendo Funkos eliminados entre " + since + " y " + until);
+        String sql = "SELECT id, uuid, deleted_at FROM FUNKO_DELETED WHERE deleted_at >= ? AND deleted_at <= ? "
+                + "AND (deleted_at, id) > (?, ?) ORDER BY deleted_at, id LIMIT ?";
+        return streamPages(sql, since, until, pageSize, () -> (row, metadata) -> Funko.builder()
+                .id(row.get(0, Integer.class))
+                .uuid(row.get(1, UUID.class))
+                .created_at(null)
+                .updated_at(row.get(2, LocalDateTime.class))
+                .build());
+    }
+
+    private Flux<Funko> streamPages(String sql, LocalDateTime since, LocalDateTime until, int pageSize,
+                                    Supplier<BiFunction<Row, RowMetadata, Funko>> mapper) {
+        if (pageSize <= 0) {
+            return Flux.error(new IllegalArgumentException("El tamano de pagina debe ser mayor que 0: " + pageSize));
+        }
+        // (since, MAX_VALUE) deja fuera todas las filas de since, que es un extremo excluido
+        return findPage(sql, since, until, since, Integer.MAX_VALUE, pageSize, mapper).collectList()
+                .expand(page -> {
+                    if (page.size() < pageSize) {
+                        return Mono.empty();
+                    }
+                    Funko last = page.get(page.size() - 1);
+                    return findPage(sql, since, until, last.getUpdated_at(), last.getId(), pageSize, mapper).collectList();
+                })
+                .flatMapIterable(page -> page, 1);
+    }
+
+    private Flux<Funko> findPage(String sql, LocalDateTime since, LocalDateTime until, LocalDateTime afterTime,
+                                 int afterId, int pageSize, Supplier<BiFunction<Row, RowMetadata, Funko>> mapper) {
+        return Flux.usingWhen(
+                connectionFactory.create(),
+                connection -> Flux.from(connection.createStatement(sql)
+                        .bind(0, since)
+                        .bind(1, until)
+                        .bind(2, afterTime)
+                        .bind(3, afterId)
+                        .bind(4, pageSize)
+                        .fetchSize(pageSize)
+                        .execute()
+                ).flatMap(result -> result.map(mapper.get())),
+                Connection::close
+        );
+    }
+
+    /**
+     * Inserta o sustituye Funkos con una sentencia MERGE por lotes que conserva su ID y sus fechas, en lotes del
+     * tamano configurado en database.batchSize, cada uno en una transaccion.
+     *
+     * @param funkos Los Funkos a restaurar.
+     * @return Un mono (Mono) con el numero de Funkos escritos.
+     */
+    @Override
+    public Mono<Long> upsertAll(Flux<Funko> funkos) {
+        return funkos.buffer(batchSize)
+                .concatMap(chunk -> executeChunk(UPSERT_SQL, chunk, this::bindUpsert)
+                        .doOnSuccess(rows -> chunk.forEach(funko -> nameIndex.put(funko.getId(), funko.getName()))))
+                .reduce(0L, Long::sum);
+    }
+
+    private Statement bindUpsert(Statement statement, Funko funko) {
+        statement
+                .bind(0, funko.getId())
+                .bind(1, funko.getMyId())
+                .bind(3, funko.getName())
+                .bind(4, funko.getModelo().toString())
+                .bind(5, funko.getPrecio())
+                .bind(7, funko.getCreated_at())
+                .bind(8, funko.getUpdated_at());
+        // Las columnas que admiten nulos se restauran tal cual, aunque esten vacias
+        if (funko.getUuid() == null) {
+            statement.bindNull(2, UUID.class);
+        } else {
+            statement.bind(2, funko.getUuid());
+        }
+        if (funko.getFecha_lanzamiento() == null) {
+            statement.bindNull(6, LocalDate.class);
+        } else {
+            statement.bind(6, funko.getFecha_lanzamiento());
+        }
+        return statement;
+    }
+
+    /**
+     * Elimina Funkos por ID con una sentencia DELETE por lotes, sin dejar marcas de borrado.
+     *
+     * @param ids Los IDs de los Funkos a eliminar.
+     * @return Un mono (Mono) con el numero de Funkos eliminados.
+     */
+    @Override
+    public Mono<Long> purgeAll(Flux<Integer> ids) {
+        return ids.buffer(batchSize)
+                .concatMap(chunk -> executeChunk(PURGE_SQL, chunk, (statement, id) -> statement.bind(0, id))
+                        .doOnSuccess(rows -> chunk.forEach(nameIndex::remove)))
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * Ejecuta una sentencia por lotes con un juego de parametros por elemento, en una unica transaccion.
+     *
+     * @return Un mono (Mono) con el numero total de filas afectadas.
+     */
+    private <T> Mono<Long> executeChunk(String sql, List<T> chunk, BiFunction<Statement, T, Statement> binder) {
+        return Mono.usingWhen(
+                connectionFactory.create(),
+                connection -> Mono.from(connection.beginTransaction())
+                        .then(executeBatch(connection, sql, chunk, binder))
+                        .flatMap(rows -> Mono.from(connection.commitTransaction()).thenReturn(rows))
+                        .onErrorResume(e -> Mono.from(connection.rollbackTransaction()).then(Mono.error(e))),
+                Connection::close
+        );
+    }
+
+    /**
+     * Ejecuta una sentencia por lotes con un juego de parametros por elemento en la conexion indicada, dentro de
+     * la transaccion que tenga abierta.
+     *
+     * @return Un mono (Mono) con el numero total de filas afectadas.
+     */
+    private <T> Mono<Long> executeBatch(Connection connection, String sql, List<T> chunk,
+                                        BiFunction<Statement, T, Statement> binder) {
+        return Flux.defer(() -> {
+                    Statement statement = connection.createStatement(sql);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        if (i > 0) statement.add();
+                        binder.apply(statement, chunk.get(i));
+                    }
+                    return Flux.from(statement.execute())
+                            .concatMap(Result::getRowsUpdated);
+                })
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * Sustituye todos los Funkos por los de una cadena de copias de seguridad en una unica transaccion y una unica
+     * conexion: borra los Funkos y las marcas de borrado y, para cada copia en orden, escribe sus Funkos con MERGE y
+     * elimina sus borrados, en lotes del tamano configurado. Mientras dura, las demas escrituras sobre FUNKO esperan
+     * a que termine. Al confirmarla se vacia el indice de nombres, que se vuelve a cargar en la siguiente busqueda.
+     *
+     * @param backups Los cambios de cada copia, empezando por la copia completa.
+     * @return Un mono (Mono) con el numero de Funkos escritos o eliminados por las copias.
+     */
+    @Override
+    public Mono<Long> restoreAll(Flux<BackupChanges> backups) {
+        logger.debug("Restoring all Funkos on DB");
+        return Mono.usingWhen(
+                connectionFactory.create(),
+                connection -> Mono.from(connection.beginTransaction())
+                        .then(Mono.from(connection.createStatement("DELETE FROM FUNKO_DELETED").execute())
+                                .flatMap(result -> Mono.from(result.getRowsUpdated())))
+                        .then(Mono.from(connection.createStatement("DELETE FROM FUNKO").execute())
+                                .flatMap(result -> Mono.from(result.getRowsUpdated())))
+                        .thenMany(backups.concatMap(changes -> changes.getChanged().buffer(batchSize)
+                                .concatMap(chunk -> executeBatch(connection, UPSERT_SQL, chunk, this::bindUpsert))
+                                .concatWith(changes.getDeleted().buffer(batchSize)
+                                        .concatMap(chunk -> executeBatch(connection, PURGE_SQL, chunk,
+                                                (statement, id) -> statement.bind(0, id))))))
+                        .reduce(0L, Long::sum)
+                        .flatMap(rows -> Mono.from(connection.commitTransaction()).thenReturn(rows))
+                        .onErrorResume(e -> Mono.from(connection.rollbackTransaction()).then(Mono.error(e))),
+                Connection::close
+        ).doOnSuccess(rows -> {
+            // Primero se vacia y despues se descarta la carga, para que ninguna carga nueva empiece antes de vaciarlo
+            nameIndex.clear();
+            nameIndexLoad.set(null);
+        });
+    }
+
+    /**
+     * Elimina todos los Funkos y todas las marcas de borrado en una transaccion, sin dejar marcas nuevas.
+     *
+     * @return Un mono (Mono) que completa cuando se han eliminado.
+     */
+    @Override
+    public Mono<Void> purgeAll() {
+        logger.debug("Purging all Funkos and deletion marks on DB");
+        return Mono.usingWhen(
+                connectionFactory.create(),
+                connection -> Mono.from(connection.beginTransaction())
+                        .then(Mono.from(connection.createStatement("DELETE FROM FUNKO_DELETED").execute())
+                                .flatMap(result -> Mono.from(result.getRowsUpdated())))
+                        .then(Mono.from(connection.createStatement("DELETE FROM FUNKO").execute())
+                                .flatMap(result -> Mono.from(result.getRowsUpdated())))
+                        .then(Mono.from(connection.commitTransaction()))
+                        .onErrorResume(e -> Mono.from(connection.rollbackTransaction()).then(Mono.error(e))),
+                Connection::close
+        ).doOnSuccess(v -> nameIndex.clear());
+    }
+
+    /**
+     * Elimina las marcas de borrado con fecha de borrado anterior o igual a la indicada, recorriendo el indice
+     * IDX_FUNKO_DELETED_AT.
+     *
+     * @param until La fecha de borrado maxima de las marcas que se eliminan.
+     * @return Un mono (Mono) con el numero de marcas eliminadas.
+     */
+    @Override
+    public Mono<Long> pruneDeleted(LocalDateTime until) {
+        logger.debug("Pruning deletion marks until " + until + " on DB");
+        return Mono.usingWhen(
+                connectionFactory.create(),
+                connection -> Mono.from(connection.createStatement("DELETE FROM FUNKO_DELETED WHERE deleted_at <= ?")
+                                .bind(0, until)
+                                .execute())
+                        .flatMap(result -> Mono.from(result.getRowsUpdated())),
+                Connection::close
+        );
+    }
+
+    /**
+     * Reinicia la columna identidad de FUNKO en el siguiente al mayor ID guardado. H2 no avanza la identidad
+     * cuando se inserta un ID explicito, asi que sin esto el siguiente save podria repetir un ID restaurado.
+     *
+     * @return Un mono (Mono) que completa cuando se ha ajustado el generador de IDs.
+     */
+    @Override
+    public Mono<Void> resetIdSequence() {
+        return Mono.usingWhen(
+                connectionFactory.create(),
+                connection -> Mono.from(connection.createStatement("SELECT COALESCE(MAX(id), 0) FROM FUNKO").execute())
+                        .flatMap(result -> Mono.from(result.map((row, metadata) -> row.get(0, Integer.class))))
+                        .flatMap(max -> Mono.from(connection
+                                        .createStatement("ALTER TABLE FUNKO ALTER COLUMN ID RESTART WITH " + (max + 1))
+                                        .execute())
+                                .flatMap(result -> Mono.from(result.getRowsUpdated())))
+                        .then(),
                 Connection::close
         );
     }
@@ -210,26 +662,108 @@ public class FunkoRepositoryImpl implements FunkoRepository{
      */
     @Override
     public Flux<Funko> findByName(String name) {
+        return findByName(name, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Busca Funkos cuyos nombres contienen la cadena especificada usando el indice de n-gramas en memoria,
+     * ordenados por relevancia. Solo se leen de la base de datos las filas encontradas, por su clave primaria.
+     * El indice se carga de la base de datos en la primera busqueda y despues se mantiene con cada
+     * insercion, actualizacion y borrado hecho a traves de este repositorio.
+     *
+     * @param name  El nombre o parte del nombre de los Funkos a buscar.
+     * @param limit El numero maximo de Funkos a devolver.
+     * @return Un flujo (Flux) con los Funkos encontrados, del mas relevante al menos relevante.
+     */
+    @Override
+    public Flux<Funko> findByName(String name, int limit) {
         logger.debug("Finding Funko From DB with Name: " + name);
-        String sql = "SELECT * FROM FUNKO WHERE name like ?";
+        // El limite se aplica tras comprobar el nombre leido; las filas se piden por bloques, en orden de relevancia,
+        // y se dejan de pedir al llegar al limite
+        return loadNameIndex()
+                .thenMany(Flux.defer(() -> findByIdList(nameIndex.search(name, Integer.MAX_VALUE))))
+                .filter(funko -> funko.getName().contains(name))
+                .take(limit);
+    }
+
+    /**
+     * Carga en el indice de nombres los Funkos existentes en la base de datos, si aun no se ha hecho.
+     * Todas las busquedas comparten la misma carga; si falla, la siguiente busqueda la reintenta.
+     *
+     * @return Un mono (Mono) que completa cuando el indice esta cargado.
+     */
+    private Mono<Void> loadNameIndex() {
+        return Mono.defer(() -> {
+            Mono<Void> load = nameIndexLoad.get();
+            while (load == null) {
+                Mono<Void> scan = scanNameIndex().cache();
+                load = nameIndexLoad.compareAndSet(null, scan) ? scan : nameIndexLoad.get();
+            }
+            Mono<Void> current = load;
+            return current.doOnError(e -> nameIndexLoad.compareAndSet(current, null));
+        });
+    }
+
+    private Mono<Void> scanNameIndex() {
+        String sql = "SELECT id, name FROM FUNKO";
         return Flux.usingWhen(
                 connectionFactory.create(),
-                connection -> Flux.from(connection.createStatement(sql)
-                        .bind(0, "%"+name+"%")
-                        .execute()
-                ).flatMap(result -> result.map((row,rowMetaData)->
-                        Funko.builder()
-                                .id(row.get("id",Integer.class))
-                                .myId(row.get("myid",Long.class))
-                                .uuid(row.get("uuid", UUID.class))
-                                .name(row.get("name",String.class))
-                                .modelo(Modelo.valueOf(row.get("modelo", Object.class).toString()))
-                                .precio(row.get("precio", Double.class))
-                                .fecha_lanzamiento(row.get("fecha_lanzamiento",LocalDate.class))
-                                .created_at(row.get("created_at",LocalDateTime.class))
-                                .updated_at(row.get("updated_at", LocalDateTime.class))
-                                .build()
-                )),Connection::close
+                connection -> Flux.from(connection.createStatement(sql).execute())
+                        .flatMap(result -> result.map((row, rowMetadata) -> {
+                            nameIndex.load(row.get(0, Integer.class), row.get(1, String.class));
+                            return true;
+                        })),
+                Connection::close
+        ).doOnSubscribe(s -> {
+            logger.debug("Cargando indice de nombres de Funkos");
+            nameIndex.beginLoad();
+        }).doFinally(signal -> nameIndex.endLoad()).then();
+    }
+
+    /**
+     * Busca varios Funkos por sus IDs mediante consultas IN de como maximo IN_CLAUSE_SIZE IDs.
+     *
+     * @param ids Los IDs de los Funkos a buscar.
+     * @return Un flujo (Flux) con los Funkos encontrados, en el orden de los IDs y sin repetidos.
+     */
+    @Override
+    public Flux<Funko> findByIds(Collection<Integer> ids) {
+        logger.debug("Buscando " + ids.size() + " funkos por id");
+        return findByIdList(new ArrayList<>(new LinkedHashSet<>(ids)));
+    }
+
+    /**
+     * Busca los Funkos con los IDs indicados mediante consultas IN de como maximo IN_CLAUSE_SIZE IDs,
+     * y los devuelve en el mismo orden que la lista. Los IDs que no existen se omiten.
+     *
+     * @param ids Los IDs de los Funkos a buscar.
+     * @return Un flujo (Flux) con los Funkos encontrados.
+     */
+    private Flux<Funko> findByIdList(List<Integer> ids) {
+        return Flux.fromIterable(ids)
+                .buffer(IN_CLAUSE_SIZE)
+                .concatMap(chunk -> findByIdChunk(chunk)
+                        .collectMap(Funko::getId)
+                        .flatMapIterable(found -> chunk.stream()
+                                .map(found::get)
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.toList())));
+    }
+
+    private Flux<Funko> findByIdChunk(List<Integer> ids) {
+        String sql = "SELECT * FROM FUNKO WHERE id IN ("
+                + String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
+        return Flux.usingWhen(
+                connectionFactory.create(),
+                connection -> {
+                    Statement statement = connection.createStatement(sql);
+                    for (int i = 0; i < ids.size(); i++) {
+                        statement.bind(i, ids.get(i));
+                    }
+                    return Flux.from(statement.execute())
+                            .flatMap(result -> result.map(FunkoRowMapper.forResult()));
+                },
+                Connection::close
         );
     }
 
@@ -248,19 +782,88 @@ public class FunkoRepositoryImpl implements FunkoRepository{
                 connection -> Mono.from(connection.createStatement(sql)
                         .bind(0, uuid)
                         .execute()
-                ).flatMap(result -> Mono.from(result.map((row, rowMetadata) ->
-                        Funko.builder()
-                                        .id(row.get("id",Integer.class))
-                                        .myId(row.get("myid",Long.class))
-                                        .name(row.get("name",String.class))
-                                        .uuid(row.get("uuid", UUID.class))
-                                        .modelo(Modelo.valueOf(row.get("modelo", Object.class).toString()))
-                                        .precio(row.get("precio",Double.class))
-                                        .fecha_lanzamiento(row.get("fecha_lanzamiento", LocalDate.class))
-                                        .created_at(row.get("created_at", LocalDateTime.class))
-                                        .updated_at(row.get("updated_at", LocalDateTime.class))
+                ).flatMap(result -> Mono.from(result.map(FunkoRowMapper.forResult()))),
+                Connection::close
+        );
+    }
+
+    /**
+     * Busca el Funko con el precio mas alto ordenando en la base de datos y leyendo solo la primera fila.
+     *
+     * @return Un mono (Mono) con el Funko mas caro, o vacio si no hay Funkos.
+     */
+    @Override
+    public Mono<Funko> findMostExpensive() {
+        logger.debug("Buscando el Funko mas caro");
+        String sql = "SELECT * FROM FUNKO ORDER BY precio DESC, id LIMIT 1";
+        return Mono.usingWhen(
+                connectionFactory.create(),
+                connection -> Mono.from(connection.createStatement(sql).execute())
+                        .flatMap(result -> Mono.from(result.map(FunkoRowMapper.forResult()))),
+                Connection::close
+        );
+    }
+
+    /**
+     * Calcula el precio medio de los Funkos con AVG en la base de datos.
+     *
+     * @return Un mono (Mono) con el precio medio, o vacio si no hay Funkos.
+     */
+    @Override
+    public Mono<Double> findAveragePrecio() {
+        logger.debug("Calculando el precio medio de los Funkos");
+        String sql = "SELECT CAST(AVG(precio) AS DOUBLE PRECISION) FROM FUNKO";
+        return Mono.usingWhen(
+                connectionFactory.create(),
+                connection -> Mono.from(connection.createStatement(sql).execute())
+                        .flatMap(result -> Mono.from(result.map((row, rowMetadata) ->
+                                Optional.ofNullable(row.get(0, Double.class)))))
+                        .flatMap(Mono::justOrEmpty),
+                Connection::close
+        );
+    }
+
+    /**
+     * Calcula las estadisticas de cada modelo con una unica consulta GROUP BY en la base de datos.
+     *
+     * @return Un flujo (Flux) con las estadisticas de cada modelo que tiene Funkos, ordenado por modelo.
+     */
+    @Override
+    public Flux<ModeloStats> findStatsByModelo() {
+        logger.debug("Calculando estadisticas por modelo");
+        String sql = "SELECT modelo, COUNT(*), CAST(AVG(precio) AS DOUBLE PRECISION), MIN(precio), MAX(precio) FROM FUNKO GROUP BY modelo ORDER BY modelo";
+        return Flux.usingWhen(
+                connectionFactory.create(),
+                connection -> Flux.from(connection.createStatement(sql).execute())
+                        .flatMap(result -> result.map((row, rowMetadata) ->
+                                ModeloStats.builder()
+                                        .modelo(FunkoRowMapper.toModelo(row.get(0, String.class)))
+                                        .count(row.get(1, Long.class))
+                                        .precioMedio(row.get(2, Double.class))
+                                        .precioMinimo(row.get(3, Double.class))
+                                        .precioMaximo(row.get(4, Double.class))
                                         .build()
-                ))),
+                        )),
+                Connection::close
+        );
+    }
+
+    /**
+     * Busca los Funkos de un modelo usando el indice sobre la columna modelo.
+     *
+     * @param modelo El modelo de los Funkos a buscar.
+     * @return Un flujo (Flux) con los Funkos del modelo, ordenados por ID.
+     */
+    @Override
+    public Flux<Funko> findByModelo(Modelo modelo) {
+        logger.debug("Buscando Funkos del modelo " + modelo);
+        String sql = "SELECT * FROM FUNKO WHERE modelo = ? ORDER BY id";
+        return Flux.usingWhen(
+                connectionFactory.create(),
+                connection -> Flux.from(connection.createStatement(sql)
+                        .bind(0, modelo.name())
+                        .execute()
+                ).flatMap(result -> result.map(FunkoRowMapper.forResult())),
                 Connection::close
         );
     }
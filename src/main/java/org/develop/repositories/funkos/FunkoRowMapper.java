@@ -0,0 +1,130 @@
+package org.develop.repositories.funkos;
+
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.develop.model.Funko;
+import org.develop.model.Modelo;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+/**
+ * Convierte las filas de la tabla FUNKO en objetos Funko. Es el unico punto donde se hace esta conversion,
+ * y todas las consultas del repositorio lo utilizan.
+ * Las posiciones de las columnas se resuelven con la primera fila y se reutilizan en el resto, de modo que cada fila
+ * se lee por indice y no por nombre. Por eso cada resultado (Result) debe usar su propia instancia: compartir una
+ * entre consultas simultaneas haria que cada una descartara las posiciones de la otra. Se crea con
+ * {@link #forResult()} dentro de cada result.map.
+ * El modelo se traduce mediante una tabla de busqueda en lugar de Modelo.valueOf.
+ */
+public final class FunkoRowMapper implements BiFunction<Row, RowMetadata, Funko> {
+
+    private static final int ID = 0;
+    private static final int MYID = 1;
+    private static final int UUID_COL = 2;
+    private static final int NAME = 3;
+    private static final int MODELO = 4;
+    private static final int PRECIO = 5;
+    private static final int FECHA_LANZAMIENTO = 6;
+    private static final int CREATED_AT = 7;
+    private static final int UPDATED_AT = 8;
+    private static final String[] COLUMNS = {
+            "id", "myid", "uuid", "name", "modelo", "precio", "fecha_lanzamiento", "created_at", "updated_at"
+    };
+
+    private static final Map<String, Modelo> MODELOS = new HashMap<>();
+
+    static {
+        for (Modelo modelo : Modelo.values()) {
+            MODELOS.put(modelo.name(), modelo);
+        }
+    }
+
+    private Layout layout;
+
+    private FunkoRowMapper() {
+    }
+
+    /**
+     * Crea el conversor de las filas de un resultado.
+     *
+     * @return Un conversor nuevo, que solo debe usarse con un resultado.
+     */
+    public static FunkoRowMapper forResult() {
+        return new FunkoRowMapper();
+    }
+
+    /**
+     * Convierte una fila en un Funko.
+     *
+     * @param row      La fila leida de la base de datos.
+     * @param metadata Los metadatos del resultado al que pertenece la fila.
+     * @return El Funko construido a partir de la fila.
+     */
+    @Override
+    public Funko apply(Row row, RowMetadata metadata) {
+        Layout current = layout;
+        if (current == null || current.metadata != metadata) {
+            current = new Layout(metadata);
+            layout = current;
+        }
+        int[] index = current.index;
+        return Funko.builder()
+                .id(row.get(index[ID], Integer.class))
+                .myId(row.get(index[MYID], Long.class))
+                .uuid(row.get(index[UUID_COL], UUID.class))
+                .name(row.get(index[NAME], String.class))
+                .modelo(toModelo(row.get(index[MODELO], String.class)))
+                .precio(row.get(index[PRECIO], Double.class))
+                .fecha_lanzamiento(row.get(index[FECHA_LANZAMIENTO], LocalDate.class))
+                .created_at(row.get(index[CREATED_AT], LocalDateTime.class))
+                .updated_at(row.get(index[UPDATED_AT], LocalDateTime.class))
+                .build();
+    }
+
+    /**
+     * Traduce el texto almacenado en la columna modelo a su valor de la enumeracion Modelo.
+     *
+     * @param value El texto de la columna modelo.
+     * @return El Modelo correspondiente.
+     * @throws IllegalArgumentException Si el texto no corresponde a ningun Modelo.
+     */
+    static Modelo toModelo(String value) {
+        Modelo modelo = MODELOS.get(value);
+        if (modelo == null) {
+            throw new IllegalArgumentException("Modelo desconocido: " + value);
+        }
+        return modelo;
+    }
+
+    /**
+     * Posiciones de las columnas de la tabla FUNKO dentro de un resultado concreto.
+     */
+    private static final class Layout {
+        private final RowMetadata metadata;
+        private final int[] index = new int[COLUMNS.length];
+
+        private Layout(RowMetadata metadata) {
+            this.metadata = metadata;
+            List<? extends ColumnMetadata> columns = metadata.getColumnMetadatas();
+            for (int i = 0; i < COLUMNS.length; i++) {
+                index[i] = -1;
+                for (int j = 0; j < columns.size(); j++) {
+                    if (columns.get(j).getName().equalsIgnoreCase(COLUMNS[i])) {
+                        index[i] = j;
+                        break;
+                    }
+                }
+                if (index[i] < 0) {
+                    throw new IllegalArgumentException("El resultado no contiene la columna " + COLUMNS[i]);
+                }
+            }
+        }
+    }
+}
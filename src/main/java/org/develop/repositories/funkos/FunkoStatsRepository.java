@@ -0,0 +1,43 @@
+package org.develop.repositories.funkos;
+
+import org.develop.model.Funko;
+import org.develop.model.Modelo;
+import org.develop.model.ModeloStats;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Interfaz que define consultas agregadas sobre los Funkos. Los calculos (MAX, AVG, COUNT, GROUP BY) se hacen
+ * en la base de datos, de modo que solo se transfieren los resultados y no la tabla completa.
+ */
+public interface FunkoStatsRepository {
+
+    /**
+     * Busca el Funko con el precio mas alto.
+     *
+     * @return Un mono (Mono) con el Funko mas caro, o vacio si no hay Funkos.
+     */
+    Mono<Funko> findMostExpensive();
+
+    /**
+     * Calcula el precio medio de todos los Funkos.
+     *
+     * @return Un mono (Mono) con el precio medio, o vacio si no hay Funkos.
+     */
+    Mono<Double> findAveragePrecio();
+
+    /**
+     * Calcula, para cada modelo, el numero de Funkos y sus precios medio, minimo y maximo.
+     *
+     * @return Un flujo (Flux) con las estadisticas de cada modelo que tiene Funkos, ordenado por modelo.
+     */
+    Flux<ModeloStats> findStatsByModelo();
+
+    /**
+     * Busca los Funkos de un modelo.
+     *
+     * @param modelo El modelo de los Funkos a buscar.
+     * @return Un flujo (Flux) con los Funkos del modelo, ordenados por ID.
+     */
+    Flux<Funko> findByModelo(Modelo modelo);
+}
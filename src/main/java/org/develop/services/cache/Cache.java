@@ -34,6 +34,14 @@ public interface Cache<K,V> {
      */
     void clear();
 
+    /**
+     * Obtiene una instantanea de las estadisticas de uso de la cache: aciertos, fallos, cargas y entradas
+     * eliminadas por cada causa.
+     *
+     * @return Las estadisticas acumuladas desde que se creo la cache.
+     */
+    CacheStats stats();
+
     /**
      * Realiza una operacion de apagado o liberacion de recursos en la cache, si es necesario.
      */
@@ -0,0 +1,118 @@
+package org.develop.services.cache;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instantanea de las estadisticas de una cache: aciertos, fallos, cargas desde el origen de datos, entradas
+ * eliminadas por cada causa y distribucion de los tiempos de carga.
+ */
+@Data
+@Builder
+public class CacheStats {
+    /**
+     * Consultas que encontraron la clave en la cache.
+     */
+    private long hitCount;
+    /**
+     * Consultas que no encontraron la clave en la cache, incluidas las que la encontraron ya caducada.
+     */
+    private long missCount;
+    /**
+     * Cargas desde el origen de datos que encontraron el valor.
+     */
+    private long loadSuccessCount;
+    /**
+     * Cargas desde el origen de datos que fallaron o no encontraron el valor.
+     */
+    private long loadFailureCount;
+    /**
+     * Tiempo total empleado en cargas, en nanosegundos.
+     */
+    private long totalLoadTimeNanos;
+    /**
+     * Entradas desalojadas por superar el tamano maximo de la cache.
+     */
+    private long sizeEvictionCount;
+    /**
+     * Entradas eliminadas por caducidad.
+     */
+    private long expirationCount;
+    /**
+     * Entradas eliminadas explicitamente.
+     */
+    private long explicitRemovalCount;
+    /**
+     * Histograma de tiempos de carga: la posicion i cuenta las cargas que tardaron entre 2^i y 2^(i+1) nanosegundos.
+     */
+    private long[] loadLatencyHistogram;
+
+    /**
+     * Calcula la proporcion de consultas que encontraron la clave en la cache.
+     *
+     * @return La tasa de aciertos entre 0 y 1, o 1 si no ha habido consultas.
+     */
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /**
+     * Calcula el tiempo medio de carga.
+     *
+     * @return El tiempo medio de carga en milisegundos, o 0 si no ha habido cargas.
+     */
+    public double getAverageLoadMillis() {
+        long loads = loadSuccessCount + loadFailureCount;
+        return loads == 0 ? 0 : (double) totalLoadTimeNanos / loads / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Calcula un percentil aproximado del tiempo de carga a partir del histograma. El resultado es el limite
+     * superior del intervalo del histograma en el que cae el percentil, por lo que puede exceder hasta el doble.
+     *
+     * @param percentile El percentil, entre 0 y 100.
+     * @return El tiempo de carga en milisegundos, o 0 si no ha habido cargas.
+     */
+    public double getLoadLatencyPercentileMillis(double percentile) {
+        long loads = 0;
+        for (long count : loadLatencyHistogram) {
+            loads += count;
+        }
+        if (loads == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(loads * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < loadLatencyHistogram.length; i++) {
+            seen += loadLatencyHistogram[i];
+            if (seen >= Math.max(rank, 1)) {
+                return (double) (1L << Math.min(i + 1, 62)) / TimeUnit.MILLISECONDS.toNanos(1);
+            }
+        }
+        return (double) (1L << 62) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Convierte las estadisticas en una representacion de cadena.
+     *
+     * @return Una cadena que resume las estadisticas.
+     */
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hits=" + hitCount +
+                ", misses=" + missCount +
+                ", hitRate=" + String.format("%.3f", getHitRate()) +
+                ", loads=" + loadSuccessCount +
+                ", loadFailures=" + loadFailureCount +
+                ", avgLoad=" + String.format("%.3f", getAverageLoadMillis()) + "ms" +
+                ", p99Load=" + String.format("%.3f", getLoadLatencyPercentileMillis(99)) + "ms" +
+                ", sizeEvictions=" + sizeEvictionCount +
+                ", expirations=" + expirationCount +
+                ", explicitRemovals=" + explicitRemovalCount +
+                '}';
+    }
+}
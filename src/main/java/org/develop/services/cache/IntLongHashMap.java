@@ -0,0 +1,145 @@
+package org.develop.services.cache;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de int a long con direccionamiento abierto y sondeo lineal, sin objetos por entrada.
+ * Sirve de indice de OffHeapStore, de modo que millones de claves cuestan unos 12 bytes cada una en el heap
+ * en lugar de un Integer, un Long y un nodo de HashMap. Los valores deben ser no negativos.
+ * No es seguro para hilos.
+ */
+final class IntLongHashMap {
+    /**
+     * Valor devuelto cuando la clave no esta en el mapa.
+     */
+    static final long MISSING = -1L;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Crea un mapa vacio.
+     */
+    IntLongHashMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Obtiene el valor asociado a una clave.
+     *
+     * @param key La clave.
+     * @return El valor, o MISSING si la clave no esta en el mapa.
+     */
+    long get(int key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long value = values[i];
+            if (value == MISSING || keys[i] == key) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Asocia un valor a una clave.
+     *
+     * @param key   La clave.
+     * @param value El valor, no negativo.
+     * @return El valor anterior, o MISSING si la clave no estaba en el mapa.
+     */
+    long put(int key, long value) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long previous = values[i];
+            if (previous == MISSING) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size * 2 > values.length) {
+                    resize(values.length * 2);
+                }
+                return MISSING;
+            }
+            if (keys[i] == key) {
+                values[i] = value;
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Elimina una clave. Las entradas siguientes de la misma secuencia de sondeo se desplazan hacia atras
+     * para no dejar huecos, asi que no hacen falta marcas de borrado.
+     *
+     * @param key La clave.
+     * @return El valor eliminado, o MISSING si la clave no estaba en el mapa.
+     */
+    long remove(int key) {
+        int i = slot(key);
+        while (values[i] != MISSING && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        long removed = values[i];
+        if (removed == MISSING) {
+            return MISSING;
+        }
+        values[i] = MISSING;
+        size--;
+        for (int j = (i + 1) & mask; values[j] != MISSING; j = (j + 1) & mask) {
+            int ideal = slot(keys[j]);
+            boolean movable = i <= j ? (ideal <= i || ideal > j) : (ideal <= i && ideal > j);
+            if (movable) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = MISSING;
+                i = j;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Obtiene el numero de claves del mapa.
+     *
+     * @return El numero de claves.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Vacia el mapa y libera su memoria.
+     */
+    void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != MISSING) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,329 @@
+package org.develop.services.cache;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Almacen de valores codificados en binario fuera del heap, indexados por una clave entera.
+ * La memoria se reserva en bloques (slabs) de ByteBuffer directos que forman un anillo: cada valor se escribe a
+ * continuacion del anterior en el bloque actual y, cuando el anillo se llena, se libera el bloque mas antiguo.
+ * Al liberarlo, las entradas que se han leido desde que se escribieron tienen una segunda oportunidad y se
+ * copian al bloque nuevo; el resto se desaloja. Asi el coste de desalojo es proporcional al tamano de un bloque
+ * y las entradas que se siguen usando permanecen en el almacen.
+ * El unico dato por entrada en el heap es el indice de clave a posicion, un mapa de tipos primitivos.
+ * Las lecturas se hacen en paralelo con un cerrojo de lectura y las escrituras con el de escritura.
+ */
+public class OffHeapStore {
+    private static final int KEY = 0;
+    private static final int LENGTH = 4;
+    private static final int WRITE_TIME = 8;
+    private static final int REFERENCED = 16;
+    private static final int HEADER_SIZE = 17;
+
+    private final int slabSize;
+    private final ByteBuffer[] slabs;
+    private final int[] slabFill;
+    private final IntLongHashMap index = new IntLongHashMap();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StatsCounter statsCounter = new StatsCounter();
+    private final long expireAfterWriteNanos;
+    private final LongSupplier ticker;
+    private int head;
+    private int tail;
+    private int tailOffset;
+
+    /**
+     * Crea un almacen vacio. Los bloques se reservan a medida que se necesitan.
+     *
+     * @param slabSize         Tamano en bytes de cada bloque.
+     * @param slabCount        Numero maximo de bloques; la memoria maxima es slabSize * slabCount.
+     * @param expireAfterWrite Tiempo que vive una entrada desde que se escribe, o null para no caducar.
+     * @throws IllegalArgumentException Si el tamano o el numero de bloques no son positivos.
+     */
+    public OffHeapStore(int slabSize, int slabCount, Duration expireAfterWrite) {
+        this(slabSize, slabCount, expireAfterWrite, System::nanoTime);
+    }
+
+    /**
+     * Crea un almacen vacio que mide la caducidad con el reloj indicado.
+     *
+     * @param slabSize         Tamano en bytes de cada bloque.
+     * @param slabCount        Numero maximo de bloques; la memoria maxima es slabSize * slabCount.
+     * @param expireAfterWrite Tiempo que vive una entrada desde que se escribe, o null para no caducar.
+     * @param ticker           Reloj en nanosegundos, como System::nanoTime.
+     * @throws IllegalArgumentException Si el tamano o el numero de bloques no son positivos.
+     */
+    public OffHeapStore(int slabSize, int slabCount, Duration expireAfterWrite, LongSupplier ticker) {
+        if (slabSize <= HEADER_SIZE || slabCount <= 0) {
+            throw new IllegalArgumentException("Configuracion de memoria fuera del heap no valida: "
+                    + slabCount + " bloques de " + slabSize + " bytes");
+        }
+        this.slabSize = slabSize;
+        this.slabs = new ByteBuffer[slabCount];
+        this.slabFill = new int[slabCount];
+        this.expireAfterWriteNanos = expireAfterWrite == null ? 0L : expireAfterWrite.toNanos();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Lee el valor de una clave, decodificandolo directamente desde la memoria fuera del heap.
+     *
+     * @param key     La clave.
+     * @param decoder Decodifica el valor a partir de un buffer posicionado al inicio de sus bytes.
+     * @param <T>     El tipo del valor decodificado.
+     * @return El valor decodificado, o null si la clave no esta en el almacen o ha caducado.
+     */
+    public <T> T get(int key, Function<ByteBuffer, T> decoder) {
+        return getWithAge(key, (value, ageNanos) -> decoder.apply(value));
+    }
+
+    /**
+     * Lee el valor de una clave como get, indicando ademas al decodificador cuanto hace que se escribio, para que
+     * quien lo copie a otra cache conserve su caducidad.
+     *
+     * @param key     La clave.
+     * @param decoder Decodifica el valor a partir de un buffer posicionado al inicio de sus bytes y de su antiguedad.
+     * @param <T>     El tipo del valor decodificado.
+     * @return El valor decodificado, o null si la clave no esta en el almacen o ha caducado.
+     */
+    public <T> T getWithAge(int key, Decoder<T> decoder) {
+        lock.readLock().lock();
+        try {
+            long address = index.get(key);
+            if (address == IntLongHashMap.MISSING) {
+                statsCounter.recordMiss();
+                return null;
+            }
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            long writeTime = slab.getLong(offset + WRITE_TIME);
+            long now = ticker.getAsLong();
+            if (isExpired(writeTime, now)) {
+                statsCounter.recordMiss();
+                return null;
+            }
+            // Escritura benigna bajo el cerrojo de lectura: todos los lectores escriben el mismo valor.
+            slab.put(offset + REFERENCED, (byte) 1);
+            ByteBuffer value = slab.duplicate();
+            value.limit(offset + HEADER_SIZE + slab.getInt(offset + LENGTH));
+            value.position(offset + HEADER_SIZE);
+            statsCounter.recordHit();
+            return decoder.decode(value, now - writeTime);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Guarda el valor de una clave, sustituyendo el anterior si lo habia.
+     *
+     * @param key   La clave.
+     * @param value Los bytes del valor.
+     * @return true si se ha guardado, o false si el valor no cabe en un bloque y no se puede almacenar.
+     */
+    public boolean put(int key, byte[] value) {
+        int size = HEADER_SIZE + value.length;
+        lock.writeLock().lock();
+        try {
+            if (size > slabSize) {
+                index.remove(key);
+                return false;
+            }
+            ensureSpace(size);
+            append(key, value, ticker.getAsLong());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Elimina una clave del almacen. Sus bytes se recuperan cuando se libere su bloque.
+     *
+     * @param key La clave.
+     */
+    public void remove(int key) {
+        lock.writeLock().lock();
+        try {
+            if (index.remove(key) != IntLongHashMap.MISSING) {
+                statsCounter.recordRemoval(RemovalCause.EXPLICIT);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Elimina todas las entradas. Los bloques ya reservados se conservan para reutilizarlos.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            head = 0;
+            tail = 0;
+            tailOffset = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Elimina todas las entradas y suelta los bloques para que el recolector libere su memoria.
+     */
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (int i = 0; i < slabs.length; i++) {
+                slabs[i] = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene el numero de entradas del almacen, incluidas las caducadas que aun no se han desalojado.
+     *
+     * @return El numero de entradas.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene una instantanea de las estadisticas del almacen.
+     *
+     * @return Las estadisticas acumuladas desde que se creo el almacen.
+     */
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * Avanza al siguiente bloque del anillo mientras la entrada no quepa en el actual, liberando el bloque mas
+     * antiguo cuando el anillo esta lleno y copiando al bloque nuevo las entradas que merecen otra oportunidad.
+     */
+    private void ensureSpace(int size) {
+        while (tailOffset + size > slabSize) {
+            slabFill[tail] = tailOffset;
+            int next = (tail + 1) % slabs.length;
+            List<Survivor> survivors = List.of();
+            if (next == head) {
+                survivors = reclaim(head);
+                head = (head + 1) % slabs.length;
+            }
+            tail = next;
+            tailOffset = 0;
+            if (slabs[tail] == null) {
+                slabs[tail] = ByteBuffer.allocateDirect(slabSize);
+            }
+            for (Survivor survivor : survivors) {
+                append(survivor.key, survivor.value, survivor.writeTime);
+            }
+        }
+        if (slabs[tail] == null) {
+            slabs[tail] = ByteBuffer.allocateDirect(slabSize);
+        }
+    }
+
+    /**
+     * Recorre un bloque que se va a reutilizar: desaloja las entradas caducadas o que no se han leido y devuelve
+     * una copia de las que se han leido para volver a escribirlas.
+     */
+    private List<Survivor> reclaim(int slabIndex) {
+        ByteBuffer slab = slabs[slabIndex];
+        int end = slabIndex == tail ? tailOffset : slabFill[slabIndex];
+        long now = ticker.getAsLong();
+        List<Survivor> survivors = new ArrayList<>();
+        for (int offset = 0; offset < end; ) {
+            int key = slab.getInt(offset + KEY);
+            int length = slab.getInt(offset + LENGTH);
+            if (index.get(key) == address(slabIndex, offset)) {
+                long writeTime = slab.getLong(offset + WRITE_TIME);
+                if (isExpired(writeTime, now)) {
+                    index.remove(key);
+                    statsCounter.recordRemoval(RemovalCause.EXPIRED);
+                } else if (slab.get(offset + REFERENCED) != 0) {
+                    byte[] value = new byte[length];
+                    slab.get(offset + HEADER_SIZE, value);
+                    survivors.add(new Survivor(key, value, writeTime));
+                } else {
+                    index.remove(key);
+                    statsCounter.recordRemoval(RemovalCause.SIZE);
+                }
+            }
+            offset += HEADER_SIZE + length;
+        }
+        return survivors;
+    }
+
+    private void append(int key, byte[] value, long writeTime) {
+        ByteBuffer slab = slabs[tail];
+        int offset = tailOffset;
+        slab.putInt(offset + KEY, key);
+        slab.putInt(offset + LENGTH, value.length);
+        slab.putLong(offset + WRITE_TIME, writeTime);
+        slab.put(offset + REFERENCED, (byte) 0);
+        slab.put(offset + HEADER_SIZE, value);
+        tailOffset += HEADER_SIZE + value.length;
+        index.put(key, address(tail, offset));
+    }
+
+    private boolean isExpired(long writeTime, long now) {
+        return expireAfterWriteNanos > 0 && now - writeTime >= expireAfterWriteNanos;
+    }
+
+    private static long address(int slab, int offset) {
+        return ((long) slab << 32) | offset;
+    }
+
+    private static int slabOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+
+    /**
+     * Decodifica el valor de una entrada junto con su antiguedad.
+     *
+     * @param <T> El tipo del valor decodificado.
+     */
+    @FunctionalInterface
+    public interface Decoder<T> {
+        /**
+         * Decodifica un valor.
+         *
+         * @param value    Buffer posicionado al inicio de los bytes del valor y limitado a su final.
+         * @param ageNanos Tiempo transcurrido desde que se escribio el valor, en nanosegundos.
+         * @return El valor decodificado.
+         */
+        T decode(ByteBuffer value, long ageNanos);
+    }
+
+    private static final class Survivor {
+        private final int key;
+        private final byte[] value;
+        private final long writeTime;
+
+        private Survivor(int key, byte[] value, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = writeTime;
+        }
+    }
+}
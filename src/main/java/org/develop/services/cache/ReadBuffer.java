@@ -0,0 +1,89 @@
+package org.develop.services.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Buffer con perdidas en el que las lecturas de la cache anotan los accesos sin tomar ningun cerrojo.
+ * Esta repartido en varios anillos de tamano fijo para que los hilos no compitan por el mismo contador; cada hilo
+ * escribe en el anillo que le corresponde y, si esta lleno o pierde la carrera con otro hilo, el acceso se descarta.
+ * Perder algun acceso solo resta precision a la politica de desalojo, nunca afecta a los datos de la cache.
+ * Un unico consumidor, que tiene el cerrojo de la politica, vacia los anillos y aplica los accesos.
+ *
+ * @param <E> El tipo de elemento anotado.
+ */
+final class ReadBuffer<E> {
+    private static final int RING_SIZE = 16;
+    private static final int RING_MASK = RING_SIZE - 1;
+
+    private final Ring<E>[] rings;
+    private final int ringMask;
+
+    /**
+     * Crea un buffer con un anillo por procesador, redondeado a potencia de dos.
+     */
+    @SuppressWarnings("unchecked")
+    ReadBuffer() {
+        int count = Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors(), 2) - 1) << 1;
+        this.rings = new Ring[count];
+        for (int i = 0; i < count; i++) {
+            rings[i] = new Ring<>();
+        }
+        this.ringMask = count - 1;
+    }
+
+    /**
+     * Anota un acceso.
+     *
+     * @param element El elemento accedido.
+     * @return true si el anillo del hilo esta lleno y conviene vaciar el buffer.
+     */
+    boolean offer(E element) {
+        Ring<E> ring = rings[probe() & ringMask];
+        long tail = ring.tail.get();
+        long head = ring.head.get();
+        if (tail - head >= RING_SIZE) {
+            return true;
+        }
+        if (ring.tail.compareAndSet(tail, tail + 1)) {
+            ring.buffer.lazySet((int) (tail & RING_MASK), element);
+        }
+        return false;
+    }
+
+    /**
+     * Vacia todos los anillos entregando cada acceso anotado al consumidor. Solo debe llamarse con el cerrojo
+     * de la politica tomado.
+     *
+     * @param consumer El consumidor de los accesos.
+     */
+    void drainTo(Consumer<E> consumer) {
+        for (Ring<E> ring : rings) {
+            long head = ring.head.get();
+            long tail = ring.tail.get();
+            for (; head < tail; head++) {
+                int index = (int) (head & RING_MASK);
+                E element = ring.buffer.get(index);
+                if (element == null) {
+                    // El productor ha reservado la posicion pero aun no ha publicado el elemento.
+                    break;
+                }
+                ring.buffer.lazySet(index, null);
+                consumer.accept(element);
+            }
+            ring.head.lazySet(head);
+        }
+    }
+
+    private static int probe() {
+        int h = System.identityHashCode(Thread.currentThread()) * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Ring<E> {
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+        private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(RING_SIZE);
+    }
+}
@@ -0,0 +1,19 @@
+package org.develop.services.cache;
+
+/**
+ * Causa por la que una entrada sale de una cache.
+ */
+public enum RemovalCause {
+    /**
+     * La entrada se elimino explicitamente.
+     */
+    EXPLICIT,
+    /**
+     * La entrada se desalojo porque la cache supero su tamano maximo.
+     */
+    SIZE,
+    /**
+     * La entrada caduco.
+     */
+    EXPIRED
+}
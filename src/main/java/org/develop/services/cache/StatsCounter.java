@@ -0,0 +1,107 @@
+package org.develop.services.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de las estadisticas de una cache. Cada registro es un incremento de un LongAdder, que reparte la
+ * contencion entre hilos, y el histograma de tiempos de carga tiene un intervalo fijo por cada potencia de dos
+ * de nanosegundos, de modo que registrar no reserva memoria ni toma cerrojos.
+ */
+public final class StatsCounter {
+    private static final int HISTOGRAM_BUCKETS = 64;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder sizeEvictionCount = new LongAdder();
+    private final LongAdder expirationCount = new LongAdder();
+    private final LongAdder explicitRemovalCount = new LongAdder();
+    private final LongAdder[] loadLatency = new LongAdder[HISTOGRAM_BUCKETS];
+
+    /**
+     * Crea unos contadores a cero.
+     */
+    public StatsCounter() {
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            loadLatency[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Registra una consulta que encontro la clave.
+     */
+    public void recordHit() {
+        hitCount.increment();
+    }
+
+    /**
+     * Registra una consulta que no encontro la clave.
+     */
+    public void recordMiss() {
+        missCount.increment();
+    }
+
+    /**
+     * Registra una carga que encontro el valor.
+     *
+     * @param loadNanos El tiempo de la carga en nanosegundos.
+     */
+    public void recordLoadSuccess(long loadNanos) {
+        loadSuccessCount.increment();
+        recordLoadTime(loadNanos);
+    }
+
+    /**
+     * Registra una carga que fallo o no encontro el valor.
+     *
+     * @param loadNanos El tiempo de la carga en nanosegundos.
+     */
+    public void recordLoadFailure(long loadNanos) {
+        loadFailureCount.increment();
+        recordLoadTime(loadNanos);
+    }
+
+    /**
+     * Registra una entrada eliminada de la cache.
+     *
+     * @param cause La causa de la eliminacion.
+     */
+    public void recordRemoval(RemovalCause cause) {
+        switch (cause) {
+            case SIZE -> sizeEvictionCount.increment();
+            case EXPIRED -> expirationCount.increment();
+            case EXPLICIT -> explicitRemovalCount.increment();
+        }
+    }
+
+    /**
+     * Obtiene una instantanea de los contadores.
+     *
+     * @return Las estadisticas actuales.
+     */
+    public CacheStats snapshot() {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            histogram[i] = loadLatency[i].sum();
+        }
+        return CacheStats.builder()
+                .hitCount(hitCount.sum())
+                .missCount(missCount.sum())
+                .loadSuccessCount(loadSuccessCount.sum())
+                .loadFailureCount(loadFailureCount.sum())
+                .totalLoadTimeNanos(totalLoadTime.sum())
+                .sizeEvictionCount(sizeEvictionCount.sum())
+                .expirationCount(expirationCount.sum())
+                .explicitRemovalCount(explicitRemovalCount.sum())
+                .loadLatencyHistogram(histogram)
+                .build();
+    }
+
+    private void recordLoadTime(long loadNanos) {
+        long nanos = Math.max(loadNanos, 1L);
+        totalLoadTime.add(nanos);
+        loadLatency[63 - Long.numberOfLeadingZeros(nanos)].increment();
+    }
+}
@@ -0,0 +1,164 @@
+package org.develop.services.cache;
+
+import java.util.function.Predicate;
+
+/**
+ * Rueda de temporizadores jerarquica con la que la cache sabe que entradas caducan sin recorrerlas todas.
+ * Cada nivel divide el tiempo en cubos de un tamano fijo (potencias de dos de nanosegundos: ~1 s, ~1 min, ~1 h,
+ * ~19 h y ~13 dias) y cada entrada se enlaza en el cubo del nivel mas fino que abarca su caducidad.
+ * Programar, reprogramar o quitar una entrada cuesta O(1). Al avanzar el reloj solo se visitan los cubos cuyo
+ * tiempo ha pasado: las entradas caducadas se entregan a la cache y el resto baja a un nivel mas fino.
+ * No es segura para hilos: la cache solo la usa mientras tiene el cerrojo de su politica de desalojo.
+ *
+ * @param <K> El tipo de las claves.
+ * @param <V> El tipo de los valores.
+ */
+final class TimerWheel<K, V> {
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final long[] SPANS = {
+            1L << 30, // ~1,07 s
+            1L << 36, // ~1,14 min
+            1L << 42, // ~1,22 h
+            1L << 46, // ~19,5 h
+            1L << 50, // ~13 dias
+            1L << 50
+    };
+    private static final long[] SHIFT = {
+            Long.numberOfTrailingZeros(SPANS[0]),
+            Long.numberOfTrailingZeros(SPANS[1]),
+            Long.numberOfTrailingZeros(SPANS[2]),
+            Long.numberOfTrailingZeros(SPANS[3]),
+            Long.numberOfTrailingZeros(SPANS[4])
+    };
+
+    private final TinyLfuCache.Node<K, V>[][] wheel;
+    private long nanos;
+
+    /**
+     * Crea una rueda vacia.
+     *
+     * @param nanos El instante actual del reloj de la cache.
+     */
+    @SuppressWarnings("unchecked")
+    TimerWheel(long nanos) {
+        this.nanos = nanos;
+        this.wheel = new TinyLfuCache.Node[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = new TinyLfuCache.Node[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                wheel[i][j] = sentinel();
+            }
+        }
+    }
+
+    /**
+     * Avanza el reloj de la rueda y entrega las entradas cuya caducidad ha pasado.
+     *
+     * @param currentNanos El instante actual.
+     * @param expire       Recibe cada entrada vencida y devuelve true si la ha eliminado; si devuelve false
+     *                     (porque la entrada se ha usado o reescrito despues) la entrada se vuelve a programar.
+     */
+    void advance(long currentNanos, Predicate<TinyLfuCache.Node<K, V>> expire) {
+        long previousNanos = nanos;
+        nanos = currentNanos;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousNanos >>> SHIFT[i];
+            long currentTicks = currentNanos >>> SHIFT[i];
+            long delta = currentTicks - previousTicks;
+            if (delta <= 0L) {
+                break;
+            }
+            expire(i, previousTicks, delta, expire);
+        }
+    }
+
+    /**
+     * Programa una entrada segun su instante de caducidad, quitandola antes de su cubo anterior si lo tenia.
+     *
+     * @param node La entrada.
+     */
+    void schedule(TinyLfuCache.Node<K, V> node) {
+        deschedule(node);
+        TinyLfuCache.Node<K, V> sentinel = findBucket(node.expiresAt);
+        node.wheelPrev = sentinel.wheelPrev;
+        node.wheelNext = sentinel;
+        sentinel.wheelPrev.wheelNext = node;
+        sentinel.wheelPrev = node;
+    }
+
+    /**
+     * Quita una entrada de la rueda si estaba programada.
+     *
+     * @param node La entrada.
+     */
+    void deschedule(TinyLfuCache.Node<K, V> node) {
+        if (node.wheelNext != null) {
+            node.wheelNext.wheelPrev = node.wheelPrev;
+            node.wheelPrev.wheelNext = node.wheelNext;
+            node.wheelNext = null;
+            node.wheelPrev = null;
+        }
+    }
+
+    /**
+     * Quita todas las entradas de la rueda.
+     */
+    void clear() {
+        for (TinyLfuCache.Node<K, V>[] buckets : wheel) {
+            for (TinyLfuCache.Node<K, V> sentinel : buckets) {
+                TinyLfuCache.Node<K, V> node = sentinel.wheelNext;
+                while (node != sentinel) {
+                    TinyLfuCache.Node<K, V> next = node.wheelNext;
+                    node.wheelPrev = null;
+                    node.wheelNext = null;
+                    node = next;
+                }
+                sentinel.wheelPrev = sentinel;
+                sentinel.wheelNext = sentinel;
+            }
+        }
+    }
+
+    private void expire(int index, long previousTicks, long delta, Predicate<TinyLfuCache.Node<K, V>> expire) {
+        TinyLfuCache.Node<K, V>[] buckets = wheel[index];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+        int end = start + steps;
+        for (int i = start; i < end; i++) {
+            TinyLfuCache.Node<K, V> sentinel = buckets[i & mask];
+            TinyLfuCache.Node<K, V> node = sentinel.wheelNext;
+            sentinel.wheelPrev = sentinel;
+            sentinel.wheelNext = sentinel;
+            while (node != sentinel) {
+                TinyLfuCache.Node<K, V> next = node.wheelNext;
+                node.wheelPrev = null;
+                node.wheelNext = null;
+                if (node.expiresAt - nanos > 0 || !expire.test(node)) {
+                    schedule(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    private TinyLfuCache.Node<K, V> findBucket(long time) {
+        long duration = time - nanos;
+        int length = wheel.length - 1;
+        for (int i = 0; i < length; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = time >>> SHIFT[i];
+                int index = (int) (ticks & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+        return wheel[length][0];
+    }
+
+    private static <K, V> TinyLfuCache.Node<K, V> sentinel() {
+        TinyLfuCache.Node<K, V> sentinel = new TinyLfuCache.Node<>(null, null);
+        sentinel.wheelPrev = sentinel;
+        sentinel.wheelNext = sentinel;
+        return sentinel;
+    }
+}
@@ -0,0 +1,779 @@
+package org.develop.services.cache;
+
+import lombok.Getter;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache concurrente de tamano maximo con politica de desalojo W-TinyLFU.
+ * Los datos se guardan en un ConcurrentHashMap, de modo que las lecturas no bloquean: cada lectura solo anota el
+ * acceso en un buffer con perdidas que se aplica mas tarde a la politica. Las escrituras y el mantenimiento de la
+ * politica se serializan con un cerrojo.
+ * La politica divide las entradas en una ventana LRU pequena (1% del tamano) y una zona principal LRU segmentada
+ * (periodo de prueba y protegida, esta ultima con el 80% de la zona principal). Las entradas nuevas entran en la
+ * ventana; al salir de ella solo desplazan a una entrada de la zona principal si su frecuencia de acceso estimada
+ * es mayor, por lo que un recorrido de claves que se usan una sola vez no expulsa a las entradas mas usadas.
+ * Opcionalmente cada entrada caduca un tiempo despues de escribirse y/o despues de su ultimo acceso. Una entrada
+ * caducada deja de devolverse en cuanto vence, y se elimina en el siguiente mantenimiento de la politica, que usa
+ * una rueda de temporizadores (TimerWheel) para encontrar las entradas vencidas sin recorrer la cache entera.
+ * Tambien puede recargar por adelantado (refresh-ahead) las entradas que se siguen leyendo: la primera lectura de
+ * una entrada que lleva escrita mas del tiempo de recarga lanza su recarga en segundo plano y mientras tanto se
+ * sigue devolviendo el valor actual, de modo que las entradas mas usadas no llegan a caducar.
+ *
+ * @param <K> El tipo de las claves.
+ * @param <V> El tipo de los valores.
+ */
+public class TinyLfuCache<K, V> implements Cache<K, V> {
+    private static final double WINDOW_PERCENT = 0.01;
+    private static final double PROTECTED_PERCENT = 0.8;
+
+    /**
+     * Numero maximo de entradas de la cache.
+     */
+    @Getter
+    private final int maxSize;
+    private final int windowMax;
+    private final int protectedMax;
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+    private final Map<K, V> view = new MapView();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ReadBuffer<Node<K, V>> readBuffer = new ReadBuffer<>();
+    private final FrequencySketch sketch;
+    private final AccessQueue<K, V> window = new AccessQueue<>();
+    private final AccessQueue<K, V> probation = new AccessQueue<>();
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final LongSupplier ticker;
+    private final TimerWheel<K, V> timerWheel;
+    private final StatsCounter statsCounter = new StatsCounter();
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+    private volatile long refreshAfterWriteNanos;
+    private volatile Function<K, Mono<V>> reloader;
+
+    /**
+     * Crea una nueva cache con el tamano maximo especificado y sin caducidad.
+     *
+     * @param maxSize Numero maximo de entradas de la cache.
+     * @throws IllegalArgumentException Si el tamano no es positivo.
+     */
+    public TinyLfuCache(int maxSize) {
+        this(maxSize, null, null);
+    }
+
+    /**
+     * Crea una nueva cache con el tamano maximo y los tiempos de caducidad especificados.
+     *
+     * @param maxSize           Numero maximo de entradas de la cache.
+     * @param expireAfterWrite  Tiempo que vive una entrada desde que se escribe, o null para no caducar por escritura.
+     * @param expireAfterAccess Tiempo que vive una entrada desde su ultimo acceso, o null para no caducar por acceso.
+     * @throws IllegalArgumentException Si el tamano o alguno de los tiempos no es positivo.
+     */
+    public TinyLfuCache(int maxSize, Duration expireAfterWrite, Duration expireAfterAccess) {
+        this(maxSize, expireAfterWrite, expireAfterAccess, System::nanoTime);
+    }
+
+    /**
+     * Crea una nueva cache con el tamano maximo y los tiempos de caducidad especificados, midiendo el tiempo
+     * con el reloj indicado.
+     *
+     * @param maxSize           Numero maximo de entradas de la cache.
+     * @param expireAfterWrite  Tiempo que vive una entrada desde que se escribe, o null para no caducar por escritura.
+     * @param expireAfterAccess Tiempo que vive una entrada desde su ultimo acceso, o null para no caducar por acceso.
+     * @param ticker            Reloj en nanosegundos, como System::nanoTime.
+     * @throws IllegalArgumentException Si el tamano o alguno de los tiempos no es positivo.
+     */
+    public TinyLfuCache(int maxSize, Duration expireAfterWrite, Duration expireAfterAccess, LongSupplier ticker) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("El tamano de la cache debe ser positivo: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.windowMax = Math.max(1, (int) (maxSize * WINDOW_PERCENT));
+        this.protectedMax = (int) ((maxSize - windowMax) * PROTECTED_PERCENT);
+        this.data = new ConcurrentHashMap<>(maxSize);
+        this.sketch = new FrequencySketch(maxSize);
+        this.expireAfterWriteNanos = toNanos(expireAfterWrite);
+        this.expireAfterAccessNanos = toNanos(expireAfterAccess);
+        this.ticker = ticker;
+        this.timerWheel = expires() ? new TimerWheel<>(ticker.getAsLong()) : null;
+    }
+
+    /**
+     * Activa la recarga por adelantado: cuando se lee una entrada escrita hace mas de refreshAfterWrite, se
+     * recarga en segundo plano, en boundedElastic, con reloader y se sigue devolviendo el valor actual hasta que termina. Si la recarga
+     * no encuentra el valor la entrada se elimina, y si falla se conserva hasta que caduque. El resultado de una
+     * recarga se descarta si la entrada se ha escrito o eliminado mientras tanto.
+     *
+     * @param refreshAfterWrite Tiempo desde la escritura a partir del cual una lectura recarga la entrada.
+     * @param reloader          Carga el valor actual de una clave, o vacio si ya no existe.
+     * @throws IllegalArgumentException Si el tiempo no es positivo o no es menor que la caducidad por escritura.
+     */
+    public void refreshAfterWrite(Duration refreshAfterWrite, Function<K, Mono<V>> reloader) {
+        long nanos = toNanos(refreshAfterWrite);
+        if (expireAfterWriteNanos > 0 && nanos >= expireAfterWriteNanos) {
+            throw new IllegalArgumentException("El tiempo de recarga debe ser menor que la caducidad: " + refreshAfterWrite);
+        }
+        this.reloader = reloader;
+        this.refreshAfterWriteNanos = nanos;
+    }
+
+    /**
+     * Almacena un valor en la cache. Si la cache supera su tamano maximo se desaloja una entrada segun la politica.
+     *
+     * @param key   La clave.
+     * @param value El valor.
+     * @return Un mono (Mono) que indica la finalizacion de la operacion.
+     */
+    @Override
+    public Mono<Void> put(K key, V value) {
+        return Mono.fromRunnable(() -> store(key, value));
+    }
+
+    /**
+     * Recupera el valor asociado a una clave sin bloquear.
+     *
+     * @param key La clave.
+     * @return Un mono (Mono) con el valor, o vacio si la clave no esta en la cache.
+     */
+    @Override
+    public Mono<V> get(K key) {
+        return Mono.justOrEmpty(getIfPresent(key));
+    }
+
+    /**
+     * Recupera de forma sincrona el valor asociado a una clave sin bloquear.
+     *
+     * @param key La clave.
+     * @return El valor, o null si la clave no esta en la cache.
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            statsCounter.recordMiss();
+            return null;
+        }
+        long now = timed() ? ticker.getAsLong() : 0L;
+        if (expires()) {
+            if (isExpired(node, now)) {
+                statsCounter.recordMiss();
+                tryCleanUp();
+                return null;
+            }
+            if (expireAfterAccessNanos > 0) {
+                node.accessTime = now;
+            }
+        }
+        statsCounter.recordHit();
+        if (readBuffer.offer(node) && tryCleanUp()) {
+            readBuffer.offer(node);
+        }
+        V value = node.value;
+        if (refreshAfterWriteNanos > 0 && now - node.writeTime >= refreshAfterWriteNanos) {
+            refresh(node.key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Registra en las estadisticas una carga desde el origen de datos que encontro el valor. La cache no carga
+     * valores por si misma; quien la usa mide sus cargas y las registra aqui.
+     *
+     * @param loadNanos El tiempo de la carga en nanosegundos.
+     */
+    public void recordLoadSuccess(long loadNanos) {
+        statsCounter.recordLoadSuccess(loadNanos);
+    }
+
+    /**
+     * Registra en las estadisticas una carga desde el origen de datos que fallo o no encontro el valor.
+     *
+     * @param loadNanos El tiempo de la carga en nanosegundos.
+     */
+    public void recordLoadFailure(long loadNanos) {
+        statsCounter.recordLoadFailure(loadNanos);
+    }
+
+    /**
+     * Obtiene una instantanea de las estadisticas de la cache.
+     *
+     * @return Las estadisticas acumuladas desde que se creo la cache.
+     */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * Elimina una entrada de la cache.
+     *
+     * @param key La clave de la entrada.
+     * @return Un mono (Mono) que indica la finalizacion de la operacion.
+     */
+    @Override
+    public Mono<Void> remove(K key) {
+        return Mono.fromRunnable(() -> invalidate(key));
+    }
+
+    /**
+     * Elimina todas las entradas de la cache.
+     */
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            readBuffer.drainTo(node -> { });
+            for (Node<K, V> node : data.values()) {
+                node.queue = null;
+                onChange(node.key, node.value, null);
+            }
+            data.clear();
+            if (timerWheel != null) {
+                timerWheel.clear();
+            }
+            window.clear();
+            probation.clear();
+            protectedQueue.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * La cache no usa hilos ni recursos propios que haya que liberar.
+     */
+    @Override
+    public void shutdown() {
+    }
+
+    /**
+     * Obtiene el numero de entradas de la cache.
+     *
+     * @return El numero de entradas.
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Obtiene una vista de solo lectura de las entradas de la cache. Consultar la vista no cuenta como acceso.
+     *
+     * @return Un mapa de solo lectura respaldado por la cache.
+     */
+    public Map<K, V> asMap() {
+        return view;
+    }
+
+    /**
+     * Obtiene las claves mas usadas de la cache, de mas a menos caliente: primero la zona protegida, despues el
+     * periodo de prueba y por ultimo la ventana, cada una desde su acceso mas reciente.
+     *
+     * @param limit Numero maximo de claves.
+     * @return Las claves mas usadas, como mucho limit.
+     */
+    public List<K> hottest(int limit) {
+        List<K> keys = new ArrayList<>(Math.min(limit, data.size()));
+        evictionLock.lock();
+        try {
+            maintenance();
+            for (AccessQueue<K, V> queue : List.of(protectedQueue, probation, window)) {
+                for (Node<K, V> node = queue.last; node != null && keys.size() < limit; node = node.prev) {
+                    keys.add(node.key);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        return keys;
+    }
+
+    /**
+     * Aplica a la politica de desalojo los accesos pendientes del buffer de lecturas y elimina las entradas
+     * caducadas. Se ejecuta tambien en cada escritura, asi que solo hace falta llamarlo para que las entradas
+     * vencidas de una cache sin escrituras liberen memoria.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Almacena un valor en la cache de forma sincrona.
+     *
+     * @param key   La clave.
+     * @param value El valor.
+     */
+    protected void store(K key, V value) {
+        store(key, value, 0L);
+    }
+
+    /**
+     * Almacena de forma sincrona, si la clave no tiene ya un valor vigente, un valor que se escribio hace un tiempo
+     * en otro sitio, como otro nivel de cache: su caducidad por escritura y su recarga cuentan desde esa escritura
+     * y no desde ahora. Como la comprobacion y la escritura se hacen con el cerrojo tomado, el valor copiado nunca
+     * sustituye a uno escrito mientras tanto.
+     *
+     * @param key      La clave.
+     * @param value    El valor.
+     * @param ageNanos Tiempo transcurrido desde que se escribio el valor, en nanosegundos.
+     * @return true si se ha almacenado, o false si la clave ya tenia un valor.
+     */
+    protected boolean storeIfAbsent(K key, V value, long ageNanos) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node != null && !(expires() && isExpired(node, ticker.getAsLong()))) {
+                return false;
+            }
+            store(key, value, ageNanos);
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void store(K key, V value, long ageNanos) {
+        evictionLock.lock();
+        try {
+            maintenance();
+            long now = timed() ? ticker.getAsLong() : 0L;
+            long writeTime = now - ageNanos;
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                update(node, value, now, writeTime);
+                return;
+            }
+            node = new Node<>(key, value);
+            node.writeTime = writeTime;
+            node.accessTime = now;
+            data.put(key, node);
+            onChange(key, null, value);
+            sketch.increment(key);
+            scheduleExpiry(node);
+            node.queue = window;
+            window.addLast(node);
+            evictEntries();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Sustituye el valor de una clave solo si sigue teniendo el valor esperado.
+     *
+     * @param key      La clave.
+     * @param oldValue El valor esperado, comparado por identidad.
+     * @param newValue El valor nuevo.
+     * @return true si se ha sustituido.
+     */
+    protected boolean replace(K key, V oldValue, V newValue) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node == null || node.value != oldValue) {
+                return false;
+            }
+            long now = timed() ? ticker.getAsLong() : 0L;
+            update(node, newValue, now, now);
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Elimina una clave solo si sigue teniendo el valor esperado.
+     *
+     * @param key   La clave.
+     * @param value El valor esperado, comparado por identidad.
+     * @return true si se ha eliminado.
+     */
+    protected boolean remove(K key, V value) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node == null || node.value != value) {
+                return false;
+            }
+            data.remove(key);
+            unlink(node);
+            onChange(key, value, null);
+            statsCounter.recordRemoval(RemovalCause.EXPLICIT);
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Se llama cada vez que cambia el valor de una clave: al insertarla, al sustituir su valor y al eliminarla por
+     * cualquier motivo. Se ejecuta con el cerrojo de la politica tomado, en el mismo orden que los cambios, por lo
+     * que las subclases pueden mantener con el indices secundarios coherentes con la cache. Debe ser rapido y no
+     * debe usar la cache.
+     *
+     * @param key      La clave.
+     * @param oldValue El valor anterior, o null si la clave es nueva.
+     * @param newValue El valor nuevo, o null si la clave se ha eliminado.
+     */
+    protected void onChange(K key, V oldValue, V newValue) {
+    }
+
+    private void update(Node<K, V> node, V value, long now, long writeTime) {
+        V oldValue = node.value;
+        node.value = value;
+        onChange(node.key, oldValue, value);
+        node.writeTime = writeTime;
+        node.accessTime = now;
+        onAccess(node);
+    }
+
+    /**
+     * Lanza la recarga de una clave si no hay otra en curso. La recarga se suscribe en boundedElastic, de modo que
+     * la lectura que la provoca devuelve el valor actual sin esperar a la carga aunque esta bloquee o se ejecute
+     * en el hilo que se suscribe, como las consultas de r2dbc-h2.
+     */
+    private void refresh(K key, V oldValue) {
+        Function<K, Mono<V>> loader = reloader;
+        if (loader == null || !refreshing.add(key)) {
+            return;
+        }
+        long start = ticker.getAsLong();
+        Mono.defer(() -> loader.apply(key))
+                .doOnSuccess(value -> {
+                    long elapsed = ticker.getAsLong() - start;
+                    if (value == null) {
+                        statsCounter.recordLoadFailure(elapsed);
+                        remove(key, oldValue);
+                    } else {
+                        statsCounter.recordLoadSuccess(elapsed);
+                        replace(key, oldValue, value);
+                    }
+                })
+                .doOnError(e -> statsCounter.recordLoadFailure(ticker.getAsLong() - start))
+                .doFinally(signal -> refreshing.remove(key))
+                .subscribeOn(Schedulers.boundedElastic())
+                // Si la recarga falla se sigue sirviendo el valor actual hasta que caduque
+                .subscribe(value -> { }, e -> { });
+    }
+
+    /**
+     * Elimina de forma sincrona una clave de la cache.
+     *
+     * @param key La clave.
+     */
+    protected void invalidate(K key) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+                onChange(key, node.value, null);
+                statsCounter.recordRemoval(RemovalCause.EXPLICIT);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean tryCleanUp() {
+        if (evictionLock.tryLock()) {
+            try {
+                maintenance();
+                return true;
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mantenimiento de la politica, siempre con el cerrojo tomado: aplica los accesos pendientes y avanza la
+     * rueda de temporizadores eliminando las entradas vencidas.
+     */
+    private void maintenance() {
+        readBuffer.drainTo(this::onAccess);
+        if (timerWheel != null) {
+            long now = ticker.getAsLong();
+            timerWheel.advance(now, node -> expire(node, now));
+        }
+    }
+
+    /**
+     * Elimina una entrada que la rueda ha entregado como vencida, salvo que un acceso o una escritura posteriores
+     * hayan retrasado su caducidad; en ese caso se actualiza su instante de caducidad para reprogramarla.
+     */
+    private boolean expire(Node<K, V> node, long now) {
+        if (!isExpired(node, now)) {
+            node.expiresAt = expiresAt(node);
+            return false;
+        }
+        evict(node, RemovalCause.EXPIRED);
+        return true;
+    }
+
+    private boolean expires() {
+        return expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0;
+    }
+
+    private boolean timed() {
+        return expires() || refreshAfterWriteNanos > 0;
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    private long expiresAt(Node<K, V> node) {
+        long writeExpiry = expireAfterWriteNanos > 0 ? node.writeTime + expireAfterWriteNanos : Long.MAX_VALUE;
+        long accessExpiry = expireAfterAccessNanos > 0 ? node.accessTime + expireAfterAccessNanos : Long.MAX_VALUE;
+        return expireAfterWriteNanos > 0 && expireAfterAccessNanos > 0
+                ? Math.min(writeExpiry, accessExpiry)
+                : expireAfterWriteNanos > 0 ? writeExpiry : accessExpiry;
+    }
+
+    private void scheduleExpiry(Node<K, V> node) {
+        if (timerWheel != null) {
+            node.expiresAt = expiresAt(node);
+            timerWheel.schedule(node);
+        }
+    }
+
+    private static long toNanos(Duration duration) {
+        if (duration == null) {
+            return 0L;
+        }
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("El tiempo de caducidad debe ser positivo: " + duration);
+        }
+        return duration.toNanos();
+    }
+
+    /**
+     * Aplica un acceso a la politica: renueva la posicion en la ventana o en la zona protegida, o promociona
+     * la entrada del periodo de prueba a la zona protegida.
+     */
+    private void onAccess(Node<K, V> node) {
+        if (node.queue == null) {
+            // La entrada se elimino despues de anotar el acceso.
+            return;
+        }
+        sketch.increment(node.key);
+        if (node.queue == probation) {
+            probation.remove(node);
+            node.queue = protectedQueue;
+            protectedQueue.addLast(node);
+            while (protectedQueue.size > protectedMax) {
+                Node<K, V> demoted = protectedQueue.pollFirst();
+                demoted.queue = probation;
+                probation.addLast(demoted);
+            }
+        } else {
+            node.queue.moveToBack(node);
+        }
+    }
+
+    /**
+     * Pasa al periodo de prueba las entradas que sobran en la ventana y, mientras la cache supere su tamano,
+     * enfrenta a la ultima entrada llegada de la ventana (candidata) con la entrada menos reciente del periodo
+     * de prueba (victima) y desaloja la de menor frecuencia estimada.
+     */
+    private void evictEntries() {
+        int candidates = 0;
+        while (window.size > windowMax) {
+            Node<K, V> node = window.pollFirst();
+            node.queue = probation;
+            probation.addLast(node);
+            candidates++;
+        }
+        while (window.size + probation.size + protectedQueue.size > maxSize) {
+            Node<K, V> victim = probation.first;
+            if (victim == null) {
+                victim = protectedQueue.first != null ? protectedQueue.first : window.first;
+                evict(victim, RemovalCause.SIZE);
+                continue;
+            }
+            boolean victimIsCandidate = probation.size <= candidates;
+            Node<K, V> candidate = candidates > 0 ? probation.last : null;
+            Node<K, V> evicted = candidate == null || candidate == victim || admit(candidate.key, victim.key)
+                    ? victim
+                    : candidate;
+            if (evicted == candidate || (evicted == victim && victimIsCandidate)) {
+                candidates--;
+            }
+            evict(evicted, RemovalCause.SIZE);
+        }
+    }
+
+    private boolean admit(K candidateKey, K victimKey) {
+        return sketch.frequency(candidateKey) > sketch.frequency(victimKey);
+    }
+
+    private void evict(Node<K, V> node, RemovalCause cause) {
+        data.remove(node.key, node);
+        unlink(node);
+        onChange(node.key, node.value, null);
+        statsCounter.recordRemoval(cause);
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.queue != null) {
+            node.queue.remove(node);
+            node.queue = null;
+        }
+        if (timerWheel != null) {
+            timerWheel.deschedule(node);
+        }
+    }
+
+    /**
+     * Entrada de la cache. Ademas de la clave y el valor guarda sus enlaces en las listas de la politica y en la
+     * rueda de temporizadores, que solo se modifican con el cerrojo tomado, y los instantes de escritura y de
+     * ultimo acceso, que las lecturas actualizan sin cerrojo.
+     */
+    static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        volatile long writeTime;
+        volatile long accessTime;
+        long expiresAt;
+        AccessQueue<K, V> queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+        Node<K, V> wheelPrev;
+        Node<K, V> wheelNext;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Lista doblemente enlazada de entradas, de la menos a la mas reciente. Solo se modifica con el cerrojo tomado.
+     */
+    private static final class AccessQueue<K, V> {
+        private Node<K, V> first;
+        private Node<K, V> last;
+        private int size;
+
+        private void addLast(Node<K, V> node) {
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            size++;
+        }
+
+        private void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        private void moveToBack(Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        private Node<K, V> pollFirst() {
+            Node<K, V> node = first;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        private void clear() {
+            first = null;
+            last = null;
+            size = 0;
+        }
+    }
+
+    /**
+     * Vista de solo lectura de las entradas de la cache.
+     */
+    private final class MapView extends AbstractMap<K, V> {
+        @Override
+        public int size() {
+            return data.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return data.isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return data.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            Node<K, V> node = data.get(key);
+            return node == null ? null : node.value;
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return data.size();
+                }
+
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    Iterator<Node<K, V>> nodes = data.values().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return nodes.hasNext();
+                        }
+
+                        @Override
+                        public Entry<K, V> next() {
+                            Node<K, V> node = nodes.next();
+                            return new SimpleImmutableEntry<>(node.key, node.value);
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -5,9 +5,12 @@ import io.r2dbc.pool.ConnectionPoolConfiguration;
 import io.r2dbc.spi.Connection;
 import io.r2dbc.spi.ConnectionFactories;
 import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
 import io.r2dbc.spi.Statement;
+import io.r2dbc.spi.ValidationDepth;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.io.BufferedReader;
@@ -27,28 +30,60 @@ public class DatabaseManager {
     private final Logger logger = LoggerFactory.getLogger(DatabaseManager.class);
     private final ConnectionFactory connectionFactory;
     private final ConnectionPool pool;
+    private final MeteredConnectionFactory meteredConnectionFactory;
     private String serverUrl;
     private String dataBaseName;
     private boolean chargeInit;
     private String conURL;
     private String initScript;
+    private int batchSize;
+    private int poolInitialSize;
+    private int poolMaxSize;
+    private Duration poolMaxIdleTime;
+    private Duration poolMaxAcquireTime;
+    private Duration poolMaxLifeTime;
+    private String poolValidationQuery;
+    private ValidationDepth poolValidationDepth;
+    private Duration poolMetricsInterval;
 
     private DatabaseManager(){
         configFromProperties();
 
         connectionFactory = ConnectionFactories.get(conURL);
 
-        ConnectionPoolConfiguration configuration = ConnectionPoolConfiguration
+        ConnectionPoolConfiguration.Builder builder = ConnectionPoolConfiguration
                 .builder(connectionFactory)
-                .maxIdleTime(Duration.ofMillis(1000))
-                .maxSize(20)
-                .build();
+                .initialSize(poolInitialSize)
+                .maxSize(poolMaxSize)
+                .maxIdleTime(poolMaxIdleTime)
+                .maxAcquireTime(poolMaxAcquireTime)
+                .maxLifeTime(poolMaxLifeTime)
+                .validationDepth(poolValidationDepth);
+        if (!poolValidationQuery.isBlank()) {
+            builder.validationQuery(poolValidationQuery);
+        }
 
-        pool = new ConnectionPool(configuration);
+        pool = new ConnectionPool(builder.build());
+        meteredConnectionFactory = new MeteredConnectionFactory(pool);
 
         if (chargeInit){
             initTables();
         }
+
+        warmUpPool();
+        if (!poolMetricsInterval.isZero()) {
+            poolStats(poolMetricsInterval).subscribe(stats -> logger.info("Estado del pool de conexiones: " + stats));
+        }
+    }
+
+    /**
+     * Abre por adelantado las conexiones iniciales del pool para que las primeras peticiones no paguen su creacion.
+     */
+    private void warmUpPool(){
+        if (poolInitialSize > 0) {
+            Integer warmed = pool.warmup().block();
+            logger.debug("Pool de conexiones precalentado con " + warmed + " conexiones");
+        }
     }
 
     /**
@@ -74,6 +109,15 @@ public class DatabaseManager {
             conURL = properties.getProperty("database.connectionUrl", serverUrl + ":" + dataBaseName + ".db");
             System.out.println(conURL);
             initScript = properties.getProperty("database.initScript", "init.sql");
+            batchSize = Integer.parseInt(properties.getProperty("database.batchSize", "500"));
+            poolInitialSize = Integer.parseInt(properties.getProperty("database.pool.initialSize", "10"));
+            poolMaxSize = Integer.parseInt(properties.getProperty("database.pool.maxSize", "20"));
+            poolMaxIdleTime = Duration.ofMillis(Long.parseLong(properties.getProperty("database.pool.maxIdleTime", "1800000")));
+            poolMaxAcquireTime = Duration.ofMillis(Long.parseLong(properties.getProperty("database.pool.maxAcquireTime", "-1")));
+            poolMaxLifeTime = Duration.ofMillis(Long.parseLong(properties.getProperty("database.pool.maxLifeTime", "-1")));
+            poolValidationQuery = properties.getProperty("database.pool.validationQuery", "");
+            poolValidationDepth = ValidationDepth.valueOf(properties.getProperty("database.pool.validationDepth", "LOCAL"));
+            poolMetricsInterval = Duration.ofMillis(Long.parseLong(properties.getProperty("database.pool.metricsInterval", "0")));
 
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -116,7 +160,8 @@ public class DatabaseManager {
                         }
                         // logger.debug(scriptContent);
                         Statement statement = connection.createStatement(scriptContent);
-                        return Mono.from(statement.execute());
+                        // Se consumen los resultados de todas las sentencias del script, no solo el de la primera
+                        return Flux.from(statement.execute()).concatMap(Result::getRowsUpdated).then();
                     } catch (IOException e) {
                         return Mono.error(e);
                     }
@@ -133,4 +178,43 @@ public class DatabaseManager {
     public ConnectionPool getConnectionPool(){
         return this.pool;
     }
+
+    /**
+     * Obtiene la factoria de conexiones que usan los repositorios. Entrega conexiones del pool
+     * y registra cuanto tarda cada peticion en obtenerlas.
+     *
+     * @return La factoria de conexiones instrumentada.
+     */
+    public ConnectionFactory getConnectionFactory(){
+        return this.meteredConnectionFactory;
+    }
+
+    /**
+     * Obtiene una instantanea del estado del pool de conexiones: conexiones prestadas, libres y pendientes,
+     * y tiempos de espera para obtener una conexion.
+     *
+     * @return Las estadisticas actuales del pool.
+     */
+    public PoolStats getPoolStats(){
+        return meteredConnectionFactory.getStats();
+    }
+
+    /**
+     * Publica periodicamente el estado del pool de conexiones.
+     *
+     * @param period El intervalo entre dos publicaciones.
+     * @return Un flujo (Flux) que emite las estadisticas del pool en cada intervalo.
+     */
+    public Flux<PoolStats> poolStats(Duration period){
+        return Flux.interval(period).map(tick -> getPoolStats());
+    }
+
+    /**
+     * Obtiene el numero de filas que se agrupan en cada lote de insercion masiva.
+     *
+     * @return El tamano de lote configurado en database.batchSize.
+     */
+    public int getBatchSize(){
+        return this.batchSize;
+    }
 }
@@ -0,0 +1,93 @@
+package org.develop.services.database;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fachada sobre el pool de conexiones que mide cuanto tarda cada peticion en obtener una conexion.
+ * Los repositorios piden sus conexiones a traves de esta clase, de modo que las estadisticas reflejan
+ * la espera real de los llamadores, incluida la cola de peticiones pendientes cuando el pool esta lleno.
+ */
+public class MeteredConnectionFactory implements ConnectionFactory {
+    private final ConnectionPool pool;
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireFailures = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+
+    /**
+     * Crea una nueva fachada sobre el pool indicado.
+     *
+     * @param pool El pool de conexiones del que se obtienen las conexiones.
+     */
+    public MeteredConnectionFactory(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Obtiene una conexion del pool y registra el tiempo de espera.
+     *
+     * @return Un mono (Mono) con la conexion obtenida.
+     */
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return pool.create()
+                    .doOnSuccess(connection -> record(System.nanoTime() - start))
+                    .doOnError(e -> acquireFailures.increment());
+        });
+    }
+
+    /**
+     * Obtiene los metadatos de la factoria de conexiones subyacente.
+     *
+     * @return Los metadatos de la factoria de conexiones.
+     */
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return pool.getMetadata();
+    }
+
+    /**
+     * Obtiene una instantanea del estado del pool y de los tiempos de obtencion de conexiones.
+     *
+     * @return Las estadisticas actuales del pool.
+     */
+    public PoolStats getStats() {
+        long count = acquireCount.sum();
+        PoolStats.PoolStatsBuilder stats = PoolStats.builder()
+                .acquireCount(count)
+                .acquireFailures(acquireFailures.sum())
+                .meanAcquireMillis(count == 0 ? 0 : nanosToMillis(acquireNanos.sum()) / count)
+                .maxAcquireMillis(nanosToMillis(maxAcquireNanos.get()));
+        pool.getMetrics().ifPresent(metrics -> fill(stats, metrics));
+        return stats.build();
+    }
+
+    private void record(long nanos) {
+        acquireCount.increment();
+        acquireNanos.add(nanos);
+        maxAcquireNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static void fill(PoolStats.PoolStatsBuilder stats, PoolMetrics metrics) {
+        stats.acquiredSize(metrics.acquiredSize())
+                .idleSize(metrics.idleSize())
+                .allocatedSize(metrics.allocatedSize())
+                .pendingAcquireSize(metrics.pendingAcquireSize())
+                .maxAllocatedSize(metrics.getMaxAllocatedSize());
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,48 @@
+package org.develop.services.database;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Instantanea del estado del pool de conexiones y de los tiempos que tardan los llamadores en obtener una conexion.
+ */
+@Data
+@Builder
+public class PoolStats {
+    /**
+     * Conexiones prestadas en este momento.
+     */
+    private int acquiredSize;
+    /**
+     * Conexiones abiertas y libres en este momento.
+     */
+    private int idleSize;
+    /**
+     * Conexiones abiertas en total (prestadas y libres).
+     */
+    private int allocatedSize;
+    /**
+     * Peticiones esperando a que quede libre una conexion.
+     */
+    private int pendingAcquireSize;
+    /**
+     * Numero maximo de conexiones que puede abrir el pool.
+     */
+    private int maxAllocatedSize;
+    /**
+     * Conexiones obtenidas desde el arranque.
+     */
+    private long acquireCount;
+    /**
+     * Peticiones de conexion que han fallado, por ejemplo por superar el tiempo maximo de espera.
+     */
+    private long acquireFailures;
+    /**
+     * Tiempo medio de espera para obtener una conexion, en milisegundos.
+     */
+    private double meanAcquireMillis;
+    /**
+     * Tiempo maximo de espera para obtener una conexion, en milisegundos.
+     */
+    private double maxAcquireMillis;
+}
@@ -0,0 +1,37 @@
+package org.develop.services.files;
+
+/**
+ * Formatos de las copias de seguridad de Funkos.
+ */
+public enum BackupFormat {
+    /**
+     * Array JSON legible, con un objeto por Funko.
+     */
+    JSON,
+    /**
+     * Formato binario de FunkoBinaryWriter, con campos de ancho fijo y bloques con suma de comprobacion.
+     */
+    BINARY,
+    /**
+     * Formato binario comprimido con GZIP.
+     */
+    BINARY_GZIP;
+
+    /**
+     * Elige el formato de una copia de seguridad a partir de la extension de su archivo:
+     * ".bin" es binario, ".gz" es binario comprimido y cualquier otra extension es JSON.
+     *
+     * @param fileName El nombre del archivo.
+     * @return El formato correspondiente a la extension.
+     */
+    public static BackupFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(".gz")) {
+            return BINARY_GZIP;
+        }
+        if (name.endsWith(".bin")) {
+            return BINARY;
+        }
+        return JSON;
+    }
+}
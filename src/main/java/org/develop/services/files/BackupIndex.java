@@ -0,0 +1,92 @@
+package org.develop.services.files;
+
+import org.develop.model.BackupInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Indice en disco de una cadena de copias de seguridad: una copia completa seguida de sus copias incrementales,
+ * en el orden en que se hicieron. Cada linea es "archivo;FULL|INCREMENTAL;since;until", con las fechas en ISO-8601
+ * y since vacio en la copia completa.
+ * El indice se reescribe en un archivo temporal que despues sustituye al anterior, asi que una caida a mitad de
+ * escritura no pierde la cadena.
+ */
+public class BackupIndex {
+    private static final String FULL = "FULL";
+    private static final String INCREMENTAL = "INCREMENTAL";
+    private final Logger logger = LoggerFactory.getLogger(BackupIndex.class);
+    private final Path file;
+
+    /**
+     * Crea el indice de una cadena de copias.
+     *
+     * @param file El archivo del indice.
+     */
+    public BackupIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Lee las copias de la cadena.
+     *
+     * @return Las copias en el orden en que se hicieron, o una lista vacia si la cadena no existe.
+     * @throws IOException Si no se puede leer el indice o una linea no es valida.
+     */
+    public List<BackupInfo> load() throws IOException {
+        List<BackupInfo> backups = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return backups;
+        }
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] fields = line.split(";", -1);
+            if (fields.length != 4 || !(FULL.equals(fields[1]) || INCREMENTAL.equals(fields[1]))) {
+                throw new IOException("Linea no valida en el indice de copias de seguridad " + file + ": " + line);
+            }
+            backups.add(BackupInfo.builder()
+                    .file(fields[0])
+                    .incremental(INCREMENTAL.equals(fields[1]))
+                    .since(fields[2].isEmpty() ? null : LocalDateTime.parse(fields[2]))
+                    .until(LocalDateTime.parse(fields[3]))
+                    .build());
+        }
+        return backups;
+    }
+
+    /**
+     * Anade una copia al final de la cadena. Una copia completa empieza una cadena nueva y sustituye a las anteriores.
+     *
+     * @param backup La copia.
+     * @throws IOException Si no se puede escribir el indice.
+     */
+    public void append(BackupInfo backup) throws IOException {
+        List<BackupInfo> backups = backup.isIncremental() ? load() : new ArrayList<>();
+        backups.add(backup);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (BackupInfo info : backups) {
+                writer.write(info.getFile() + ";" + (info.isIncremental() ? INCREMENTAL : FULL) + ";"
+                        + (info.getSince() == null ? "" : info.getSince()) + ";" + info.getUntil());
+                writer.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Anadida la copia " + backup.getFile() + " al indice " + file);
+    }
+}
@@ -28,4 +28,57 @@ public interface BackupManager <T>{
      * @return Un mono (Mono) que indica si la escritura fue exitosa (true) o no (false).
      */
     Mono<Boolean> writeFile(String path, List<T> list);
+
+    /**
+     * Escribe un flujo de datos en un archivo a medida que se reciben, sin reunirlos antes en memoria.
+     *
+     * @param path  La ruta del archivo donde se escribiran los datos.
+     * @param items El flujo de elementos de tipo T que se escribiran en el archivo.
+     * @return Un mono (Mono) que indica si la escritura fue exitosa (true) o no (false).
+     */
+    Mono<Boolean> writeFile(String path, Flux<T> items);
+
+    /**
+     * Escribe un flujo de datos en un archivo del formato indicado a medida que se reciben.
+     *
+     * @param path   La ruta del archivo donde se escribiran los datos.
+     * @param items  El flujo de elementos de tipo T que se escribiran en el archivo.
+     * @param format El formato del archivo.
+     * @return Un mono (Mono) que indica si la escritura fue exitosa (true) o no (false).
+     */
+    Mono<Boolean> writeFile(String path, Flux<T> items, BackupFormat format);
+
+    /**
+     * Lee una copia de seguridad binaria, comprimida o no, en una secuencia reactiva.
+     *
+     * @param path La ruta del archivo desde donde se leeran los datos.
+     * @return Una secuencia reactiva que emite los elementos de tipo T de la copia de seguridad.
+     */
+    Flux<T> readBackup(String path);
+
+    /**
+     * Escribe una copia de seguridad incremental con los datos modificados y las marcas de borrado.
+     *
+     * @param path    La ruta del archivo donde se escribiran los datos.
+     * @param changed El flujo de elementos de tipo T creados o modificados.
+     * @param deleted El flujo de marcas de borrado.
+     * @return Un mono (Mono) que indica si la escritura fue exitosa (true) o no (false).
+     */
+    Mono<Boolean> writeIncremental(String path, Flux<T> changed, Flux<T> deleted);
+
+    /**
+     * Lee las marcas de borrado de una copia de seguridad incremental.
+     *
+     * @param path La ruta del archivo desde donde se leeran los datos.
+     * @return Una secuencia reactiva con las marcas de borrado.
+     */
+    Flux<T> readDeleted(String path);
+
+    /**
+     * Comprueba una copia de seguridad binaria entera sin devolver sus datos.
+     *
+     * @param path La ruta del archivo que se comprueba.
+     * @return Un mono (Mono) con el numero de registros del archivo, o un error si esta danado o cortado.
+     */
+    Mono<Long> verifyBackup(String path);
 }
@@ -2,29 +2,47 @@ package org.develop.services.files;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import org.develop.adapters.LocalDateAdapter;
 import org.develop.adapters.LocalDateTimeAdapter;
 import org.develop.model.Funko;
 import org.develop.model.Modelo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
 
 /**
  * Implementacion de la interfaz BackupManager para leer y escribir datos de respaldo en archivos.
  */
 public class BackupManagerImpl implements BackupManager<Funko> {
+    /**
+     * Tamano minimo de cada trozo en la lectura en paralelo, para que dividir el archivo compense.
+     */
+    public static final long MIN_CHUNK_BYTES = 1024 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .setPrettyPrinting()
+            .create();
     private static BackupManagerImpl instance;
     private Logger logger = LoggerFactory.getLogger(BackupManagerImpl.class);
 
@@ -45,6 +63,9 @@ public class BackupManagerImpl implements BackupManager<Funko> {
 
     /**
      * Lee un archivo CSV que contiene datos de Funko Pops y los convierte en un flujo de objetos Funko.
+     * El archivo se proyecta en memoria y se decodifica directamente desde sus bytes con FunkoCsvReader. Las filas
+     * se leen a medida que se piden, asi que el flujo respeta la contrapresion y la memoria usada no depende del
+     * tamano del archivo.
      *
      * @param nomFile Nombre del archivo CSV a leer.
      * @return Un flujo (stream) de objetos Funko.
@@ -52,22 +73,112 @@ public class BackupManagerImpl implements BackupManager<Funko> {
     @Override
     public Flux<Funko> readFile(String nomFile) {
         logger.debug("Leyendo fichero CSV");
-        String path = Paths.get("").toAbsolutePath().toString() + File.separator + "data" + File.separator + nomFile;
-        return Flux.create(sink->{
-        try(BufferedReader reader =new BufferedReader(new FileReader(path))){
-                String line;
-                String[] lineas;
-                reader.readLine();
-                while ((line = reader.readLine()) != null){
-                        Funko fk = Funko.builder().build();
-                        fk.setFunko(line);
-                    sink.next(fk);
-                }
-                sink.complete();
-        }catch (Exception e){
-                System.out.println(e.getMessage());
+        Path path = Paths.get("").toAbsolutePath().resolve("data").resolve(nomFile);
+        return read(() -> FunkoCsvReader.open(path));
+    }
+
+    /**
+     * Lee un archivo CSV de Funkos en paralelo con todos los nucleos disponibles.
+     *
+     * @param nomFile Nombre del archivo CSV a leer.
+     * @param ordered true para emitir los Funkos en el orden del archivo, false para emitirlos segun se leen.
+     * @return Un flujo (stream) de objetos Funko.
+     * @see #readFileParallel(Path, int, boolean)
+     */
+    public Flux<Funko> readFileParallel(String nomFile, boolean ordered) {
+        Path path = Paths.get("").toAbsolutePath().resolve("data").resolve(nomFile);
+        return readFileParallel(path, Runtime.getRuntime().availableProcessors(), ordered);
+    }
+
+    /**
+     * Lee un archivo CSV de Funkos en paralelo. El archivo se divide en trozos de al menos MIN_CHUNK_BYTES que
+     * empiezan y terminan en un limite de linea, y cada trozo se decodifica con su propio FunkoCsvReader en un
+     * hilo de Schedulers.parallel().
+     * En modo ordenado los trozos se leen a la vez pero sus Funkos se emiten trozo a trozo, en el orden del
+     * archivo; en modo no ordenado (un ParallelFlux con un rail por hilo) cada Funko se emite en cuanto se lee,
+     * sin esperar a los trozos anteriores, y es mas rapido.
+     *
+     * @param path        Ruta del archivo CSV a leer.
+     * @param parallelism Numero de trozos que se leen a la vez.
+     * @param ordered     true para emitir los Funkos en el orden del archivo, false para emitirlos segun se leen.
+     * @return Un flujo (stream) de objetos Funko.
+     */
+    public Flux<Funko> readFileParallel(Path path, int parallelism, boolean ordered) {
+        logger.debug("Leyendo fichero CSV en paralelo con " + parallelism + " hilos");
+        return Flux.using(
+                () -> FileChannel.open(path, StandardOpenOption.READ),
+                channel -> {
+                    try {
+                        return readChunks(channel, parallelism, ordered);
+                    } catch (IOException e) {
+                        logger.error("Error leyendo fichero CSV: " + e.getMessage(), e);
+                        return Flux.error(e);
+                    }
+                },
+                channel -> {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        logger.error("Error cerrando fichero: " + e.getMessage(), e);
+                    }
+                });
+    }
+
+    private Flux<Funko> readChunks(FileChannel channel, int parallelism, boolean ordered) throws IOException {
+        long start = FunkoCsvReader.firstLineEnd(channel, FunkoCsvReader.WINDOW_SIZE);
+        long size = channel.size();
+        int chunks = (int) Math.max(1, Math.min((long) parallelism * CHUNKS_PER_THREAD, (size - start) / MIN_CHUNK_BYTES));
+        long[] boundaries = FunkoCsvReader.split(channel, start, size, chunks);
+        Flux<Integer> ranges = Flux.range(0, boundaries.length - 1);
+        if (ordered) {
+            return ranges.flatMapSequential(i -> readRange(channel, boundaries[i], boundaries[i + 1])
+                    .subscribeOn(Schedulers.parallel()), parallelism);
         }
-        });
+        return ranges.parallel(parallelism)
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> readRange(channel, boundaries[i], boundaries[i + 1]))
+                .sequential();
+    }
+
+    private Flux<Funko> readRange(FileChannel channel, long start, long end) {
+        return read(() -> new FunkoCsvReader(channel, start, end, FunkoCsvReader.WINDOW_SIZE));
+    }
+
+    /**
+     * Crea un flujo que abre un lector al suscribirse, emite sus Funkos a medida que se piden y lo cierra al
+     * terminar o cancelarse.
+     */
+    private Flux<Funko> read(Callable<? extends FunkoReader> open) {
+        return Flux.generate(
+                () -> {
+                    try {
+                        return open.call();
+                    } catch (Exception e) {
+                        logger.error("Error leyendo fichero: " + e.getMessage(), e);
+                        throw Exceptions.propagate(e);
+                    }
+                },
+                (reader, sink) -> {
+                    try {
+                        Funko fk = reader.next();
+                        if (fk == null) {
+                            sink.complete();
+                        } else {
+                            sink.next(fk);
+                        }
+                    } catch (Exception e) {
+                        logger.error("Error leyendo fichero: " + e.getMessage(), e);
+                        sink.error(e);
+                    }
+                    return reader;
+                },
+                reader -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        logger.error("Error cerrando fichero: " + e.getMessage(), e);
+                    }
+                });
     }
 
     /**
@@ -79,24 +190,212 @@ public class BackupManagerImpl implements BackupManager<Funko> {
      */
     @Override
     public Mono<Boolean> writeFile(String nomFile, List<Funko> list) {
-        logger.debug("Escribiendo fichero JSON");
-        String path = Paths.get("").toAbsolutePath().toString() + File.separator + "data" + File.separator + nomFile;
-        return Mono.create(sink ->{
-                   Gson gs = new GsonBuilder()
-                            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
-                            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                            .setPrettyPrinting()
-                            .create();
-
-                    boolean success = false;
-                    try (FileWriter writer = new FileWriter(path)) {
-                        gs.toJson(list, writer);
-                        success = true;
-                    } catch (Exception e) {
-                        logger.error("Error: "+e.getMessage(), e);
-                }
-                    sink.success(success);
-                }
-                );
+        return writeFile(nomFile, Flux.fromIterable(list));
+    }
+
+    /**
+     * Escribe un flujo de objetos Funko en una copia de seguridad cuyo formato se elige por la extension del
+     * archivo (ver BackupFormat.fromFileName).
+     *
+     * @param nomFile Nombre del archivo a escribir.
+     * @param funkos  Flujo de objetos Funko a escribir en el archivo.
+     * @return Un mono que indica si la escritura se realizo con exito (true) o no (false).
+     */
+    @Override
+    public Mono<Boolean> writeFile(String nomFile, Flux<Funko> funkos) {
+        return writeFile(nomFile, funkos, BackupFormat.fromFileName(nomFile));
+    }
+
+    /**
+     * Escribe un flujo de objetos Funko en una copia de seguridad del formato indicado a medida que llegan. Cada
+     * Funko se escribe en cuanto se recibe, en JSON con un JsonWriter o en binario con FunkoBinaryWriter, sobre
+     * un flujo con buffer, de modo que la escritura empieza con el primer Funko y la memoria usada no depende del
+     * numero de Funkos. El flujo se consume en boundedElastic, ya que la escritura bloquea.
+     * La copia se escribe en un archivo temporal que solo sustituye al archivo final si se escribe entera, asi que
+     * un error a mitad de la copia no deja un respaldo a medias ni borra el anterior.
+     *
+     * @param nomFile Nombre del archivo a escribir.
+     * @param funkos  Flujo de objetos Funko a escribir en el archivo.
+     * @param format  Formato de la copia de seguridad.
+     * @return Un mono que indica si la escritura se realizo con exito (true) o no (false).
+     */
+    @Override
+    public Mono<Boolean> writeFile(String nomFile, Flux<Funko> funkos, BackupFormat format) {
+        logger.debug("Escribiendo copia de seguridad " + format);
+        return write(nomFile, tmp -> openWriter(tmp, format), writer -> writeAll(funkos, writer::write));
+    }
+
+    /**
+     * Escribe una copia de seguridad incremental binaria: primero los Funkos modificados y despues las marcas de
+     * borrado, cada uno en cuanto se recibe y, como en writeFile, en un archivo temporal que solo sustituye al
+     * final si se escribe entero. Se comprime con GZIP si el nombre termina en ".gz".
+     *
+     * @param nomFile Nombre del archivo a escribir.
+     * @param changed Flujo de Funkos creados o modificados.
+     * @param deleted Flujo de marcas de borrado.
+     * @return Un mono que indica si la escritura se realizo con exito (true) o no (false).
+     */
+    @Override
+    public Mono<Boolean> writeIncremental(String nomFile, Flux<Funko> changed, Flux<Funko> deleted) {
+        logger.debug("Escribiendo copia de seguridad incremental");
+        boolean compress = BackupFormat.fromFileName(nomFile) == BackupFormat.BINARY_GZIP;
+        return write(nomFile, tmp -> FunkoBinaryWriter.create(tmp, compress),
+                writer -> writeAll(changed, writer::write)
+                        .flatMap(funkos -> writeAll(deleted, writer::writeDeleted).map(tombstones -> funkos + tombstones)));
+    }
+
+    /**
+     * Escribe una copia de seguridad en un archivo temporal y, si se escribe entera, lo mueve de forma atomica al
+     * archivo final. Cada escritura crea su propio archivo temporal, de modo que dos copias simultaneas con el
+     * mismo nombre no se pisan. El flujo se consume en boundedElastic, ya que la escritura bloquea.
+     */
+    private <W extends FunkoWriter> Mono<Boolean> write(String nomFile, WriterFactory<W> open, Function<W, Mono<Long>> body) {
+        Path path = Paths.get("").toAbsolutePath().resolve("data").resolve(nomFile);
+        return Mono.defer(() -> {
+                    Path tmp;
+                    try {
+                        Files.createDirectories(path.getParent());
+                        tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+                    } catch (IOException e) {
+                        return Mono.error(e);
+                    }
+                    return Mono.using(
+                            () -> {
+                                try {
+                                    return open.create(tmp);
+                                } catch (IOException | RuntimeException e) {
+                                    Files.deleteIfExists(tmp);
+                                    throw e;
+                                }
+                            },
+                            writer -> body.apply(writer)
+                                    .map(count -> {
+                                        try {
+                                            writer.finish();
+                                            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                                        } catch (IOException e) {
+                                            throw Exceptions.propagate(e);
+                                        }
+                                        logger.debug("Escritos " + count + " registros en " + path);
+                                        return true;
+                                    }),
+                            writer -> {
+                                try {
+                                    writer.close();
+                                } catch (IOException e) {
+                                    // La copia se ha quedado a medias por un error que ya se ha registrado
+                                }
+                                try {
+                                    Files.deleteIfExists(tmp);
+                                } catch (IOException e) {
+                                    logger.warn("No se ha podido borrar el archivo temporal " + tmp);
+                                }
+                            });
+                })
+                .onErrorResume(e -> {
+                    logger.error("Error: " + e.getMessage(), e);
+                    return Mono.just(false);
+                });
+    }
+
+    private Mono<Long> writeAll(Flux<Funko> funkos, FunkoConsumer consumer) {
+        return funkos.publishOn(Schedulers.boundedElastic())
+                .doOnNext(funko -> {
+                    try {
+                        consumer.accept(funko);
+                    } catch (IOException e) {
+                        throw Exceptions.propagate(e);
+                    }
+                })
+                .count();
+    }
+
+    /**
+     * Lee una copia de seguridad binaria, comprimida o no, y la convierte en un flujo de objetos Funko. Los Funkos
+     * se leen bloque a bloque a medida que se piden, comprobando la suma de cada bloque, y el flujo termina con un
+     * error si el archivo esta corrupto o cortado.
+     *
+     * @param nomFile Nombre del archivo a leer.
+     * @return Un flujo (stream) de objetos Funko.
+     */
+    @Override
+    public Flux<Funko> readBackup(String nomFile) {
+        logger.debug("Leyendo copia de seguridad binaria");
+        Path path = Paths.get("").toAbsolutePath().resolve("data").resolve(nomFile);
+        return read(() -> FunkoBinaryReader.open(path));
+    }
+
+    /**
+     * Lee las marcas de borrado de una copia de seguridad incremental binaria, comprimida o no. Cada marca es un
+     * Funko con solo el ID, el UUID y la fecha de borrado como updated_at.
+     *
+     * @param nomFile Nombre del archivo a leer.
+     * @return Un flujo (stream) con las marcas de borrado.
+     */
+    @Override
+    public Flux<Funko> readDeleted(String nomFile) {
+        logger.debug("Leyendo marcas de borrado de la copia de seguridad");
+        Path path = Paths.get("").toAbsolutePath().resolve("data").resolve(nomFile);
+        return read(() -> FunkoBinaryReader.openDeleted(path));
+    }
+
+    /**
+     * Comprueba una copia de seguridad binaria, comprimida o no, sin decodificar sus registros: su cabecera, la suma
+     * de cada bloque y el total de registros del final.
+     *
+     * @param nomFile Nombre del archivo a comprobar.
+     * @return Un mono con el numero de registros del archivo, o un error si esta corrupto o cortado.
+     */
+    @Override
+    public Mono<Long> verifyBackup(String nomFile) {
+        logger.debug("Comprobando copia de seguridad binaria " + nomFile);
+        Path path = Paths.get("").toAbsolutePath().resolve("data").resolve(nomFile);
+        return Mono.fromCallable(() -> FunkoBinaryReader.verify(path))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private FunkoWriter openWriter(Path file, BackupFormat format) throws IOException {
+        if (format == BackupFormat.JSON) {
+            return new JsonFunkoWriter(GSON.newJsonWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8)));
+        }
+        return FunkoBinaryWriter.create(file, format == BackupFormat.BINARY_GZIP);
+    }
+
+    /**
+     * Escribe los Funkos como elementos de un array JSON.
+     */
+    private static final class JsonFunkoWriter implements FunkoWriter {
+        private final JsonWriter writer;
+
+        private JsonFunkoWriter(JsonWriter writer) throws IOException {
+            this.writer = writer;
+            writer.beginArray();
+        }
+
+        @Override
+        public void write(Funko funko) {
+            GSON.toJson(funko, Funko.class, writer);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.endArray();
+            writer.close();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface WriterFactory<W extends FunkoWriter> {
+        W create(Path file) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface FunkoConsumer {
+        void accept(Funko funko) throws IOException;
     }
 }
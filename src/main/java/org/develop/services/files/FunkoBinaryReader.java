@@ -0,0 +1,205 @@
+package org.develop.services.files;
+
+import org.develop.adapters.FunkoBinaryAdapter;
+import org.develop.model.Funko;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Lector de copias de seguridad de Funkos en el formato binario de FunkoBinaryWriter, versiones 1 y 2. Cada bloque
+ * se lee entero y se comprueba su suma CRC32C antes de decodificar sus registros, y al final se comprueba que el
+ * total de registros coincide con el escrito, de modo que un archivo corrupto o cortado produce un error en lugar
+ * de datos erroneos. Un lector devuelve los Funkos o las marcas de borrado del archivo; los bloques del otro tipo
+ * se comprueban pero no se decodifican.
+ * Los archivos comprimidos con GZIP se reconocen por sus primeros bytes. Un lector solo puede usarse desde un hilo
+ * a la vez.
+ */
+public class FunkoBinaryReader implements FunkoReader {
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+
+    private final DataInputStream in;
+    private final byte wanted;
+    private short version;
+    private final CRC32C checksum = new CRC32C();
+    private ByteBuffer block = ByteBuffer.allocate(0);
+    private int blockRemaining;
+    private long blocks;
+    private long count;
+    private boolean finished;
+
+    /**
+     * Abre una copia de seguridad binaria, comprimida o no, para leer sus Funkos y comprueba su cabecera.
+     *
+     * @param file El archivo.
+     * @return El lector del archivo.
+     * @throws IOException Si no se puede abrir el archivo o no es una copia de seguridad binaria.
+     */
+    public static FunkoBinaryReader open(Path file) throws IOException {
+        return open(file, FunkoBinaryWriter.BLOCK_FUNKOS);
+    }
+
+    /**
+     * Abre una copia de seguridad binaria, comprimida o no, para leer sus marcas de borrado y comprueba su cabecera.
+     *
+     * @param file El archivo.
+     * @return El lector del archivo.
+     * @throws IOException Si no se puede abrir el archivo o no es una copia de seguridad binaria.
+     */
+    public static FunkoBinaryReader openDeleted(Path file) throws IOException {
+        return open(file, FunkoBinaryWriter.BLOCK_DELETED);
+    }
+
+    /**
+     * Lee una copia de seguridad binaria entera comprobando su cabecera, la suma de cada bloque y el total de
+     * registros del final, sin decodificar los registros.
+     *
+     * @param file El archivo.
+     * @return El numero de registros del archivo.
+     * @throws IOException Si no se puede leer el archivo, esta corrupto o esta cortado.
+     */
+    public static long verify(Path file) throws IOException {
+        // Ningun bloque de datos es de tipo BLOCK_END, asi que todos se comprueban y se saltan
+        try (FunkoBinaryReader reader = open(file, FunkoBinaryWriter.BLOCK_END)) {
+            reader.next();
+            return reader.getCount();
+        }
+    }
+
+    private static FunkoBinaryReader open(Path file, byte wanted) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), FunkoBinaryWriter.BLOCK_SIZE);
+        try {
+            in.mark(2);
+            boolean compressed = in.read() == GZIP_MAGIC_1 && in.read() == GZIP_MAGIC_2;
+            in.reset();
+            return new FunkoBinaryReader(compressed ? new GZIPInputStream(in, FunkoBinaryWriter.BLOCK_SIZE) : in, wanted);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Crea un lector de los Funkos de un flujo de entrada sin comprimir y comprueba la cabecera. El flujo se
+     * cierra al cerrar el lector.
+     *
+     * @param in El flujo de entrada.
+     * @throws IOException Si no se puede leer la cabecera o no es la de una copia de seguridad binaria.
+     */
+    public FunkoBinaryReader(InputStream in) throws IOException {
+        this(in, FunkoBinaryWriter.BLOCK_FUNKOS);
+    }
+
+    private FunkoBinaryReader(InputStream in, byte wanted) throws IOException {
+        this.in = new DataInputStream(in);
+        this.wanted = wanted;
+        try {
+            if (this.in.readInt() != FunkoBinaryWriter.MAGIC) {
+                throw new IOException("El archivo no es una copia de seguridad binaria de Funkos");
+            }
+            version = this.in.readShort();
+            if (version < 1 || version > FunkoBinaryWriter.VERSION) {
+                throw new IOException("Version de copia de seguridad no soportada: " + version);
+            }
+        } catch (EOFException e) {
+            throw new IOException("El archivo no es una copia de seguridad binaria de Funkos", e);
+        }
+    }
+
+    /**
+     * Lee el siguiente Funko, o la siguiente marca de borrado, de la copia de seguridad.
+     *
+     * @return El Funko leido, o null si no quedan.
+     * @throws IOException Si no se puede leer el archivo, un bloque esta corrupto o el archivo esta cortado.
+     */
+    @Override
+    public Funko next() throws IOException {
+        while (blockRemaining == 0) {
+            if (finished || !readBlock()) {
+                return null;
+            }
+        }
+        Funko funko = FunkoBinaryAdapter.read(block);
+        blockRemaining--;
+        if (blockRemaining == 0 && block.hasRemaining()) {
+            throw new IOException("El bloque " + blocks + " tiene bytes de mas");
+        }
+        return funko;
+    }
+
+    /**
+     * Obtiene el numero de registros de los bloques leidos hasta ahora, de cualquier tipo.
+     *
+     * @return El numero de registros.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Cierra el archivo.
+     *
+     * @throws IOException Si no se puede cerrar el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Lee y comprueba bloques hasta encontrar uno del tipo buscado, o el final del archivo.
+     *
+     * @return true si se ha leido un bloque del tipo buscado, o false si se ha llegado al final del archivo.
+     */
+    private boolean readBlock() throws IOException {
+        try {
+            while (true) {
+                byte type = version == 1 ? FunkoBinaryWriter.BLOCK_FUNKOS : in.readByte();
+                int blockCount = type == FunkoBinaryWriter.BLOCK_END ? 0 : in.readInt();
+                if (blockCount == 0) {
+                    long total = in.readLong();
+                    if (total != count) {
+                        throw new IOException("La copia de seguridad deberia tener " + total + " registros y tiene " + count);
+                    }
+                    finished = true;
+                    return false;
+                }
+                int length = in.readInt();
+                if (type != FunkoBinaryWriter.BLOCK_FUNKOS && type != FunkoBinaryWriter.BLOCK_DELETED
+                        || blockCount < 0 || length <= 0 || length > FunkoBinaryWriter.MAX_BLOCK_SIZE) {
+                    throw new IOException("Cabecera de bloque no valida tras el bloque " + blocks);
+                }
+                if (block.capacity() < length) {
+                    block = ByteBuffer.allocate(FunkoBinaryWriter.MAX_BLOCK_SIZE);
+                }
+                block.clear().limit(length);
+                in.readFully(block.array(), 0, length);
+                checksum.reset();
+                if (version > 1) {
+                    checksum.update(type);
+                }
+                checksum.update(block.array(), 0, length);
+                blocks++;
+                if (in.readInt() != (int) checksum.getValue()) {
+                    throw new IOException("Suma de comprobacion incorrecta en el bloque " + blocks);
+                }
+                count += blockCount;
+                if (type == wanted) {
+                    blockRemaining = blockCount;
+                    return true;
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("La copia de seguridad esta cortada tras el bloque " + blocks, e);
+        }
+    }
+}
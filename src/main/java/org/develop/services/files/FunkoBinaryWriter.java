@@ -0,0 +1,195 @@
+package org.develop.services.files;
+
+import org.develop.adapters.FunkoBinaryAdapter;
+import org.develop.model.Funko;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Escritor de copias de seguridad de Funkos en formato binario. Cada Funko se codifica con FunkoBinaryAdapter
+ * (campos de ancho fijo, UUID como dos long, fechas en dias desde 1970 y nombre precedido de su longitud).
+ * El archivo empieza con una cabecera (MAGIC y VERSION) seguida de bloques de hasta BLOCK_SIZE bytes, cada uno con
+ * su tipo, su numero de registros, su longitud y una suma CRC32C de su tipo y su contenido, y termina con un bloque
+ * de tipo BLOCK_END seguido del total de registros escritos, de modo que al leerlo se detectan tanto los bloques
+ * corruptos como los archivos cortados.
+ * Los bloques BLOCK_FUNKOS contienen Funkos y los BLOCK_DELETED marcas de borrado de las copias incrementales
+ * (Funkos con solo el ID, el UUID y la fecha de borrado como updated_at). La version 1 no tenia tipo de bloque y
+ * solo contenia Funkos.
+ * Opcionalmente todo el archivo se comprime con GZIP.
+ */
+public class FunkoBinaryWriter implements FunkoWriter {
+    /**
+     * Primeros bytes de una copia de seguridad binaria ("FNKB").
+     */
+    public static final int MAGIC = 0x464E4B42;
+    /**
+     * Version del formato que escribe este escritor.
+     */
+    public static final short VERSION = 2;
+    /**
+     * Tipo del bloque que marca el final del archivo.
+     */
+    public static final byte BLOCK_END = 0;
+    /**
+     * Tipo de los bloques de Funkos.
+     */
+    public static final byte BLOCK_FUNKOS = 1;
+    /**
+     * Tipo de los bloques de marcas de borrado.
+     */
+    public static final byte BLOCK_DELETED = 2;
+    /**
+     * Tamano a partir del cual se cierra un bloque.
+     */
+    public static final int BLOCK_SIZE = 64 * 1024;
+    /**
+     * Tamano maximo de un bloque: un bloque casi lleno mas el Funko mas grande posible.
+     */
+    public static final int MAX_BLOCK_SIZE = BLOCK_SIZE + FunkoBinaryAdapter.FIXED_SIZE + FunkoBinaryAdapter.MAX_NAME_BYTES;
+
+    private final DataOutputStream out;
+    private final ByteBuffer block = ByteBuffer.allocate(MAX_BLOCK_SIZE);
+    private final CRC32C checksum = new CRC32C();
+    private byte blockType = BLOCK_FUNKOS;
+    private int blockCount;
+    private long count;
+
+    /**
+     * Crea un archivo de copia de seguridad binaria y escribe su cabecera.
+     *
+     * @param file     El archivo.
+     * @param compress Si se comprime con GZIP.
+     * @return El escritor del archivo.
+     * @throws IOException Si no se puede crear el archivo.
+     */
+    public static FunkoBinaryWriter create(Path file, boolean compress) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        try {
+            return new FunkoBinaryWriter(compress ? new FastGZIPOutputStream(out) : out);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Crea un escritor sobre un flujo de salida y escribe la cabecera. El flujo se cierra al cerrar el escritor.
+     *
+     * @param out El flujo de salida.
+     * @throws IOException Si no se puede escribir la cabecera.
+     */
+    public FunkoBinaryWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, BLOCK_SIZE));
+        this.out.writeInt(MAGIC);
+        this.out.writeShort(VERSION);
+    }
+
+    /**
+     * Anade un Funko al bloque actual y escribe el bloque si ya ha alcanzado BLOCK_SIZE bytes.
+     *
+     * @param funko El Funko a escribir.
+     * @throws IOException              Si no se puede escribir el archivo.
+     * @throws IllegalArgumentException Si el nombre del Funko es demasiado largo para codificarlo.
+     */
+    @Override
+    public void write(Funko funko) throws IOException {
+        append(BLOCK_FUNKOS, funko);
+    }
+
+    /**
+     * Anade la marca de borrado de un Funko. Solo se guardan su ID, su UUID y su updated_at, que es la fecha
+     * de borrado.
+     *
+     * @param deleted La marca de borrado.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public void writeDeleted(Funko deleted) throws IOException {
+        append(BLOCK_DELETED, Funko.builder()
+                .id(deleted.getId())
+                .uuid(deleted.getUuid())
+                .created_at(null)
+                .updated_at(deleted.getUpdated_at())
+                .build());
+    }
+
+    /**
+     * Escribe el ultimo bloque y el final del archivo, y lo cierra.
+     *
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    @Override
+    public void finish() throws IOException {
+        if (blockCount > 0) {
+            writeBlock();
+        }
+        out.writeByte(BLOCK_END);
+        out.writeLong(count);
+        out.close();
+    }
+
+    /**
+     * Obtiene el numero de Funkos escritos.
+     *
+     * @return El numero de Funkos escritos.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Cierra el archivo. Si no se ha llamado antes a finish, el archivo queda incompleto.
+     *
+     * @throws IOException Si no se puede cerrar el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void append(byte type, Funko funko) throws IOException {
+        if (type != blockType && blockCount > 0) {
+            writeBlock();
+        }
+        blockType = type;
+        FunkoBinaryAdapter.write(block, funko);
+        blockCount++;
+        count++;
+        if (block.position() >= BLOCK_SIZE) {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        int length = block.position();
+        checksum.reset();
+        checksum.update(blockType);
+        checksum.update(block.array(), 0, length);
+        out.writeByte(blockType);
+        out.writeInt(blockCount);
+        out.writeInt(length);
+        out.write(block.array(), 0, length);
+        out.writeInt((int) checksum.getValue());
+        block.clear();
+        blockCount = 0;
+    }
+
+    /**
+     * GZIP con el nivel de compresion mas rapido: los UUID aleatorios no se comprimen, asi que los niveles altos
+     * apenas reducen el tamano y multiplican el tiempo de escritura.
+     */
+    private static final class FastGZIPOutputStream extends GZIPOutputStream {
+        private FastGZIPOutputStream(OutputStream out) throws IOException {
+            super(out, BLOCK_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package org.develop.services.files;
+
+import org.develop.model.Funko;
+import org.develop.model.Modelo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Lector de archivos CSV de Funkos (COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO) que trabaja directamente sobre
+ * los bytes del archivo proyectado en memoria (FileChannel.map), sin crear un String por linea.
+ * Los campos se decodifican en su sitio: el UUID, el precio y la fecha se calculan a partir de los bytes y el
+ * modelo se compara con los nombres de Modelo ya codificados; el unico String que se crea por fila es el nombre.
+ * Los formatos poco habituales (precios con exponente o muchas cifras, fechas que no son yyyy-MM-dd) se
+ * delegan en Double.parseDouble y DateTimeFormatter, de modo que el resultado es el mismo que el de Funko.setFunko.
+ * Los archivos de mas de 2 GB se recorren en ventanas de WINDOW_SIZE bytes, cada una terminada en un salto de linea.
+ * Un lector solo puede usarse desde un hilo a la vez.
+ */
+public class FunkoCsvReader implements FunkoReader {
+    /**
+     * Tamano por defecto de cada ventana del archivo proyectada en memoria.
+     */
+    public static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int FIELDS = 5;
+    private static final int UUID_LENGTH = 36;
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final Modelo[] MODELOS = Modelo.values();
+    private static final byte[][] MODELO_NAMES = new byte[MODELOS.length][];
+
+    static {
+        for (int i = 0; i < MODELOS.length; i++) {
+            MODELO_NAMES[i] = MODELOS[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long end;
+    private final int windowSize;
+    private final int[] fieldStart = new int[FIELDS];
+    private final int[] fieldEnd = new int[FIELDS];
+    private final long[] groups = new long[5];
+    private byte[] scratch = new byte[256];
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLimit;
+    private int position;
+    private long lines;
+
+    /**
+     * Abre un archivo CSV completo, saltando la linea de cabecera. El archivo se cierra al cerrar el lector.
+     *
+     * @param file El archivo CSV.
+     * @return El lector del archivo.
+     * @throws IOException Si no se puede abrir o proyectar el archivo.
+     */
+    public static FunkoCsvReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new FunkoCsvReader(channel, firstLineEnd(channel, WINDOW_SIZE), channel.size(), WINDOW_SIZE, true);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Crea un lector de un rango de bytes de un archivo CSV. El rango debe empezar al principio de una linea y
+     * terminar al final de una (o al final del archivo); el canal no se cierra al cerrar el lector.
+     *
+     * @param channel    El canal del archivo.
+     * @param start      Posicion del primer byte del rango.
+     * @param end        Posicion siguiente al ultimo byte del rango.
+     * @param windowSize Tamano maximo de cada ventana proyectada en memoria; debe caber la linea mas larga.
+     */
+    public FunkoCsvReader(FileChannel channel, long start, long end, int windowSize) {
+        this(channel, start, end, windowSize, false);
+    }
+
+    private FunkoCsvReader(FileChannel channel, long start, long end, int windowSize, boolean ownsChannel) {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.end = end;
+        this.windowSize = windowSize;
+        this.windowStart = start;
+    }
+
+    /**
+     * Busca el final de la primera linea (la cabecera) de un archivo CSV.
+     *
+     * @param channel    El canal del archivo.
+     * @param windowSize Numero maximo de bytes en los que se busca.
+     * @return La posicion siguiente al salto de linea de la cabecera, o el tamano del archivo si solo tiene una linea.
+     * @throws IOException Si no se puede leer el archivo.
+     */
+    public static long firstLineEnd(FileChannel channel, int windowSize) throws IOException {
+        long size = channel.size();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, windowSize));
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1L;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Divide un rango de un archivo CSV en trozos de tamano parecido que empiezan y terminan en un limite de linea,
+     * para leerlos en paralelo con un lector por trozo.
+     *
+     * @param channel El canal del archivo.
+     * @param start   Posicion del primer byte del rango, al principio de una linea.
+     * @param end     Posicion siguiente al ultimo byte del rango.
+     * @param chunks  Numero de trozos deseado; puede haber menos si las lineas son largas o el rango es pequeno.
+     * @return Los limites de los trozos: el trozo i va de boundaries[i] a boundaries[i + 1].
+     * @throws IOException Si no se puede leer el archivo.
+     */
+    public static long[] split(FileChannel channel, long start, long end, int chunks) throws IOException {
+        long[] boundaries = new long[chunks + 1];
+        int count = 0;
+        boundaries[count++] = start;
+        long chunkSize = Math.max(1, (end - start) / chunks);
+        for (int i = 1; i < chunks; i++) {
+            long boundary = nextLineStart(channel, Math.max(start + i * chunkSize, boundaries[count - 1]), end);
+            if (boundary >= end) {
+                break;
+            }
+            if (boundary > boundaries[count - 1]) {
+                boundaries[count++] = boundary;
+            }
+        }
+        boundaries[count++] = end;
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    /**
+     * Busca el principio de la primera linea que empieza despues de una posicion (sin contarla).
+     */
+    private static long nextLineStart(FileChannel channel, long position, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long offset = position;
+        while (offset < end) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return Math.min(offset + i + 1, end);
+                }
+            }
+            offset += read;
+        }
+        return end;
+    }
+
+    /**
+     * Lee el siguiente Funko del archivo. Las lineas vacias se ignoran.
+     *
+     * @return El Funko leido, o null si no quedan lineas.
+     * @throws IOException              Si no se puede proyectar el archivo o una linea no cabe en una ventana.
+     * @throws IllegalArgumentException Si una linea no es un Funko valido.
+     */
+    @Override
+    public Funko next() throws IOException {
+        while (true) {
+            if (window == null || position >= windowLimit) {
+                if (!nextWindow()) {
+                    return null;
+                }
+            }
+            int lineStart = position;
+            int lineEnd = lineStart;
+            while (lineEnd < windowLimit && window.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            position = lineEnd + 1;
+            lines++;
+            if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd > lineStart) {
+                return parseLine(lineStart, lineEnd);
+            }
+        }
+    }
+
+    /**
+     * Obtiene el numero de lineas leidas, incluidas las vacias y sin contar la cabecera.
+     *
+     * @return El numero de lineas leidas.
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * Cierra el archivo si lo abrio este lector.
+     *
+     * @throws IOException Si no se puede cerrar el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Proyecta la siguiente ventana del rango, recortada hasta su ultimo salto de linea salvo que sea la ultima.
+     */
+    private boolean nextWindow() throws IOException {
+        if (window != null) {
+            windowStart += windowLimit;
+        }
+        if (windowStart >= end) {
+            window = null;
+            return false;
+        }
+        int length = (int) Math.min(windowSize, end - windowStart);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+        windowLimit = length;
+        if (windowStart + length < end) {
+            while (windowLimit > 0 && window.get(windowLimit - 1) != '\n') {
+                windowLimit--;
+            }
+            if (windowLimit == 0) {
+                throw new IOException("Linea CSV de mas de " + windowSize + " bytes en la posicion " + windowStart);
+            }
+        }
+        position = 0;
+        return true;
+    }
+
+    private Funko parseLine(int start, int end) {
+        int field = 0;
+        fieldStart[0] = start;
+        for (int i = start; i < end && field < FIELDS; i++) {
+            if (window.get(i) == ',') {
+                fieldEnd[field] = i;
+                if (++field < FIELDS) {
+                    fieldStart[field] = i + 1;
+                }
+            }
+        }
+        if (field < FIELDS) {
+            if (field < FIELDS - 1) {
+                throw invalidLine(start, end);
+            }
+            fieldEnd[field] = end;
+        }
+        Funko funko = Funko.builder().build();
+        funko.setUuid(parseUuid(fieldStart[0], fieldEnd[0]));
+        funko.setName(decode(fieldStart[1], fieldEnd[1]));
+        funko.setModelo(parseModelo(fieldStart[2], fieldEnd[2]));
+        funko.setPrecio(parsePrecio(fieldStart[3], fieldEnd[3]));
+        funko.setFecha_lanzamiento(parseFecha(fieldStart[4], fieldEnd[4]));
+        return funko;
+    }
+
+    /**
+     * Decodifica un UUID igual que UUID.fromString, incluido el recorte a 35 caracteres de los codigos de mas
+     * de 36 que hace Funko.setFunko.
+     */
+    private UUID parseUuid(int start, int end) {
+        if (end - start > UUID_LENGTH) {
+            end = start + UUID_LENGTH - 1;
+        }
+        int group = 0;
+        int groupStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || window.get(i) == '-') {
+                if (group == groups.length || i == groupStart || i - groupStart > 16) {
+                    throw new IllegalArgumentException("Invalid UUID string: " + decode(start, end));
+                }
+                groups[group++] = parseHex(groupStart, i, start, end);
+                groupStart = i + 1;
+            }
+        }
+        if (group != groups.length) {
+            throw new IllegalArgumentException("Invalid UUID string: " + decode(start, end));
+        }
+        long mostSignificant = (groups[0] << 32) | ((groups[1] & 0xFFFFL) << 16) | (groups[2] & 0xFFFFL);
+        long leastSignificant = ((groups[3] & 0xFFFFL) << 48) | (groups[4] & 0xFFFFFFFFFFFFL);
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    private long parseHex(int from, int to, int start, int end) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = Character.digit(window.get(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid UUID string: " + decode(start, end));
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private Modelo parseModelo(int start, int end) {
+        int length = end - start;
+        for (int m = 0; m < MODELO_NAMES.length; m++) {
+            byte[] name = MODELO_NAMES[m];
+            if (name.length == length && matches(name, start)) {
+                return MODELOS[m];
+            }
+        }
+        return Modelo.valueOf(decode(start, end));
+    }
+
+    private boolean matches(byte[] name, int start) {
+        for (int i = 0; i < name.length; i++) {
+            if (window.get(start + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodifica un precio con signo, digitos y como mucho un punto decimal. Con hasta 15 cifras el cociente
+     * entre la mantisa entera y la potencia de diez es exacto hasta el redondeo final, asi que coincide con
+     * Double.parseDouble; el resto de formatos se delegan en el.
+     */
+    private double parsePrecio(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (window.get(i) == '-' || window.get(i) == '+')) {
+            negative = window.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < end; i++) {
+            byte b = window.get(i);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                digits = Integer.MAX_VALUE;
+                break;
+            }
+        }
+        if (digits == 0 || digits > MAX_FAST_DIGITS) {
+            return Double.parseDouble(decode(start, end));
+        }
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Decodifica una fecha yyyy-MM-dd con la misma resolucion que DateTimeFormatter.ofPattern("yyyy-MM-dd"), que
+     * ajusta los dias que no existen en el mes (por ejemplo el 30 de febrero) al ultimo dia del mes.
+     */
+    private LocalDate parseFecha(int start, int end) {
+        if (end - start == 10 && window.get(start + 4) == '-' && window.get(start + 7) == '-') {
+            int year = digits(start, start + 4);
+            int month = digits(start + 5, start + 7);
+            int day = digits(start + 8, start + 10);
+            if (year > 0 && month >= 1 && month <= 12 && day >= 1 && day <= 31) {
+                if (month == 4 || month == 6 || month == 9 || month == 11) {
+                    day = Math.min(day, 30);
+                } else if (month == 2) {
+                    day = Math.min(day, Month.FEBRUARY.length(Year.isLeap(year)));
+                }
+                return LocalDate.of(year, month, day);
+            }
+        }
+        return LocalDate.parse(decode(start, end), DATE_FORMATTER);
+    }
+
+    private int digits(int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = window.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private String decode(int start, int end) {
+        int length = end - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        window.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private IllegalArgumentException invalidLine(int start, int end) {
+        return new IllegalArgumentException("Linea CSV no valida en la posicion " + (windowStart + start) + ": " + decode(start, end));
+    }
+}
@@ -0,0 +1,20 @@
+package org.develop.services.files;
+
+import org.develop.model.Funko;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Lector secuencial de Funkos desde un archivo, que se consume Funko a Funko a medida que se piden.
+ */
+public interface FunkoReader extends Closeable {
+
+    /**
+     * Lee el siguiente Funko del archivo.
+     *
+     * @return El Funko leido, o null si no quedan Funkos.
+     * @throws IOException Si no se puede leer el archivo o su contenido no es valido.
+     */
+    Funko next() throws IOException;
+}
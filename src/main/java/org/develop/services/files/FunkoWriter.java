@@ -0,0 +1,27 @@
+package org.develop.services.files;
+
+import org.develop.model.Funko;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Escritor secuencial de Funkos en un archivo, que escribe cada Funko en cuanto lo recibe.
+ */
+public interface FunkoWriter extends Closeable {
+
+    /**
+     * Escribe un Funko.
+     *
+     * @param funko El Funko a escribir.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    void write(Funko funko) throws IOException;
+
+    /**
+     * Termina el archivo y lo cierra. Si el escritor se cierra sin llamar a este metodo el archivo queda incompleto.
+     *
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    void finish() throws IOException;
+}
@@ -2,6 +2,11 @@ package org.develop.services.funkos;
 
 import org.develop.model.Funko;
 import org.develop.services.cache.Cache;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
 
 /**
  * Interfaz que representa una cache específica para objetos Funko, donde los objetos Funko se almacenan y recuperan
@@ -11,4 +16,43 @@ import org.develop.services.cache.Cache;
  * @param <V> Tipo de objeto Funko que se almacena en la cache.
  */
 public interface FunkoCache extends Cache<Integer, Funko> {
+
+    /**
+     * Registra en las estadisticas de la cache una carga de un Funko desde la base de datos que lo encontro.
+     *
+     * @param loadNanos El tiempo de la carga en nanosegundos.
+     */
+    void recordLoadSuccess(long loadNanos);
+
+    /**
+     * Registra en las estadisticas de la cache una carga de un Funko desde la base de datos que fallo o no lo encontro.
+     *
+     * @param loadNanos El tiempo de la carga en nanosegundos.
+     */
+    void recordLoadFailure(long loadNanos);
+
+    /**
+     * Obtiene los IDs de los Funkos mas usados de la cache, de mas a menos caliente.
+     *
+     * @param limit Numero maximo de IDs.
+     * @return Los IDs mas usados, como mucho limit.
+     */
+    List<Integer> hottest(int limit);
+
+    /**
+     * Obtiene un Funko de la cache a partir de su UUID, usando un indice secundario sobre las mismas entradas.
+     *
+     * @param uuid El UUID del Funko.
+     * @return Un mono con el Funko, o vacio si no esta en la cache.
+     */
+    Mono<Funko> getByUuid(UUID uuid);
+
+    /**
+     * Obtiene los Funkos de la cache con un nombre exacto, usando un indice secundario sobre las mismas entradas.
+     * Solo devuelve los Funkos que estan en la cache, no todos los que tienen ese nombre.
+     *
+     * @param name El nombre de los Funkos.
+     * @return Un flujo con los Funkos cacheados con ese nombre.
+     */
+    Flux<Funko> getByName(String name);
 }
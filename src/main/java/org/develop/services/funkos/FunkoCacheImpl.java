@@ -1,52 +1,106 @@
 package org.develop.services.funkos;
 
 import lombok.Getter;
-import org.develop.exceptions.FunkoNotFoundException;
+import org.develop.adapters.FunkoBinaryAdapter;
 import org.develop.model.Funko;
+import org.develop.services.cache.CacheStats;
+import org.develop.services.cache.OffHeapStore;
+import org.develop.services.cache.TinyLfuCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.time.LocalDateTime;
-import java.util.LinkedHashMap;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Implementacion de una cache para objetos Funko que almacena y recupera objetos Funko utilizando identificadores enteros (ID).
- * La cache tiene un tamano maximo y utiliza un algoritmo de eliminacion de objetos mas antiguos cuando se alcanza el tamano maximo.
- * Tambien se encarga de eliminar automaticamente los objetos caducados de la cache.
+ * La cache tiene un tamano maximo y es segura para hilos: las lecturas no bloquean y, cuando se alcanza el tamano maximo,
+ * la politica W-TinyLFU de TinyLfuCache conserva los Funkos que se consultan con mas frecuencia.
+ * Cada Funko caduca un tiempo despues de guardarse en la cache y, opcionalmente, tras un tiempo sin consultarse.
+ * Los Funkos caducados dejan de devolverse en cuanto vencen y una tarea periodica libera su memoria.
+ * Opcionalmente tiene un segundo nivel (OffHeapStore) que guarda cada Funko codificado en binario fuera del heap,
+ * con mucha mas capacidad que la cache de objetos: los Funkos se escriben en los dos niveles y, cuando un Funko no
+ * esta en el primero, se busca en el segundo y se vuelve a subir al primero sin consultar la base de datos.
+ * Mantiene ademas indices secundarios por UUID y por nombre exacto de los Funkos del primer nivel, actualizados
+ * con cada cambio de la cache, de modo que el mismo Funko cacheado sirve las busquedas por ID, UUID y nombre.
  */
-public class FunkoCacheImpl implements FunkoCache{
-    private final Logger logger = LoggerFactory.getLogger(FunkoCacheImpl.class);
+public class FunkoCacheImpl extends TinyLfuCache<Integer, Funko> implements FunkoCache{
     /**
-     * Tamano maximo de la cache.
+     * Tiempo que vive por defecto un Funko en la cache desde que se guarda.
      */
-    @Getter
-    private final int maxSize;
-    @Getter
-    private final Map<Integer, Funko> cache;
+    public static final Duration DEFAULT_EXPIRE_AFTER_WRITE = Duration.ofMinutes(1);
+    private static final long CLEANUP_INTERVAL_SECONDS = 1;
+
+    private final Logger logger = LoggerFactory.getLogger(FunkoCacheImpl.class);
     @Getter
     private final ScheduledExecutorService cleaner;
+    private final OffHeapStore secondLevel;
+    // Las escrituras que tocan los dos niveles se hacen con este cerrojo, de modo que el segundo nivel siempre
+    // guarda el ultimo valor escrito en el primero. Las lecturas del primer nivel no lo usan.
+    private final ReentrantLock levelsLock = new ReentrantLock();
+    private final Map<UUID, Integer> uuidIndex = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> nameIndex = new ConcurrentHashMap<>();
+    // Claves con las que se indexo cada Funko, porque el Funko puede haber cambiado despues (es mutable).
+    // Solo se usan dentro de onChange, con el cerrojo de la cache tomado.
+    private final Map<Integer, UUID> indexedUuids = new HashMap<>();
+    private final Map<Integer, String> indexedNames = new HashMap<>();
 
     /**
-     * Crea una nueva instancia de FunkoCacheImpl con el tamano maximo especificado.
+     * Crea una nueva instancia de FunkoCacheImpl con el tamano maximo especificado, en la que cada Funko
+     * caduca DEFAULT_EXPIRE_AFTER_WRITE despues de guardarse.
      *
      * @param maxSize Tamano maximo de la cache.
      */
     public FunkoCacheImpl(int maxSize){
-        this.maxSize = maxSize;
-        this.cache = new LinkedHashMap<>(maxSize,0.75f,true){
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<Integer, Funko> eldest) {
-                return size() > maxSize;
-            }
-        };
+        this(maxSize, DEFAULT_EXPIRE_AFTER_WRITE, null);
+    }
+
+    /**
+     * Crea una nueva instancia de FunkoCacheImpl con el tamano maximo y los tiempos de caducidad especificados.
+     *
+     * @param maxSize           Tamano maximo de la cache.
+     * @param expireAfterWrite  Tiempo que vive un Funko desde que se guarda, o null para no caducar por escritura.
+     * @param expireAfterAccess Tiempo que vive un Funko desde su ultima consulta, o null para no caducar por acceso.
+     */
+    public FunkoCacheImpl(int maxSize, Duration expireAfterWrite, Duration expireAfterAccess){
+        this(maxSize, expireAfterWrite, expireAfterAccess, null);
+    }
 
+    /**
+     * Crea una nueva instancia de FunkoCacheImpl con el tamano maximo, los tiempos de caducidad y el segundo
+     * nivel fuera del heap especificados.
+     *
+     * @param maxSize           Tamano maximo de la cache.
+     * @param expireAfterWrite  Tiempo que vive un Funko desde que se guarda, o null para no caducar por escritura.
+     * @param expireAfterAccess Tiempo que vive un Funko desde su ultima consulta, o null para no caducar por acceso.
+     * @param secondLevel       Almacen fuera del heap usado como segundo nivel, o null para no usarlo.
+     */
+    public FunkoCacheImpl(int maxSize, Duration expireAfterWrite, Duration expireAfterAccess, OffHeapStore secondLevel){
+        super(maxSize, expireAfterWrite, expireAfterAccess);
+        this.secondLevel = secondLevel;
         this.cleaner = Executors.newSingleThreadScheduledExecutor();
-        this.cleaner.scheduleAtFixedRate(this::clear,2,2, TimeUnit.MINUTES);
+        this.cleaner.scheduleAtFixedRate(this::cleanUp,CLEANUP_INTERVAL_SECONDS,CLEANUP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Obtiene una vista de solo lectura de los Funkos almacenados en la cache.
+     *
+     * @return Un mapa de solo lectura de ID a Funko respaldado por la cache.
+     */
+    public Map<Integer, Funko> getCache() {
+        return asMap();
     }
 
     /**
@@ -58,20 +112,159 @@ public class FunkoCacheImpl implements FunkoCache{
      */
     @Override
     public Mono<Void> put(Integer key, Funko value) {
-        logger.debug("Añadinedo Funko en la Cache id: " + key);
-        return Mono.fromRunnable(()->cache.put(key,value));
+        if (logger.isDebugEnabled()) {
+            logger.debug("Añadinedo Funko en la Cache id: " + key);
+        }
+        return Mono.fromRunnable(() -> {
+            levelsLock.lock();
+            try {
+                store(key, value);
+                if (secondLevel != null) {
+                    secondLevel.put(key, FunkoBinaryAdapter.toBytes(value));
+                }
+            } finally {
+                levelsLock.unlock();
+            }
+        });
     }
 
     /**
-     * Obtiene un objeto Funko de la cache utilizando la clave especificada.
+     * Obtiene un objeto Funko de la cache utilizando la clave especificada. Si no esta en el primer nivel se
+     * busca en el segundo y, si se encuentra, se sube al primero conservando el instante en que se escribio, de modo
+     * que sigue caducando cuando le corresponde y no tras un nuevo tiempo de vida.
      *
      * @param key Clave para identificar el objeto Funko en la cache.
      * @return Una instancia de Mono<Funko> que representa el objeto Funko recuperado de la cache, si existe.
      */
     @Override
     public Mono<Funko> get(Integer key) {
-        logger.debug("Obteniendo Funko de la Cache con id: " + key);
-        return Mono.justOrEmpty(cache.get(key));
+        if (logger.isDebugEnabled()) {
+            logger.debug("Obteniendo Funko de la Cache con id: " + key);
+        }
+        Funko funko = getIfPresent(key);
+        if (funko == null && secondLevel != null) {
+            funko = promote(key);
+        }
+        return Mono.justOrEmpty(funko);
+    }
+
+    /**
+     * Sube un Funko del segundo nivel al primero con la antiguedad que tenia en el segundo, para no alargar su
+     * caducidad por escritura. Si mientras tanto se ha escrito el Funko en el primer nivel, se conserva y se
+     * devuelve ese valor, que es mas reciente.
+     */
+    private Funko promote(Integer key) {
+        levelsLock.lock();
+        try {
+            Map.Entry<Funko, Long> promoted = secondLevel.getWithAge(key,
+                    (value, ageNanos) -> Map.entry(FunkoBinaryAdapter.read(value), ageNanos));
+            if (promoted == null) {
+                return getIfPresent(key);
+            }
+            if (storeIfAbsent(key, promoted.getKey(), promoted.getValue())) {
+                return promoted.getKey();
+            }
+            Funko current = getIfPresent(key);
+            return current != null ? current : promoted.getKey();
+        } finally {
+            levelsLock.unlock();
+        }
+    }
+
+    /**
+     * Obtiene un Funko del primer nivel de la cache a partir de su UUID.
+     *
+     * @param uuid El UUID del Funko.
+     * @return Una instancia de Mono<Funko> con el Funko, o vacio si no esta en la cache.
+     */
+    @Override
+    public Mono<Funko> getByUuid(UUID uuid) {
+        Integer id = uuidIndex.get(uuid);
+        Funko funko = id == null ? null : getIfPresent(id);
+        return Mono.justOrEmpty(funko != null && uuid.equals(funko.getUuid()) ? funko : null);
+    }
+
+    /**
+     * Obtiene los Funkos del primer nivel de la cache con un nombre exacto.
+     *
+     * @param name El nombre de los Funkos.
+     * @return Un flujo con los Funkos cacheados con ese nombre.
+     */
+    @Override
+    public Flux<Funko> getByName(String name) {
+        Set<Integer> ids = nameIndex.get(name);
+        if (ids == null) {
+            return Flux.empty();
+        }
+        return Flux.fromIterable(List.copyOf(ids))
+                .mapNotNull(this::getIfPresent)
+                .filter(funko -> name.equals(funko.getName()));
+    }
+
+    /**
+     * Sustituye un Funko recargado solo si no ha cambiado mientras tanto, en los dos niveles.
+     */
+    @Override
+    protected boolean replace(Integer key, Funko oldValue, Funko newValue) {
+        levelsLock.lock();
+        try {
+            if (!super.replace(key, oldValue, newValue)) {
+                return false;
+            }
+            if (secondLevel != null) {
+                secondLevel.put(key, FunkoBinaryAdapter.toBytes(newValue));
+            }
+            return true;
+        } finally {
+            levelsLock.unlock();
+        }
+    }
+
+    /**
+     * Elimina de los dos niveles un Funko que la recarga ya no encuentra, salvo que haya cambiado mientras tanto.
+     */
+    @Override
+    protected boolean remove(Integer key, Funko value) {
+        levelsLock.lock();
+        try {
+            if (!super.remove(key, value)) {
+                return false;
+            }
+            if (secondLevel != null) {
+                secondLevel.remove(key);
+            }
+            return true;
+        } finally {
+            levelsLock.unlock();
+        }
+    }
+
+    /**
+     * Mantiene los indices por UUID y por nombre con cada insercion, sustitucion o eliminacion de la cache.
+     */
+    @Override
+    protected void onChange(Integer key, Funko oldValue, Funko newValue) {
+        UUID uuid = indexedUuids.remove(key);
+        if (uuid != null) {
+            uuidIndex.remove(uuid, key);
+        }
+        String name = indexedNames.remove(key);
+        if (name != null) {
+            nameIndex.computeIfPresent(name, (n, ids) -> {
+                ids.remove(key);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        if (newValue != null) {
+            if (newValue.getUuid() != null) {
+                uuidIndex.put(newValue.getUuid(), key);
+                indexedUuids.put(key, newValue.getUuid());
+            }
+            if (newValue.getName() != null) {
+                nameIndex.computeIfAbsent(newValue.getName(), n -> ConcurrentHashMap.newKeySet()).add(key);
+                indexedNames.put(key, newValue.getName());
+            }
+        }
     }
 
     /**
@@ -82,22 +275,46 @@ public class FunkoCacheImpl implements FunkoCache{
      */
     @Override
     public Mono<Void> remove(Integer key) {
-        logger.debug("Eliminando Funko de la Cache con id: " + key);
-        return Mono.fromRunnable(()-> cache.remove(key));
+        if (logger.isDebugEnabled()) {
+            logger.debug("Eliminando Funko de la Cache con id: " + key);
+        }
+        return Mono.fromRunnable(() -> {
+            levelsLock.lock();
+            try {
+                invalidate(key);
+                if (secondLevel != null) {
+                    secondLevel.remove(key);
+                }
+            } finally {
+                levelsLock.unlock();
+            }
+        });
     }
 
     /**
-     * Elimina automaticamente los objetos Funko caducados de la cache.
+     * Elimina todos los objetos Funko de la cache.
      */
     @Override
     public void clear() {
-        cache.entrySet().removeIf(entry -> {
-            boolean shouldRemove = entry.getValue().getUpdated_at().plusMinutes(1).isBefore(LocalDateTime.now());
-            if (shouldRemove) {
-                logger.debug("Autoeliminando por caducidad funko de cache con id: " + entry.getKey());
+        logger.debug("Vaciando la Cache de Funkos");
+        levelsLock.lock();
+        try {
+            super.clear();
+            if (secondLevel != null) {
+                secondLevel.clear();
             }
-            return shouldRemove;
-        });
+        } finally {
+            levelsLock.unlock();
+        }
+    }
+
+    /**
+     * Obtiene las estadisticas del segundo nivel fuera del heap.
+     *
+     * @return Las estadisticas del segundo nivel, o vacio si la cache no lo tiene.
+     */
+    public Optional<CacheStats> getSecondLevelStats() {
+        return Optional.ofNullable(secondLevel).map(OffHeapStore::stats);
     }
 
     /**
@@ -106,5 +323,8 @@ public class FunkoCacheImpl implements FunkoCache{
     @Override
     public void shutdown() {
         cleaner.shutdown();
+        if (secondLevel != null) {
+            secondLevel.close();
+        }
     }
 }
@@ -0,0 +1,136 @@
+package org.develop.services.funkos;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instantanea en disco de los IDs mas usados de la cache de Funkos, para precargarlos al arrancar.
+ * Solo se guardan los IDs, uno por linea y de mas a menos caliente: al arrancar los Funkos se vuelven a leer de la
+ * base de datos, de modo que la cache nunca se precarga con valores que hayan cambiado mientras estaba parada.
+ * La instantanea se escribe en un archivo temporal que despues sustituye al anterior, asi que una caida a mitad
+ * de escritura no deja un archivo a medias.
+ */
+public class FunkoCacheSnapshot {
+    private final Logger logger = LoggerFactory.getLogger(FunkoCacheSnapshot.class);
+    private final Path file;
+    private final FunkoCache cache;
+    private final int size;
+    private ScheduledExecutorService saver;
+
+    /**
+     * Crea la instantanea de una cache.
+     *
+     * @param file  El archivo de la instantanea.
+     * @param cache La cache cuyos IDs mas usados se guardan.
+     * @param size  Numero maximo de IDs que se guardan.
+     */
+    public FunkoCacheSnapshot(Path file, FunkoCache cache, int size) {
+        this.file = file;
+        this.cache = cache;
+        this.size = size;
+    }
+
+    /**
+     * Guarda la instantanea periodicamente en un hilo propio.
+     *
+     * @param interval Tiempo entre dos instantaneas.
+     */
+    public synchronized void schedule(Duration interval) {
+        if (saver != null) {
+            return;
+        }
+        saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "funko-cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        saver.scheduleWithFixedDelay(this::saveQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Guarda los IDs mas usados de la cache en el archivo de la instantanea. Si la cache esta vacia se conserva
+     * la instantanea anterior.
+     *
+     * @return El numero de IDs guardados.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public int save() throws IOException {
+        List<Integer> ids = cache.hottest(size);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Integer id : ids) {
+                writer.write(id.toString());
+                writer.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Guardada instantanea de la cache con " + ids.size() + " IDs en " + file);
+        return ids.size();
+    }
+
+    /**
+     * Lee los IDs de la instantanea. Las lineas que no son un ID se ignoran.
+     *
+     * @return Los IDs de mas a menos caliente, o una lista vacia si no hay instantanea.
+     */
+    public List<Integer> load() {
+        List<Integer> ids = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return ids;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                try {
+                    if (ids.size() < size) {
+                        ids.add(Integer.parseInt(line.trim()));
+                    }
+                } catch (NumberFormatException e) {
+                    logger.warn("Linea no valida en la instantanea de la cache: " + line);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error leyendo la instantanea de la cache: " + e.getMessage(), e);
+        }
+        return ids;
+    }
+
+    /**
+     * Guarda una ultima instantanea y detiene el guardado periodico.
+     */
+    public synchronized void shutdown() {
+        if (saver != null) {
+            saver.shutdownNow();
+            saver = null;
+        }
+        saveQuietly();
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException e) {
+            logger.error("Error guardando la instantanea de la cache: " + e.getMessage(), e);
+        }
+    }
+}
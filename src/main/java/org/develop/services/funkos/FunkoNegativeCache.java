@@ -0,0 +1,117 @@
+package org.develop.services.funkos;
+
+import org.develop.model.Funko;
+import org.develop.services.cache.CacheStats;
+import org.develop.services.cache.TinyLfuCache;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache de IDs y UUIDs de Funkos que no existen en la base de datos, para responder a las busquedas repetidas
+ * de Funkos inexistentes sin consultarla. Cada entrada caduca poco despues de guardarse y se invalida en cuanto
+ * se guarda un Funko con ese ID o UUID.
+ * Como en FunkoSearchCache, una ausencia solo se guarda si no se ha guardado ningun Funko desde que se lanzo la
+ * consulta, de modo que una consulta lenta no puede marcar como inexistente un Funko recien creado.
+ */
+public class FunkoNegativeCache {
+    private final TinyLfuCache<Integer, Boolean> missingIds;
+    private final TinyLfuCache<UUID, Boolean> missingUuids;
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Crea una cache de ausencias.
+     *
+     * @param maxSize Numero maximo de IDs y de UUIDs recordados.
+     * @param ttl     Tiempo que se recuerda cada ausencia.
+     */
+    public FunkoNegativeCache(int maxSize, Duration ttl) {
+        this.missingIds = new TinyLfuCache<>(maxSize, ttl, null);
+        this.missingUuids = new TinyLfuCache<>(maxSize, ttl, null);
+    }
+
+    /**
+     * Obtiene la version actual, que cambia cada vez que se guarda un Funko.
+     *
+     * @return La version actual.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Indica si se sabe que no existe un Funko con el ID indicado.
+     *
+     * @param id El ID del Funko.
+     * @return true si el ID se busco hace poco y no existia.
+     */
+    public boolean isMissing(Integer id) {
+        return missingIds.getIfPresent(id) != null;
+    }
+
+    /**
+     * Indica si se sabe que no existe un Funko con el UUID indicado.
+     *
+     * @param uuid El UUID del Funko.
+     * @return true si el UUID se busco hace poco y no existia.
+     */
+    public boolean isMissing(UUID uuid) {
+        return missingUuids.getIfPresent(uuid) != null;
+    }
+
+    /**
+     * Recuerda que no existe un Funko con el ID indicado, salvo que se haya guardado algun Funko desde la version.
+     *
+     * @param id      El ID buscado.
+     * @param version La version obtenida con {@link #version()} antes de lanzar la consulta.
+     */
+    public synchronized void markMissing(Integer id, long version) {
+        if (this.version.get() == version) {
+            missingIds.put(id, Boolean.TRUE).subscribe();
+        }
+    }
+
+    /**
+     * Recuerda que no existe un Funko con el UUID indicado, salvo que se haya guardado algun Funko desde la version.
+     *
+     * @param uuid    El UUID buscado.
+     * @param version La version obtenida con {@link #version()} antes de lanzar la consulta.
+     */
+    public synchronized void markMissing(UUID uuid, long version) {
+        if (this.version.get() == version) {
+            missingUuids.put(uuid, Boolean.TRUE).subscribe();
+        }
+    }
+
+    /**
+     * Olvida las ausencias del ID y el UUID de un Funko que se acaba de guardar.
+     *
+     * @param funko El Funko guardado.
+     */
+    public synchronized void invalidate(Funko funko) {
+        version.incrementAndGet();
+        missingIds.remove(funko.getId()).subscribe();
+        if (funko.getUuid() != null) {
+            missingUuids.remove(funko.getUuid()).subscribe();
+        }
+    }
+
+    /**
+     * Olvida todas las ausencias.
+     */
+    public synchronized void clear() {
+        version.incrementAndGet();
+        missingIds.clear();
+        missingUuids.clear();
+    }
+
+    /**
+     * Obtiene las estadisticas de las busquedas por ID en la cache de ausencias.
+     *
+     * @return Una instantanea de las estadisticas.
+     */
+    public CacheStats stats() {
+        return missingIds.stats();
+    }
+}
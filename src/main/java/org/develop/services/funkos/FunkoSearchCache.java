@@ -0,0 +1,212 @@
+package org.develop.services.funkos;
+
+import lombok.Getter;
+import org.develop.model.Funko;
+import org.develop.model.Notificacion;
+import org.develop.services.cache.Cache;
+import org.develop.services.cache.CacheStats;
+import org.develop.services.cache.RemovalCause;
+import org.develop.services.cache.StatsCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache de resultados de busquedas de Funkos por nombre, indexada por el texto buscado.
+ * Tiene un tamano maximo y descarta la busqueda usada hace mas tiempo cuando se llena.
+ * Las entradas se invalidan a partir de las notificaciones de Funkos: una busqueda se descarta cuando
+ * se crea o actualiza un Funko cuyo nombre la contiene, o cuando se actualiza o elimina un Funko que
+ * forma parte de su resultado.
+ */
+public class FunkoSearchCache implements Cache<String, List<Funko>> {
+    private final Logger logger = LoggerFactory.getLogger(FunkoSearchCache.class);
+    @Getter
+    private final int maxSize;
+    private final Map<String, Entry> cache;
+    private final AtomicLong version = new AtomicLong();
+    private final StatsCounter statsCounter = new StatsCounter();
+
+    /**
+     * Crea una nueva cache de busquedas con el tamano maximo especificado.
+     *
+     * @param maxSize Numero maximo de busquedas almacenadas.
+     */
+    public FunkoSearchCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxSize) {
+                    statsCounter.recordRemoval(RemovalCause.SIZE);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Almacena el resultado de una busqueda.
+     *
+     * @param key   El texto buscado.
+     * @param value Los Funkos encontrados.
+     * @return Un mono (Mono) que indica la finalizacion de la operacion.
+     */
+    @Override
+    public Mono<Void> put(String key, List<Funko> value) {
+        return Mono.fromRunnable(() -> store(key, value));
+    }
+
+    /**
+     * Almacena el resultado de una busqueda solo si no se ha invalidado ninguna entrada desde que se obtuvo la
+     * version indicada. Evita guardar un resultado leido antes de un cambio que ya se ha notificado.
+     *
+     * @param key     El texto buscado.
+     * @param value   Los Funkos encontrados.
+     * @param version La version de la cache obtenida con {@link #version()} antes de lanzar la busqueda.
+     * @return Un mono (Mono) que indica la finalizacion de la operacion.
+     */
+    public Mono<Void> putIfCurrent(String key, List<Funko> value, long version) {
+        return Mono.fromRunnable(() -> {
+            synchronized (this) {
+                if (this.version.get() == version) {
+                    store(key, value);
+                }
+            }
+        });
+    }
+
+    /**
+     * Obtiene la version actual de la cache, que cambia cada vez que se invalida alguna entrada.
+     *
+     * @return La version actual.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Recupera el resultado almacenado para una busqueda.
+     *
+     * @param key El texto buscado.
+     * @return Un mono (Mono) con los Funkos encontrados, o vacio si la busqueda no esta en la cache.
+     */
+    @Override
+    public synchronized Mono<List<Funko>> get(String key) {
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            statsCounter.recordMiss();
+            return Mono.empty();
+        }
+        statsCounter.recordHit();
+        return Mono.just(entry.funkos);
+    }
+
+    /**
+     * Elimina el resultado almacenado para una busqueda.
+     *
+     * @param key El texto buscado.
+     * @return Un mono (Mono) que indica la finalizacion de la operacion.
+     */
+    @Override
+    public Mono<Void> remove(String key) {
+        return Mono.fromRunnable(() -> {
+            synchronized (this) {
+                version.incrementAndGet();
+                if (cache.remove(key) != null) {
+                    statsCounter.recordRemoval(RemovalCause.EXPLICIT);
+                }
+            }
+        });
+    }
+
+    /**
+     * Invalida las busquedas afectadas por una notificacion de Funko.
+     *
+     * @param notificacion La notificacion recibida.
+     */
+    public synchronized void invalidate(Notificacion<Funko> notificacion) {
+        Funko funko = notificacion.getContenido();
+        boolean matchesName = notificacion.getTipo() != Notificacion.Tipo.DELETED;
+        boolean matchesId = notificacion.getTipo() != Notificacion.Tipo.NEW;
+        version.incrementAndGet();
+        cache.entrySet().removeIf(entry -> {
+            boolean stale = (matchesName && funko.getName() != null && funko.getName().contains(entry.getKey()))
+                    || (matchesId && entry.getValue().ids.contains(funko.getId()));
+            if (stale) {
+                logger.debug("Invalidando busqueda en cache: " + entry.getKey());
+                statsCounter.recordRemoval(RemovalCause.EXPLICIT);
+            }
+            return stale;
+        });
+    }
+
+    /**
+     * Elimina todas las busquedas de la cache.
+     */
+    @Override
+    public synchronized void clear() {
+        version.incrementAndGet();
+        cache.clear();
+    }
+
+    /**
+     * Registra en las estadisticas una busqueda lanzada contra la base de datos.
+     *
+     * @param loadNanos El tiempo de la busqueda en nanosegundos.
+     */
+    public void recordLoad(long loadNanos) {
+        statsCounter.recordLoadSuccess(loadNanos);
+    }
+
+    /**
+     * Obtiene una instantanea de las estadisticas de la cache de busquedas.
+     *
+     * @return Las estadisticas acumuladas desde que se creo la cache.
+     */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * La cache de busquedas no usa recursos que haya que liberar.
+     */
+    @Override
+    public void shutdown() {
+    }
+
+    /**
+     * Obtiene el numero de busquedas almacenadas.
+     *
+     * @return El numero de entradas de la cache.
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    private synchronized void store(String key, List<Funko> value) {
+        Set<Integer> ids = new HashSet<>();
+        for (Funko funko : value) {
+            ids.add(funko.getId());
+        }
+        cache.put(key, new Entry(List.copyOf(value), ids));
+    }
+
+    private static final class Entry {
+        private final List<Funko> funkos;
+        private final Set<Integer> ids;
+
+        private Entry(List<Funko> funkos, Set<Integer> ids) {
+            this.funkos = funkos;
+            this.ids = ids;
+        }
+    }
+}
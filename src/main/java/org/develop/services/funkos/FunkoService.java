@@ -1,11 +1,17 @@
 package org.develop.services.funkos;
 
 import org.develop.model.Funko;
+import org.develop.model.ImportSummary;
+import org.develop.model.Modelo;
+import org.develop.model.ModeloStats;
+import org.develop.services.files.BackupFormat;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -17,12 +23,21 @@ public interface FunkoService {
 
     // Buscar por ID
     Mono<Funko> findById(Integer id);
+
+    // Buscar varios por ID
+    Flux<Funko> findByIds(Collection<Integer> ids);
+
+    // Buscar por UUID
+    Mono<Funko> findByUuid(UUID uuid);
     //Buscar por nombre
     Flux<Funko> findByName(String name);
 
     // Guardar
     Mono<Funko> save(Funko funko);
 
+    // Guardar en lotes
+    Flux<Funko> saveAll(Flux<Funko> funkos);
+
     // Actualizar
     Mono<Funko> update(Funko funko);
 
@@ -34,6 +49,30 @@ public interface FunkoService {
 
     Mono<Boolean> backup(String file);
 
+    Mono<Boolean> backup(String file, BackupFormat format);
+
+    // Copias de seguridad incrementales
+    Mono<Boolean> backupFull(String chain);
+
+    Mono<Boolean> backupIncremental(String chain);
+
+    Mono<Integer> restore(String chain);
+
+    // Estadisticas calculadas en la base de datos
+    Mono<Funko> findMostExpensive();
+
+    Mono<Double> findAveragePrecio();
+
+    Flux<ModeloStats> findStatsByModelo();
+
+    Flux<Funko> findByModelo(Modelo modelo);
+
     Flux<Funko> imported(String file);
 
+    // Importar y guardar en lotes transaccionales
+    Mono<ImportSummary> importFile(String file, int chunkSize, int concurrency);
+
+    // Importar leyendo el archivo en paralelo con todos los nucleos
+    Mono<ImportSummary> importFileParallel(String file, int chunkSize, int concurrency, boolean ordered);
+
 }
@@ -1,30 +1,63 @@
 package org.develop.services.funkos;
 
 import org.develop.exceptions.FunkoNotFoundException;
+import org.develop.model.BackupChanges;
+import org.develop.model.BackupInfo;
 import org.develop.model.Funko;
+import org.develop.model.ImportSummary;
+import org.develop.model.Modelo;
+import org.develop.model.ModeloStats;
 import org.develop.model.Notificacion;
 import org.develop.repositories.funkos.FunkoRepository;
+import org.develop.services.cache.CacheStats;
+import org.develop.services.cache.OffHeapStore;
+import org.develop.services.files.BackupFormat;
+import org.develop.services.files.BackupIndex;
 import org.develop.services.files.BackupManagerImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * Implementacion de la interfaz FunkoService que proporciona operaciones para buscar, guardar, actualizar y eliminar Funkos. Tambien permite realizar operaciones de respaldo e importación. Ademas, gestiona notificaciones relacionadas con los Funkos.
  */
 public class FunkoServiceImpl implements FunkoService{
     private static final int CACHE_SIZE = 10;
+    private static final int SEARCH_CACHE_SIZE = 100;
 
     private static FunkoServiceImpl instance;
     private final FunkoCache cache;
+    private final FunkoSearchCache searchCache;
     private final FunkoNotification notification;
     private final Logger logger = LoggerFactory.getLogger(FunkoServiceImpl.class);
     private final FunkoRepository funkoRepository;
     private final BackupManagerImpl backupManager;
+    private final Map<Integer, Mono<Funko>> loadsInFlight = new ConcurrentHashMap<>();
+    private final FunkoWriteBehind writeBehind;
+    private final FunkoNegativeCache negativeCache;
+    private final Mono<Long> warmUp;
+    private final int backupPageSize;
+    private final Duration incrementalLag;
 
     /**
      * Crea una nueva instancia de FunkoServiceImpl.
@@ -35,10 +68,148 @@ public class FunkoServiceImpl implements FunkoService{
      */
     private FunkoServiceImpl(FunkoRepository funkoRepository, FunkoNotification notification,BackupManagerImpl backupManager){
         this.funkoRepository=funkoRepository;
-        this.cache = new FunkoCacheImpl(CACHE_SIZE);
+        Properties properties = loadConfig();
+        this.cache = createCache(properties);
+        this.searchCache = new FunkoSearchCache(SEARCH_CACHE_SIZE);
+        this.negativeCache = new FunkoNegativeCache(
+                Integer.parseInt(properties.getProperty("cache.negative.size", "1000")),
+                Duration.ofMillis(Long.parseLong(properties.getProperty("cache.negative.ttl", "5000"))));
         this.notification = notification;
         this.backupManager = backupManager;
+        this.writeBehind = createWriteBehind(properties);
+        subscribeSearchInvalidation();
+        this.warmUp = startWarmUp(properties);
+        this.backupPageSize = Integer.parseInt(properties.getProperty("backup.pageSize", "500"));
+        this.incrementalLag = Duration.ofMillis(Long.parseLong(properties.getProperty("backup.incremental.lag", "5000")));
+    }
+
+    private Properties loadConfig(){
+        Properties properties = new Properties();
+        try (InputStream config = FunkoServiceImpl.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (config != null) {
+                properties.load(config);
+            }
+        } catch (IOException e) {
+            logger.error("Error leyendo la configuracion de la cache: " + e.getMessage(), e);
+        }
+        return properties;
+    }
+
+    /**
+     * Crea la cache de Funkos por ID. Si config.properties reserva bloques de memoria fuera del heap
+     * (cache.offHeap.slabs mayor que 0), la cache tiene un segundo nivel con esa capacidad.
+     * Si cache.refreshAhead es mayor que 0, los Funkos que se leen despues de esa fraccion de su tiempo de vida se
+     * recargan en segundo plano desde la base de datos, o desde la escritura diferida si tienen cambios pendientes.
+     *
+     * @param properties La configuracion de la aplicacion.
+     * @return La cache de Funkos.
+     */
+    private FunkoCache createCache(Properties properties){
+        int slabs = Integer.parseInt(properties.getProperty("cache.offHeap.slabs", "0"));
+        int slabSize = Integer.parseInt(properties.getProperty("cache.offHeap.slabSize", "1048576"));
+        OffHeapStore secondLevel = slabs > 0
+                ? new OffHeapStore(slabSize, slabs, FunkoCacheImpl.DEFAULT_EXPIRE_AFTER_WRITE)
+                : null;
+        FunkoCacheImpl funkoCache = new FunkoCacheImpl(CACHE_SIZE, FunkoCacheImpl.DEFAULT_EXPIRE_AFTER_WRITE, null, secondLevel);
+        double refreshAhead = Double.parseDouble(properties.getProperty("cache.refreshAhead", "0"));
+        if (refreshAhead > 0) {
+            long refreshNanos = (long) (FunkoCacheImpl.DEFAULT_EXPIRE_AFTER_WRITE.toNanos() * refreshAhead);
+            funkoCache.refreshAfterWrite(Duration.ofNanos(refreshNanos), this::reload);
+        }
+        return funkoCache;
+    }
+
+    private Mono<Funko> reload(Integer id) {
+        Funko pending = pending(id);
+        if (pending != null) {
+            return Mono.just(pending);
+        }
+        logger.debug("Recargando Funko por adelantado: " + id);
+        return funkoRepository.findById(id);
+    }
+
+    /**
+     * Crea la cola de escritura diferida de las actualizaciones si config.properties la activa
+     * (cache.writeBehind.enabled). Las actualizaciones pendientes se escriben tambien al cerrar la aplicacion.
+     *
+     * @param properties La configuracion de la aplicacion.
+     * @return La cola de escritura diferida, o null si las actualizaciones se escriben directamente.
+     */
+    private FunkoWriteBehind createWriteBehind(Properties properties){
+        if (!Boolean.parseBoolean(properties.getProperty("cache.writeBehind.enabled", "false"))) {
+            return null;
+        }
+        long flushInterval = Long.parseLong(properties.getProperty("cache.writeBehind.flushInterval", "1000"));
+        int maxPending = Integer.parseInt(properties.getProperty("cache.writeBehind.maxPending", "1000"));
+        FunkoWriteBehind queue = new FunkoWriteBehind(funkoRepository, Duration.ofMillis(flushInterval), maxPending,
+                flushed -> notification.notify(new Notificacion<>(Notificacion.Tipo.UPDATED,flushed)),
+                missing -> cache.remove(missing).subscribe());
+        Runtime.getRuntime().addShutdownHook(new Thread(queue::shutdown));
+        return queue;
+    }
+
+    /**
+     * Si config.properties indica un archivo de instantanea de la cache (cache.snapshot.file), precarga en segundo
+     * plano los Funkos de la ultima instantanea con consultas agrupadas y guarda una nueva instantanea cada
+     * cache.snapshot.interval milisegundos y al cerrar la aplicacion.
+     *
+     * @param properties La configuracion de la aplicacion.
+     * @return Un mono compartido con el numero de Funkos precargados.
+     */
+    private Mono<Long> startWarmUp(Properties properties){
+        String file = properties.getProperty("cache.snapshot.file", "").trim();
+        if (file.isEmpty()) {
+            return Mono.just(0L);
+        }
+        long interval = Long.parseLong(properties.getProperty("cache.snapshot.interval", "60000"));
+        FunkoCacheSnapshot snapshot = new FunkoCacheSnapshot(Path.of(file), cache, CACHE_SIZE);
+        Mono<Long> loaded = Mono.fromCallable(snapshot::load)
+                .flatMap(this::warmUp)
+                .onErrorResume(e -> {
+                    logger.error("Error precargando la cache: " + e.getMessage(), e);
+                    return Mono.just(0L);
+                })
+                .doFinally(signal -> snapshot.schedule(Duration.ofMillis(interval)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .cache();
+        loaded.subscribe();
+        Runtime.getRuntime().addShutdownHook(new Thread(snapshot::shutdown));
+        return loaded;
+    }
+
+    /**
+     * Precarga en la cache los Funkos de los IDs indicados, buscandolos en la base de datos con consultas agrupadas.
+     *
+     * @param ids Los IDs de los Funkos, de mas a menos usado.
+     * @return Un mono con el numero de Funkos precargados.
+     */
+    public Mono<Long> warmUp(Collection<Integer> ids){
+        if (ids.isEmpty()) {
+            return Mono.just(0L);
+        }
+        logger.debug("Precargando " + ids.size() + " Funkos en la cache");
+        return findByIds(ids).count();
+    }
 
+    /**
+     * Indica cuando la cache esta lista, es decir, cuando ha terminado la precarga desde la instantanea.
+     *
+     * @return Un mono con el numero de Funkos precargados, que termina al acabar la precarga.
+     */
+    public Mono<Long> ready(){
+        return warmUp;
+    }
+
+    /**
+     * Suscribe la cache de busquedas a las notificaciones de Funkos para invalidar los resultados afectados
+     * por cada creacion, actualizacion o eliminacion.
+     */
+    private void subscribeSearchInvalidation(){
+        Flux<Notificacion<Funko>> events = notification == null ? null : notification.getNotificationAsFlux();
+        if (events != null) {
+            events.subscribe(searchCache::invalidate,
+                    error -> logger.error("Error en las notificaciones de Funkos: " + error.getMessage(), error));
+        }
     }
 
     /**
@@ -67,7 +238,9 @@ public class FunkoServiceImpl implements FunkoService{
     }
 
     /**
-     * Busca un Funko por su ID.
+     * Busca un Funko por su ID. Si no esta en la cache, las peticiones simultaneas del mismo ID comparten
+     * una unica consulta a la base de datos y todas reciben su resultado. Si el ID se ha buscado hace poco y no
+     * existia, se responde que no existe sin consultar la base de datos.
      *
      * @param id El ID del Funko que se desea buscar.
      * @return Un mono que emite el Funko encontrado, si existe.
@@ -76,15 +249,165 @@ public class FunkoServiceImpl implements FunkoService{
     @Override
     public Mono<Funko> findById(Integer id) {
         logger.debug("Buscando Funko por ID: " + id);
+        Funko pending = pending(id);
+        if (pending != null) {
+            return Mono.just(pending);
+        }
+        if (negativeCache.isMissing(id)) {
+            return Mono.error(new FunkoNotFoundException("Funko with id " + id + " not found"));
+        }
         return cache.get(id)
-                .switchIfEmpty(funkoRepository.findById(id)
-                        .flatMap(funko -> cache.put(funko.getId(),funko)
-                                .then(Mono.just(funko)))
-                        .switchIfEmpty(Mono.error(new FunkoNotFoundException("Funko with id " + id + " not found"))));
+                .switchIfEmpty(Mono.defer(() -> loadsInFlight.computeIfAbsent(id, this::loadById)))
+                .switchIfEmpty(Mono.error(new FunkoNotFoundException("Funko with id " + id + " not found")));
+    }
+
+    /**
+     * Crea la carga compartida de un Funko desde la base de datos: la consulta se lanza con el primer suscriptor,
+     * su resultado se guarda en la cache y se reenvia a todos los suscriptores, y la carga deja de estar en curso
+     * en cuanto termina.
+     *
+     * @param id El ID del Funko que se va a cargar.
+     * @return Un mono compartido que emite el Funko encontrado, o vacio si no existe.
+     */
+    private Mono<Funko> loadById(Integer id) {
+        return Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    long version = negativeCache.version();
+                    return funkoRepository.findById(id)
+                            .doOnSuccess(funko -> {
+                                recordLoad(start, funko != null);
+                                if (funko == null) {
+                                    negativeCache.markMissing(id, version);
+                                }
+                            })
+                            .doOnError(e -> recordLoad(start, false));
+                })
+                .flatMap(this::cacheLoaded)
+                .doFinally(signal -> loadsInFlight.remove(id))
+                .cache();
+    }
+
+    /**
+     * Obtiene la actualizacion de un Funko pendiente de escribir en la base de datos.
+     *
+     * @param id El ID del Funko.
+     * @return El valor pendiente del Funko, o null si no tiene cambios pendientes o no hay escritura diferida.
+     */
+    private Funko pending(Integer id) {
+        return writeBehind == null ? null : writeBehind.pending(id);
     }
 
     /**
-     * Busca Funkos por su nombre.
+     * Guarda en la cache un Funko leido de la base de datos. Si el Funko tiene una actualizacion pendiente de
+     * escribir, la fila leida esta desfasada: se vuelve a guardar el valor pendiente, que es el que se devuelve.
+     * La comprobacion se hace despues de guardar, de modo que una actualizacion encolada mientras tanto tampoco
+     * queda tapada por la fila antigua.
+     *
+     * @param funko El Funko leido de la base de datos.
+     * @return Un mono con el valor vigente del Funko.
+     */
+    private Mono<Funko> cacheLoaded(Funko funko) {
+        return cache.put(funko.getId(), funko)
+                .then(Mono.defer(() -> {
+                    Funko pending = pending(funko.getId());
+                    return pending == null
+                            ? Mono.just(funko)
+                            : cache.put(pending.getId(), pending).thenReturn(pending);
+                }));
+    }
+
+    private void recordLoad(long start, boolean found) {
+        long elapsed = System.nanoTime() - start;
+        if (found) {
+            cache.recordLoadSuccess(elapsed);
+        } else {
+            cache.recordLoadFailure(elapsed);
+        }
+    }
+
+    /**
+     * Busca varios Funkos por sus IDs. Los IDs con una actualizacion pendiente de escribir se sirven con su valor
+     * pendiente, los que estan en la cache desde memoria y el resto se buscan en la base de datos con consultas IN
+     * agrupadas, guardando en la cache los Funkos encontrados.
+     *
+     * @param ids Los IDs de los Funkos que se desean buscar.
+     * @return Un flujo de Funkos en el orden de los IDs y sin repetidos. Los IDs que no existen se omiten.
+     */
+    @Override
+    public Flux<Funko> findByIds(Collection<Integer> ids) {
+        logger.debug("Buscando " + ids.size() + " Funkos por ID");
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        return Flux.fromIterable(distinct)
+                .concatMap(id -> {
+                    Funko pending = pending(id);
+                    return pending != null ? Mono.just(pending) : cache.get(id);
+                })
+                .collectMap(Funko::getId)
+                .flatMapMany(cached -> {
+                    List<Integer> missing = distinct.stream()
+                            .filter(id -> !cached.containsKey(id) && !negativeCache.isMissing(id))
+                            .collect(Collectors.toList());
+                    long start = System.nanoTime();
+                    long version = negativeCache.version();
+                    Mono<Map<Integer, Funko>> loaded = missing.isEmpty()
+                            ? Mono.just(Map.of())
+                            : funkoRepository.findByIds(missing)
+                                    .concatMap(this::cacheLoaded)
+                                    .collectMap(Funko::getId)
+                                    .doOnSuccess(found -> {
+                                        recordLoad(start, true);
+                                        missing.stream()
+                                                .filter(id -> !found.containsKey(id))
+                                                .forEach(id -> negativeCache.markMissing(id, version));
+                                    })
+                                    .doOnError(e -> recordLoad(start, false));
+                    return loaded.flatMapIterable(found -> distinct.stream()
+                            .map(id -> cached.containsKey(id) ? cached.get(id) : found.get(id))
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toList()));
+                });
+    }
+
+    /**
+     * Busca un Funko por su UUID. Se busca primero en el indice por UUID de la cache, de modo que un Funko cacheado
+     * por su ID sirve tambien esta busqueda; si no esta, se busca en la base de datos y se guarda en la cache.
+     * Como en findById, los UUIDs buscados hace poco que no existian no se vuelven a consultar, y si el Funko
+     * encontrado tiene una actualizacion pendiente de escribir se devuelve su valor pendiente.
+     *
+     * @param uuid El UUID del Funko que se desea buscar.
+     * @return Un mono que emite el Funko encontrado, si existe.
+     * @throws FunkoNotFoundException Si no se encuentra un Funko con el UUID proporcionado.
+     */
+    @Override
+    public Mono<Funko> findByUuid(UUID uuid) {
+        logger.debug("Buscando Funko por UUID: " + uuid);
+        if (negativeCache.isMissing(uuid)) {
+            return Mono.error(new FunkoNotFoundException("Funko with uuid " + uuid + " not found"));
+        }
+        return cache.getByUuid(uuid)
+                .switchIfEmpty(Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    long version = negativeCache.version();
+                    return funkoRepository.findByUuid(uuid)
+                            .doOnSuccess(funko -> {
+                                recordLoad(start, funko != null);
+                                if (funko == null) {
+                                    negativeCache.markMissing(uuid, version);
+                                }
+                            })
+                            .doOnError(e -> recordLoad(start, false))
+                            .flatMap(this::cacheLoaded);
+                }))
+                .map(funko -> {
+                    Funko pending = pending(funko.getId());
+                    return pending != null ? pending : funko;
+                })
+                .switchIfEmpty(Mono.error(new FunkoNotFoundException("Funko with uuid " + uuid + " not found")));
+    }
+
+    /**
+     * Busca Funkos por su nombre. Los resultados se guardan en la cache de busquedas, de modo que las busquedas
+     * repetidas se sirven desde memoria hasta que una notificacion de Funko las invalida.
      *
      * @param name El nombre o parte del nombre de los Funkos que se desean buscar.
      * @return Un flujo de Funkos que representan los Funkos encontrados con el nombre especificado.
@@ -92,7 +415,17 @@ public class FunkoServiceImpl implements FunkoService{
     @Override
     public Flux<Funko> findByName(String name) {
         logger.debug("Buscando todos los funkos por nombre: " + name);
-        return funkoRepository.findByName(name);
+        return searchCache.get(name)
+                .switchIfEmpty(Mono.defer(() -> {
+                    long version = searchCache.version();
+                    long start = System.nanoTime();
+                    return funkoRepository.findByName(name)
+                            .collectList()
+                            .doOnNext(funkos -> searchCache.recordLoad(System.nanoTime() - start))
+                            .flatMap(funkos -> searchCache.putIfCurrent(name, funkos, version)
+                                    .thenReturn(funkos));
+                }))
+                .flatMapIterable(funkos -> funkos);
     }
 
     /**
@@ -103,7 +436,7 @@ public class FunkoServiceImpl implements FunkoService{
      */
     public Mono<Funko> saveWithOutNotification(Funko funko){
          return funkoRepository.save(funko)
-                .flatMap(saved -> funkoRepository.findByUuid(saved.getUuid()));
+                 .doOnNext(negativeCache::invalidate);
     }
 
     @Override
@@ -113,6 +446,20 @@ public class FunkoServiceImpl implements FunkoService{
                 .doOnSuccess(fkSaved -> notification.notify(new Notificacion<>(Notificacion.Tipo.NEW,fkSaved)));
     }
 
+    /**
+     * Guarda un flujo de Funkos en la base de datos en lotes y genera una notificacion de nueva creacion por cada uno.
+     *
+     * @param funkos El flujo de Funkos que se van a guardar.
+     * @return Un flujo de Funkos guardados en la base de datos.
+     */
+    @Override
+    public Flux<Funko> saveAll(Flux<Funko> funkos) {
+        logger.debug("Guardando Funkos en lotes");
+        return funkoRepository.saveAll(funkos)
+                .doOnNext(negativeCache::invalidate)
+                .doOnNext(fkSaved -> notification.notify(new Notificacion<>(Notificacion.Tipo.NEW,fkSaved)));
+    }
+
     /**
      * Actualiza un Funko en la base de datos sin generar una notificacion de actualización.
      *
@@ -124,15 +471,33 @@ public class FunkoServiceImpl implements FunkoService{
                 .flatMap(updated->findById(updated.getId()));
     }
 
+    /**
+     * Actualiza un Funko y genera una notificacion de actualizacion. Con la escritura diferida activada se comprueba
+     * que el Funko existe, como en findById, y despues se guarda al momento en la cache y se encola para escribirse
+     * en la base de datos en el siguiente lote; la notificacion se genera cuando se escribe.
+     *
+     * @param funko El Funko que se va a actualizar.
+     * @return Un mono que emite el Funko actualizado.
+     * @throws FunkoNotFoundException Si no existe un Funko con el ID del Funko actualizado.
+     */
     @Override
     public Mono<Funko> update(Funko funko) {
         logger.debug("Actualizando Funko " + funko.getName());
+        if (writeBehind != null) {
+            return Mono.defer(() -> findById(funko.getId()))
+                    .flatMap(existing -> {
+                        funko.setUpdated_at(LocalDateTime.now());
+                        writeBehind.enqueue(funko);
+                        return cache.put(funko.getId(), funko).thenReturn(funko);
+                    });
+        }
         return updateWithOutNotification(funko)
                 .doOnSuccess(fkUpdated->notification.notify(new Notificacion<>(Notificacion.Tipo.UPDATED,fkUpdated)));
     }
 
     /**
-     * Elimina un Funko de la base de datos por su ID sin generar una notificacion de eliminacion.
+     * Elimina un Funko de la base de datos por su ID sin generar una notificacion de eliminacion. Una vez eliminado
+     * se descarta su actualizacion pendiente de escribir, si la tenia.
      *
      * @param id El ID del Funko que se va a eliminar.
      * @return Un mono que emite el Funko eliminado.
@@ -143,6 +508,11 @@ public class FunkoServiceImpl implements FunkoService{
                 .switchIfEmpty(Mono.error(new FunkoNotFoundException("Funko with id " + id + " not found")))
                 .flatMap(funko -> cache.remove(funko.getId())
                         .then(funkoRepository.deleteById(funko.getId()))
+                        .then(Mono.fromRunnable(() -> {
+                            if (writeBehind != null) {
+                                writeBehind.discard(funko.getId());
+                            }
+                        }))
                         .thenReturn(funko));
     }
 
@@ -162,30 +532,254 @@ public class FunkoServiceImpl implements FunkoService{
 
 
     /**
-     * Elimina todos los Funkos de la base de datos y limpia la cache.
+     * Elimina todos los Funkos de la base de datos y limpia la cache. Las actualizaciones pendientes de escribir
+     * se descartan solo cuando la eliminacion ha terminado con exito.
      *
      * @return Un Mono que indica que la eliminación se ha completado con exito.
      */
     @Override
     public Mono<Void> deleteAll() {
         logger.debug("Eliminando todos los Funkos");
-        cache.clear();
-        return funkoRepository.deleteAll()
+        return Mono.defer(() -> {
+                    cache.clear();
+                    return funkoRepository.deleteAll();
+                })
+                .doOnSuccess(deleted -> {
+                    if (writeBehind != null) {
+                        writeBehind.discardAll();
+                    }
+                    cache.clear();
+                    searchCache.clear();
+                })
                 .then(Mono.empty());
     }
 
+    /**
+     * Busca el Funko con el precio mas alto.
+     *
+     * @return Un mono que emite el Funko mas caro, o vacio si no hay Funkos.
+     */
+    @Override
+    public Mono<Funko> findMostExpensive() {
+        logger.debug("Buscando el Funko mas caro");
+        return funkoRepository.findMostExpensive();
+    }
+
+    /**
+     * Calcula el precio medio de todos los Funkos.
+     *
+     * @return Un mono que emite el precio medio, o vacio si no hay Funkos.
+     */
+    @Override
+    public Mono<Double> findAveragePrecio() {
+        logger.debug("Calculando el precio medio de los Funkos");
+        return funkoRepository.findAveragePrecio();
+    }
+
+    /**
+     * Calcula para cada modelo el numero de Funkos y sus precios medio, minimo y maximo.
+     *
+     * @return Un flujo con las estadisticas de cada modelo.
+     */
+    @Override
+    public Flux<ModeloStats> findStatsByModelo() {
+        logger.debug("Calculando estadisticas por modelo");
+        return funkoRepository.findStatsByModelo();
+    }
+
+    /**
+     * Busca los Funkos de un modelo.
+     *
+     * @param modelo El modelo de los Funkos que se desean buscar.
+     * @return Un flujo con los Funkos del modelo.
+     */
+    @Override
+    public Flux<Funko> findByModelo(Modelo modelo) {
+        logger.debug("Buscando Funkos del modelo " + modelo);
+        return funkoRepository.findByModelo(modelo);
+    }
+
     /**
      * Realiza una copia de seguridad (backup) de los Funkos y los guarda en un archivo.
+     * Los Funkos se leen de la base de datos en paginas de backup.pageSize y cada uno se escribe en el archivo
+     * en cuanto llega, de modo que la memoria usada se limita a una pagina sea cual sea el numero de Funkos.
+     * El formato se elige por la extension del archivo: ".bin" binario, ".gz" binario comprimido y el resto JSON.
      *
      * @param file El nombre del archivo en el que se guardarán los Funkos.
      * @return Un Mono que indica si la copia de seguridad se realizo con exito (true) o no (false).
      */
     @Override
     public Mono<Boolean> backup(String file) {
-        logger.debug("Realizando Backup de Funkos");
-        return findAll()
-                .collectList()
-                .flatMap(funkos -> backupManager.writeFile(file,funkos));
+        return backup(file, BackupFormat.fromFileName(file));
+    }
+
+    /**
+     * Realiza una copia de seguridad (backup) de los Funkos en el formato indicado. Los Funkos se leen de la base de
+     * datos en paginas de backup.pageSize y cada uno se escribe en el archivo en cuanto llega.
+     *
+     * @param file   El nombre del archivo en el que se guardarán los Funkos.
+     * @param format El formato de la copia de seguridad.
+     * @return Un Mono que indica si la copia de seguridad se realizo con exito (true) o no (false).
+     */
+    @Override
+    public Mono<Boolean> backup(String file, BackupFormat format) {
+        logger.debug("Realizando Backup de Funkos en formato " + format);
+        return backupManager.writeFile(file, funkoRepository.streamAll(0, backupPageSize), format);
+    }
+
+    /**
+     * Empieza una cadena de copias de seguridad con una copia completa en binario comprimido. El indice de la cadena
+     * (data/[cadena].index) guarda como marca de agua el instante en que empezo la copia menos backup.incremental.lag.
+     * La copia se escribe con un nombre que la cadena anterior no usa y el indice solo se cambia a la nueva cadena
+     * cuando la copia esta escrita; despues se borran los archivos de la cadena anterior y las marcas de borrado que
+     * ya cubre la copia. Asi un fallo en cualquier paso deja la cadena anterior entera y restaurable.
+     *
+     * @param chain El nombre de la cadena.
+     * @return Un Mono que indica si la copia de seguridad se realizo con exito (true) o no (false).
+     */
+    @Override
+    public Mono<Boolean> backupFull(String chain) {
+        logger.debug("Realizando Backup completo de la cadena " + chain);
+        return backupChain(chain, true);
+    }
+
+    /**
+     * Anade a una cadena de copias de seguridad una copia incremental con los Funkos creados o actualizados y las
+     * marcas de los Funkos eliminados desde la marca de agua de la copia anterior, o hace una copia completa si la
+     * cadena no existe. Las consultas recorren los indices por updated_at y por fecha de borrado, de modo que el
+     * coste depende del numero de cambios y no del tamano del catalogo.
+     * Antes se escriben las actualizaciones pendientes de la escritura diferida, y la marca de agua se retrasa
+     * backup.incremental.lag para que una transaccion que aun no ha confirmado cambios anteriores a ella no quede
+     * fuera de la copia; esos cambios se copian en la siguiente.
+     *
+     * @param chain El nombre de la cadena.
+     * @return Un Mono que indica si la copia de seguridad se realizo con exito (true) o no (false).
+     */
+    @Override
+    public Mono<Boolean> backupIncremental(String chain) {
+        logger.debug("Realizando Backup incremental de la cadena " + chain);
+        return backupChain(chain, false);
+    }
+
+    private Mono<Boolean> backupChain(String chain, boolean full) {
+        BackupIndex index = backupIndex(chain);
+        return flush()
+                .then(Mono.fromCallable(index::load).subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(backups -> {
+                    LocalDateTime until = LocalDateTime.now().minus(incrementalLag);
+                    boolean incremental = !full && !backups.isEmpty();
+                    BackupInfo last = backups.isEmpty() ? null : backups.get(backups.size() - 1);
+                    if (incremental && until.isBefore(last.getUntil())) {
+                        until = last.getUntil();
+                    }
+                    BackupInfo backup = BackupInfo.builder()
+                            .file(chain + "." + (last == null ? 0 : sequenceOf(chain, last.getFile()) + 1) + ".bin.gz")
+                            .incremental(incremental)
+                            .since(incremental ? last.getUntil() : null)
+                            .until(until)
+                            .build();
+                    Mono<Boolean> written = incremental
+                            ? backupManager.writeIncremental(backup.getFile(),
+                                    funkoRepository.streamChanged(backup.getSince(), until, backupPageSize),
+                                    funkoRepository.streamDeleted(backup.getSince(), until, backupPageSize))
+                            : backupManager.writeFile(backup.getFile(),
+                                    funkoRepository.streamAll(0, backupPageSize), BackupFormat.BINARY_GZIP);
+                    Mono<Boolean> indexed = written.flatMap(success -> !success ? Mono.just(false) : Mono.fromCallable(() -> {
+                        try {
+                            index.append(backup);
+                        } catch (IOException e) {
+                            deleteBackups(List.of(backup), null);
+                            throw e;
+                        }
+                        if (!incremental) {
+                            deleteBackups(backups, backup.getFile());
+                        }
+                        return true;
+                    }).subscribeOn(Schedulers.boundedElastic()));
+                    return incremental ? indexed : indexed.flatMap(success -> !success ? Mono.just(false)
+                            : funkoRepository.pruneDeleted(backup.getUntil())
+                                    .doOnNext(pruned -> logger.debug("Eliminadas " + pruned + " marcas de borrado"))
+                                    .onErrorResume(e -> {
+                                        logger.warn("No se han podido eliminar las marcas de borrado: " + e.getMessage());
+                                        return Mono.empty();
+                                    })
+                                    .thenReturn(true));
+                })
+                .onErrorResume(e -> {
+                    logger.error("Error realizando el Backup de la cadena " + chain + ": " + e.getMessage(), e);
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Obtiene el numero de un archivo de una cadena, "[cadena].[numero].bin.gz".
+     */
+    private static int sequenceOf(String chain, String file) {
+        String sequence = file.substring(chain.length() + 1, file.indexOf('.', chain.length() + 1));
+        return Integer.parseInt(sequence);
+    }
+
+    private void deleteBackups(List<BackupInfo> backups, String keep) {
+        for (BackupInfo backup : backups) {
+            if (!backup.getFile().equals(keep)) {
+                try {
+                    Files.deleteIfExists(Paths.get("").toAbsolutePath().resolve("data").resolve(backup.getFile()));
+                } catch (IOException e) {
+                    logger.warn("No se ha podido borrar la copia de seguridad " + backup.getFile());
+                }
+            }
+        }
+    }
+
+    private BackupIndex backupIndex(String chain) {
+        return new BackupIndex(Paths.get("").toAbsolutePath().resolve("data").resolve(chain + ".index"));
+    }
+
+    /**
+     * Restaura la base de datos a partir de una cadena de copias de seguridad. Primero se comprueba entero cada
+     * archivo de la cadena (la suma de cada bloque y el total de registros), de modo que una copia danada o cortada
+     * se detecta antes de tocar la base de datos. Despues, en una unica transaccion, se eliminan todos los Funkos y
+     * sus marcas de borrado, se insertan los de la copia completa con sus IDs y fechas y se aplica cada copia
+     * incremental en orden, primero sus Funkos creados o actualizados y luego sus borrados; si algo falla se
+     * deshace entero y el catalogo queda como estaba. Los Funkos se leen de los archivos a medida que se guardan
+     * en lotes. Se descartan las actualizaciones pendientes y se vacian las caches.
+     *
+     * @param chain El nombre de la cadena.
+     * @return Un Mono con el numero de copias aplicadas, o un error si la cadena no existe o una copia esta danada.
+     */
+    @Override
+    public Mono<Integer> restore(String chain) {
+        logger.debug("Restaurando la cadena de Backups " + chain);
+        BackupIndex index = backupIndex(chain);
+        return Mono.fromCallable(index::load)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(backups -> {
+                    if (backups.isEmpty() || backups.get(0).isIncremental()) {
+                        return Mono.error(new IOException("No hay una copia completa en la cadena " + chain));
+                    }
+                    return Flux.fromIterable(backups)
+                            .concatMap(backup -> backupManager.verifyBackup(backup.getFile()))
+                            .then(Mono.defer(() -> {
+                                if (writeBehind != null) {
+                                    writeBehind.discardAll();
+                                }
+                                return funkoRepository.restoreAll(Flux.fromIterable(backups)
+                                        .map(backup -> BackupChanges.builder()
+                                                .changed(backupManager.readBackup(backup.getFile()))
+                                                .deleted(backup.isIncremental()
+                                                        ? backupManager.readDeleted(backup.getFile()).map(Funko::getId)
+                                                        : Flux.empty())
+                                                .build()));
+                            }))
+                            // H2 confirma la transaccion en curso al ejecutar ALTER TABLE, por eso va despues
+                            .then(Mono.defer(funkoRepository::resetIdSequence))
+                            .then(Mono.fromRunnable(() -> {
+                                cache.clear();
+                                searchCache.clear();
+                                negativeCache.clear();
+                            }))
+                            .thenReturn(backups.size());
+                });
     }
 
     /**
@@ -199,6 +793,99 @@ public class FunkoServiceImpl implements FunkoService{
         return backupManager.readFile(file);
     }
 
+    /**
+     * Importa Funkos desde un archivo y los guarda en la base de datos en lotes. Las filas se leen del archivo
+     * a medida que se guardan, cada lote se escribe en una unica transaccion y se pueden escribir varios lotes
+     * a la vez. Si un lote falla se deshace entero, se cuentan sus filas como fallidas y la importacion continua.
+     * Se genera una notificacion de nueva creacion por cada Funko guardado.
+     *
+     * @param file        El nombre del archivo desde el cual importar los Funkos.
+     * @param chunkSize   El numero de Funkos de cada lote.
+     * @param concurrency El numero maximo de lotes que se escriben a la vez.
+     * @return Un mono con el resumen de la importacion: filas insertadas, fallidas, tiempo y rendimiento.
+     */
+    @Override
+    public Mono<ImportSummary> importFile(String file, int chunkSize, int concurrency) {
+        logger.debug("Importando Funkos desde " + file + " en lotes de " + chunkSize);
+        return importFunkos(Flux.defer(() -> backupManager.readFile(file)), chunkSize, concurrency);
+    }
+
+    /**
+     * Importa Funkos como importFile, pero leyendo y decodificando el archivo en paralelo con todos los nucleos.
+     * En modo ordenado los lotes se forman en el orden del archivo; en modo no ordenado se forman segun se leen
+     * las filas, lo que es mas rapido.
+     *
+     * @param file        El nombre del archivo desde el cual importar los Funkos.
+     * @param chunkSize   El numero de Funkos de cada lote.
+     * @param concurrency El numero maximo de lotes que se escriben a la vez.
+     * @param ordered     true para guardar los Funkos en el orden del archivo.
+     * @return Un mono con el resumen de la importacion: filas insertadas, fallidas, tiempo y rendimiento.
+     */
+    @Override
+    public Mono<ImportSummary> importFileParallel(String file, int chunkSize, int concurrency, boolean ordered) {
+        logger.debug("Importando Funkos en paralelo desde " + file + " en lotes de " + chunkSize);
+        return importFunkos(Flux.defer(() -> backupManager.readFileParallel(file, ordered)), chunkSize, concurrency);
+    }
+
+    private Mono<ImportSummary> importFunkos(Flux<Funko> funkos, int chunkSize, int concurrency) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return funkos
+                    .buffer(chunkSize)
+                    .flatMap(chunk -> funkoRepository.saveAll(Flux.fromIterable(chunk), chunk.size())
+                            .doOnNext(negativeCache::invalidate)
+                            .doOnNext(fkSaved -> notification.notify(new Notificacion<>(Notificacion.Tipo.NEW,fkSaved)))
+                            .count()
+                            .map(inserted -> new long[]{inserted, 0})
+                            .onErrorResume(e -> {
+                                logger.error("Error guardando lote de " + chunk.size() + " Funkos: " + e.getMessage(), e);
+                                return Mono.just(new long[]{0, chunk.size()});
+                            }), concurrency)
+                    .reduce(new long[]{0, 0}, (total, chunk) -> new long[]{total[0] + chunk[0], total[1] + chunk[1]})
+                    .map(total -> ImportSummary.builder()
+                            .inserted(total[0])
+                            .failed(total[1])
+                            .elapsed(Duration.ofNanos(System.nanoTime() - start))
+                            .build());
+        });
+    }
+
+    /**
+     * Obtiene las estadisticas de la cache de Funkos por ID, para dimensionarla a partir de su tasa de aciertos.
+     *
+     * @return Una instantanea de las estadisticas de la cache.
+     */
+    public CacheStats getCacheStats(){
+        return cache.stats();
+    }
+
+    /**
+     * Obtiene las estadisticas de las busquedas por ID en la cache de Funkos inexistentes.
+     *
+     * @return Una instantanea de las estadisticas de la cache de ausencias.
+     */
+    public CacheStats getNegativeCacheStats(){
+        return negativeCache.stats();
+    }
+
+    /**
+     * Obtiene las estadisticas de la cache de busquedas por nombre.
+     *
+     * @return Una instantanea de las estadisticas de la cache de busquedas.
+     */
+    public CacheStats getSearchCacheStats(){
+        return searchCache.stats();
+    }
+
+    /**
+     * Escribe en la base de datos las actualizaciones pendientes de la escritura diferida.
+     *
+     * @return Un mono que termina cuando se han escrito, o al momento si la escritura diferida no esta activada.
+     */
+    public Mono<Void> flush(){
+        return writeBehind == null ? Mono.empty() : writeBehind.flush();
+    }
+
     /**
      * Obtiene un flujo de notificaciones relacionadas con los Funkos. Estas notificaciones pueden incluir informacion sobre nuevas creaciones, actualizaciones o eliminaciones de Funkos.
      *
@@ -0,0 +1,192 @@
+package org.develop.services.funkos;
+
+import org.develop.model.Funko;
+import org.develop.repositories.funkos.FunkoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Cola de escritura diferida (write-behind) de las actualizaciones de Funkos.
+ * Las actualizaciones se acumulan en memoria agrupadas por ID, de modo que si un Funko se actualiza varias veces
+ * antes de escribirse solo se escribe su ultimo valor. Un hilo propio las escribe en la base de datos en lotes
+ * cada flushInterval, o antes si se acumulan maxPending Funkos, por lo que la base de datos nunca va mas de
+ * flushInterval por detras de la cache. Tras escribir un lote se avisa de cada Funko escrito y del ID de cada Funko
+ * que ya no existia en la base de datos, por ejemplo porque se elimino mientras su actualizacion esperaba.
+ * Si un lote falla sus Funkos se vuelven a encolar, salvo los que ya tengan un valor mas reciente.
+ */
+public class FunkoWriteBehind {
+    private final Logger logger = LoggerFactory.getLogger(FunkoWriteBehind.class);
+    private final Map<Integer, Funko> pending = new ConcurrentHashMap<>();
+    private final Map<Integer, Funko> flushing = new ConcurrentHashMap<>();
+    private final FunkoRepository funkoRepository;
+    private final Consumer<Funko> onFlushed;
+    private final Consumer<Integer> onMissing;
+    private final int maxPending;
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    /**
+     * Crea una cola de escritura diferida y programa su escritura periodica.
+     *
+     * @param funkoRepository Repositorio en el que se escriben las actualizaciones.
+     * @param flushInterval   Tiempo maximo que una actualizacion espera antes de escribirse.
+     * @param maxPending      Numero de Funkos pendientes a partir del cual se escribe sin esperar al intervalo.
+     * @param onFlushed       Recibe cada Funko una vez escrito en la base de datos.
+     */
+    public FunkoWriteBehind(FunkoRepository funkoRepository, Duration flushInterval, int maxPending, Consumer<Funko> onFlushed) {
+        this(funkoRepository, flushInterval, maxPending, onFlushed, id -> {});
+    }
+
+    /**
+     * Crea una cola de escritura diferida que avisa tambien de los Funkos cuya actualizacion no ha modificado ninguna
+     * fila, y programa su escritura periodica.
+     *
+     * @param funkoRepository Repositorio en el que se escriben las actualizaciones.
+     * @param flushInterval   Tiempo maximo que una actualizacion espera antes de escribirse.
+     * @param maxPending      Numero de Funkos pendientes a partir del cual se escribe sin esperar al intervalo.
+     * @param onFlushed       Recibe cada Funko una vez escrito en la base de datos.
+     * @param onMissing       Recibe el ID de cada Funko que no se ha escrito porque ya no existe en la base de datos.
+     */
+    public FunkoWriteBehind(FunkoRepository funkoRepository, Duration flushInterval, int maxPending,
+                            Consumer<Funko> onFlushed, Consumer<Integer> onMissing) {
+        this.funkoRepository = funkoRepository;
+        this.maxPending = maxPending;
+        this.onFlushed = onFlushed;
+        this.onMissing = onMissing;
+        this.flusher = Executors.newSingleThreadScheduledExecutor();
+        long interval = flushInterval.toMillis();
+        this.flusher.scheduleWithFixedDelay(this::flushPending, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Encola la actualizacion de un Funko, sustituyendo la que estuviera pendiente para el mismo ID.
+     *
+     * @param funko El Funko actualizado.
+     */
+    public void enqueue(Funko funko) {
+        pending.put(funko.getId(), funko);
+        if (pending.size() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushPending);
+        }
+    }
+
+    /**
+     * Obtiene el valor pendiente de escribir de un Funko.
+     *
+     * @param id El ID del Funko.
+     * @return El ultimo valor del Funko aun no confirmado en la base de datos, o null si no tiene cambios pendientes.
+     */
+    public Funko pending(Integer id) {
+        Funko funko = pending.get(id);
+        return funko != null ? funko : flushing.get(id);
+    }
+
+    /**
+     * Descarta la actualizacion pendiente de un Funko, por ejemplo porque se va a eliminar.
+     *
+     * @param id El ID del Funko.
+     */
+    public void discard(Integer id) {
+        pending.remove(id);
+    }
+
+    /**
+     * Descarta todas las actualizaciones pendientes.
+     */
+    public void discardAll() {
+        pending.clear();
+    }
+
+    /**
+     * Obtiene el numero de Funkos con actualizaciones pendientes.
+     *
+     * @return El numero de Funkos pendientes.
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Escribe ya todas las actualizaciones pendientes.
+     *
+     * @return Un mono (Mono) que termina cuando se han escrito.
+     */
+    public Mono<Void> flush() {
+        return Mono.fromFuture(() -> CompletableFuture.runAsync(this::flushPending, flusher));
+    }
+
+    /**
+     * Escribe las actualizaciones pendientes y detiene el hilo de escritura.
+     */
+    public void shutdown() {
+        if (flusher.isShutdown()) {
+            return;
+        }
+        try {
+            flusher.submit(this::flushPending).get();
+        } catch (Exception e) {
+            logger.error("Error escribiendo las actualizaciones pendientes al cerrar: " + e.getMessage(), e);
+        }
+        flusher.shutdown();
+    }
+
+    /**
+     * Escribe en un lote las actualizaciones pendientes. Solo se ejecuta en el hilo de escritura, por lo que
+     * nunca hay dos escrituras a la vez.
+     */
+    private void flushPending() {
+        flushRequested.set(false);
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Funko> batch = new ArrayList<>(pending.size());
+        for (Integer id : pending.keySet()) {
+            Funko funko = pending.remove(id);
+            if (funko != null) {
+                flushing.put(id, funko);
+                batch.add(funko);
+            }
+        }
+        try {
+            List<Funko> written = funkoRepository.updateAll(batch).collectList().block();
+            logger.debug("Escritos " + batch.size() + " Funkos actualizados en diferido");
+            Set<Integer> writtenIds = new HashSet<>();
+            if (written != null) {
+                for (Funko funko : written) {
+                    writtenIds.add(funko.getId());
+                    onFlushed.accept(funko);
+                }
+            }
+            for (Funko funko : batch) {
+                if (!writtenIds.contains(funko.getId())) {
+                    logger.debug("El Funko " + funko.getId() + " ya no existe, se descarta su actualizacion");
+                    onMissing.accept(funko.getId());
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error escribiendo " + batch.size() + " Funkos actualizados, se reintentara: " + e.getMessage(), e);
+            for (Funko funko : batch) {
+                pending.putIfAbsent(funko.getId(), funko);
+            }
+        } finally {
+            for (Funko funko : batch) {
+                flushing.remove(funko.getId(), funko);
+            }
+        }
+    }
+}
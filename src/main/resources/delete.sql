@@ -1 +1,2 @@
-DROP TABLE IF EXISTS FUNKO;
\ No newline at end of file
+DROP TABLE IF EXISTS FUNKO;
+DROP TABLE IF EXISTS FUNKO_DELETED;
\ No newline at end of file
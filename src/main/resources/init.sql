@@ -9,3 +9,12 @@ CREATE TABLE IF NOT EXISTS FUNKO (
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
+CREATE INDEX IF NOT EXISTS IDX_FUNKO_MODELO ON FUNKO (modelo);
+CREATE INDEX IF NOT EXISTS IDX_FUNKO_PRECIO ON FUNKO (precio);
+CREATE INDEX IF NOT EXISTS IDX_FUNKO_UPDATED ON FUNKO (updated_at, id);
+CREATE TABLE IF NOT EXISTS FUNKO_DELETED (
+    ID INTEGER PRIMARY KEY,
+    uuid UUID,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS IDX_FUNKO_DELETED_AT ON FUNKO_DELETED (deleted_at, id);
\ No newline at end of file
@@ -0,0 +1,57 @@
+package org.develop.adapters;
+
+import org.develop.model.Funko;
+import org.develop.model.Modelo;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FunkoBinaryAdapterTest {
+
+    @Test
+    void roundTripTest() {
+        Funko funko = Funko.builder()
+                .id(7)
+                .myId(42)
+                .uuid(UUID.randomUUID())
+                .name("Stitch Hula ñ")
+                .modelo(Modelo.DISNEY)
+                .precio(19.99)
+                .fecha_lanzamiento(LocalDate.of(2023, 5, 4))
+                .created_at(LocalDateTime.of(2024, 1, 2, 3, 4, 5, 123456789))
+                .build();
+
+        byte[] bytes = FunkoBinaryAdapter.toBytes(funko);
+        Funko read = FunkoBinaryAdapter.read(ByteBuffer.wrap(bytes));
+
+        assertAll(
+                ()-> assertEquals(FunkoBinaryAdapter.FIXED_SIZE + "Stitch Hula ñ".getBytes("UTF-8").length, bytes.length),
+                ()-> assertEquals(funko, read)
+        );
+    }
+
+    @Test
+    void nullFieldsTest() {
+        Funko funko = Funko.builder()
+                .id(1)
+                .created_at(null)
+                .updated_at(null)
+                .build();
+
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        int written = FunkoBinaryAdapter.write(buffer, funko);
+        buffer.flip();
+        Funko read = FunkoBinaryAdapter.read(buffer);
+
+        assertAll(
+                ()-> assertEquals(FunkoBinaryAdapter.FIXED_SIZE, written),
+                ()-> assertEquals(funko, read),
+                ()-> assertFalse(buffer.hasRemaining())
+        );
+    }
+}
@@ -0,0 +1,66 @@
+package org.develop.backupManager;
+
+import com.google.gson.JsonParser;
+import org.develop.model.Funko;
+import org.develop.model.Modelo;
+import org.develop.services.files.BackupFormat;
+import org.develop.services.files.BackupManagerImpl;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Compara el tamano y el tiempo de escritura y lectura de una copia de seguridad de Funkos en JSON, en binario y en
+ * binario comprimido con GZIP. La lectura del JSON se mide con JsonParser, ya que la aplicacion no restaura JSON.
+ * No forma parte de los tests; se ejecuta a mano con el classpath de test:
+ * java org.develop.backupManager.BackupFormatBenchmark [funkos] [iteraciones]
+ */
+public class BackupFormatBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        BackupManagerImpl backupManager = BackupManagerImpl.getInstance();
+        Modelo[] modelos = Modelo.values();
+        Flux<Funko> funkos = Flux.range(1, count).map(i -> Funko.builder()
+                .id(i)
+                .uuid(UUID.randomUUID())
+                .name("Funko " + i)
+                .modelo(modelos[i % modelos.length])
+                .precio(i % 100 + 0.99)
+                .fecha_lanzamiento(LocalDate.of(2020, 1, 1).plusDays(i % 1000))
+                .build());
+
+        for (int i = 0; i < iterations; i++) {
+            for (BackupFormat format : BackupFormat.values()) {
+                String name = "benchmark" + (format == BackupFormat.JSON ? ".json" : format == BackupFormat.BINARY ? ".bin" : ".bin.gz");
+                Path file = Paths.get("").toAbsolutePath().resolve("data").resolve(name);
+                try {
+                    long start = System.nanoTime();
+                    backupManager.writeFile(name, funkos, format).block();
+                    long write = System.nanoTime() - start;
+                    start = System.nanoTime();
+                    long read = format == BackupFormat.JSON ? readJson(file) : backupManager.readBackup(name).count().block();
+                    long readTime = System.nanoTime() - start;
+                    System.out.printf("Iteracion %d, %s: %.1f MB, escritura=%d ms, lectura=%d ms (%d Funkos)%n",
+                            i, format, Files.size(file) / (1024.0 * 1024.0), write / 1_000_000, readTime / 1_000_000, read);
+                } finally {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static long readJson(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader).getAsJsonArray().size();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.develop.backupManager;
 
+import com.google.gson.JsonParser;
 import org.develop.model.Funko;
 import org.develop.model.Modelo;
 import org.develop.services.files.BackupManager;
@@ -7,12 +8,20 @@ import org.develop.services.files.BackupManagerImpl;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -69,4 +78,105 @@ class BackupManagerImplTest {
                 ()-> assertEquals(listFunks.size(),90)
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void readFileParallel() {
+        var expected = backupManager.readFile("funkos.csv").map(Funko::getUuid).collectList().block();
+
+        var ordered = backupManager.readFileParallel("funkos.csv", true).map(Funko::getUuid).collectList().block();
+        var unordered = backupManager.readFileParallel("funkos.csv", false).map(Funko::getUuid).collectList().block();
+
+        assertAll(
+                ()-> assertEquals(expected, ordered),
+                ()-> assertEquals(expected.size(), unordered.size()),
+                ()-> assertTrue(unordered.containsAll(expected))
+        );
+    }
+
+    @Test
+    void writeFileStream() throws IOException {
+        Path file = Paths.get("").toAbsolutePath().resolve("data").resolve("testFunkosStream.json");
+        try {
+            boolean res = backupManager.writeFile(file.getFileName().toString(), Flux.just(funko1, funko2)).block();
+            String json = Files.readString(file);
+
+            assertAll(
+                    ()-> assertTrue(res),
+                    ()-> assertTrue(json.startsWith("[")),
+                    ()-> assertTrue(json.contains(funko1.getUuid().toString())),
+                    ()-> assertTrue(json.contains(funko2.getUuid().toString())),
+                    ()-> assertEquals(2, JsonParser.parseString(json).getAsJsonArray().size()),
+                    ()-> assertTrue(tempFiles(file).isEmpty())
+            );
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void writeFileConcurrent() throws IOException {
+        Path file = Paths.get("").toAbsolutePath().resolve("data").resolve("testFunkosStream.json");
+        try {
+            var res = Mono.zip(
+                    backupManager.writeFile(file.getFileName().toString(),
+                            Flux.just(funko1, funko2).delayElements(Duration.ofMillis(50))),
+                    backupManager.writeFile(file.getFileName().toString(),
+                            Flux.just(funko2).delayElements(Duration.ofMillis(50)))
+            ).block();
+            int size = JsonParser.parseString(Files.readString(file)).getAsJsonArray().size();
+
+            assertAll(
+                    ()-> assertTrue(res.getT1()),
+                    ()-> assertTrue(res.getT2()),
+                    ()-> assertTrue(size == 1 || size == 2),
+                    ()-> assertTrue(tempFiles(file).isEmpty())
+            );
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void writeFileStreamError() throws IOException {
+        Path file = Paths.get("").toAbsolutePath().resolve("data").resolve("testFunkosStream.json");
+        try {
+            backupManager.writeFile(file.getFileName().toString(), Flux.just(funko1)).block();
+            String previous = Files.readString(file);
+
+            boolean res = backupManager.writeFile(file.getFileName().toString(),
+                    Flux.concat(Flux.just(funko2), Flux.error(new IllegalStateException("Fallo")))).block();
+
+            assertAll(
+                    ()-> assertFalse(res),
+                    ()-> assertEquals(previous, Files.readString(file)),
+                    ()-> assertTrue(tempFiles(file).isEmpty())
+            );
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void writeFileBinary() throws IOException {
+        Path file = Paths.get("").toAbsolutePath().resolve("data").resolve("testFunkos.bin.gz");
+        try {
+            boolean res = backupManager.writeFile(file.getFileName().toString(), Flux.just(funko1, funko2)).block();
+            var funkos = backupManager.readBackup(file.getFileName().toString()).collectList().block();
+
+            assertAll(
+                    ()-> assertTrue(res),
+                    ()-> assertEquals(List.of(funko1, funko2), funkos)
+            );
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<Path> tempFiles(Path file) throws IOException {
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            return files.filter(path -> path.getFileName().toString().startsWith(file.getFileName().toString())
+                            && path.getFileName().toString().endsWith(".tmp"))
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package org.develop.backupManager;
+
+import org.develop.adapters.FunkoBinaryAdapter;
+import org.develop.model.Funko;
+import org.develop.model.Modelo;
+import org.develop.services.files.BackupFormat;
+import org.develop.services.files.FunkoBinaryReader;
+import org.develop.services.files.FunkoBinaryWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FunkoBinaryBackupTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripTest() throws IOException {
+        List<Funko> funkos = funkos(5000);
+        funkos.add(Funko.builder().id(5001).created_at(null).updated_at(null).build());
+        Path file = dir.resolve("funkos.bin");
+
+        write(file, funkos, false);
+
+        assertEquals(funkos, readAll(file));
+    }
+
+    @Test
+    void compressedRoundTripTest() throws IOException {
+        List<Funko> funkos = funkos(5000);
+        Path plain = dir.resolve("funkos.bin");
+        Path compressed = dir.resolve("funkos.bin.gz");
+
+        write(plain, funkos, false);
+        write(compressed, funkos, true);
+
+        assertAll(
+                () -> assertEquals(funkos, readAll(compressed)),
+                () -> assertTrue(Files.size(compressed) < Files.size(plain))
+        );
+    }
+
+    @Test
+    void emptyTest() throws IOException {
+        Path file = dir.resolve("empty.bin");
+
+        write(file, List.of(), false);
+
+        assertTrue(readAll(file).isEmpty());
+    }
+
+    @Test
+    void corruptBlockTest() throws IOException {
+        Path file = dir.resolve("funkos.bin");
+        write(file, funkos(10), false);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[40] ^= 1;
+        Files.write(file, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> readAll(file));
+
+        assertTrue(e.getMessage().contains("Suma de comprobacion"));
+    }
+
+    @Test
+    void truncatedTest() throws IOException {
+        Path file = dir.resolve("funkos.bin");
+        write(file, funkos(10), false);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+
+        assertThrows(IOException.class, () -> readAll(file));
+    }
+
+    @Test
+    void verifyTest() throws IOException {
+        Path file = dir.resolve("funkos.bin.gz");
+        write(file, funkos(3000), true);
+        Path truncated = dir.resolve("truncated.bin");
+        write(truncated, funkos(3000), false);
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 8));
+
+        assertAll(
+                () -> assertEquals(3000, FunkoBinaryReader.verify(file)),
+                () -> assertThrows(IOException.class, () -> FunkoBinaryReader.verify(truncated))
+        );
+    }
+
+    @Test
+    void notABackupTest() throws IOException {
+        Path file = dir.resolve("funkos.bin");
+        Files.writeString(file, "COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO\n");
+
+        assertThrows(IOException.class, () -> FunkoBinaryReader.open(file));
+    }
+
+    @Test
+    void deletedTest() throws IOException {
+        List<Funko> funkos = funkos(3000);
+        List<Funko> deleted = funkos(2000);
+        Path file = dir.resolve("incremental.bin.gz");
+
+        try (FunkoBinaryWriter writer = FunkoBinaryWriter.create(file, true)) {
+            for (Funko funko : funkos) {
+                writer.write(funko);
+            }
+            for (Funko funko : deleted) {
+                writer.writeDeleted(funko);
+            }
+            writer.finish();
+        }
+        List<Funko> tombstones = new ArrayList<>();
+        try (FunkoBinaryReader reader = FunkoBinaryReader.openDeleted(file)) {
+            for (Funko funko = reader.next(); funko != null; funko = reader.next()) {
+                tombstones.add(funko);
+            }
+        }
+
+        assertAll(
+                () -> assertEquals(funkos, readAll(file)),
+                () -> assertEquals(deleted.size(), tombstones.size()),
+                () -> assertEquals(deleted.get(7).getId(), tombstones.get(7).getId()),
+                () -> assertEquals(deleted.get(7).getUuid(), tombstones.get(7).getUuid()),
+                () -> assertEquals(deleted.get(7).getUpdated_at(), tombstones.get(7).getUpdated_at()),
+                () -> assertNull(tombstones.get(7).getName())
+        );
+    }
+
+    @Test
+    void versionOneTest() throws IOException {
+        List<Funko> funkos = funkos(3);
+        ByteBuffer payload = ByteBuffer.allocate(FunkoBinaryWriter.MAX_BLOCK_SIZE);
+        for (Funko funko : funkos) {
+            FunkoBinaryAdapter.write(payload, funko);
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload.array(), 0, payload.position());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FunkoBinaryWriter.MAGIC);
+            out.writeShort(1);
+            out.writeInt(funkos.size());
+            out.writeInt(payload.position());
+            out.write(payload.array(), 0, payload.position());
+            out.writeInt((int) checksum.getValue());
+            out.writeInt(0);
+            out.writeLong(funkos.size());
+        }
+        Path file = dir.resolve("v1.bin");
+        Files.write(file, bytes.toByteArray());
+
+        assertEquals(funkos, readAll(file));
+    }
+
+    @Test
+    void fromFileNameTest() {
+        assertAll(
+                () -> assertEquals(BackupFormat.JSON, BackupFormat.fromFileName("funkos.json")),
+                () -> assertEquals(BackupFormat.BINARY, BackupFormat.fromFileName("funkos.bin")),
+                () -> assertEquals(BackupFormat.BINARY_GZIP, BackupFormat.fromFileName("funkos.bin.gz"))
+        );
+    }
+
+    private static List<Funko> funkos(int count) {
+        List<Funko> funkos = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            funkos.add(Funko.builder()
+                    .id(i)
+                    .uuid(UUID.randomUUID())
+                    .name("Funko " + i)
+                    .modelo(Modelo.values()[i % Modelo.values().length])
+                    .precio(i * 1.25)
+                    .fecha_lanzamiento(LocalDate.of(2020, 1, 1).plusDays(i))
+                    .created_at(LocalDateTime.of(2023, 10, 1, 12, 0).plusSeconds(i))
+                    .updated_at(LocalDateTime.of(2023, 10, 2, 12, 0, 0, i))
+                    .build());
+        }
+        return funkos;
+    }
+
+    private static void write(Path file, List<Funko> funkos, boolean compress) throws IOException {
+        try (FunkoBinaryWriter writer = FunkoBinaryWriter.create(file, compress)) {
+            for (Funko funko : funkos) {
+                writer.write(funko);
+            }
+            writer.finish();
+        }
+    }
+
+    private static List<Funko> readAll(Path file) throws IOException {
+        List<Funko> funkos = new ArrayList<>();
+        try (FunkoBinaryReader reader = FunkoBinaryReader.open(file)) {
+            for (Funko funko = reader.next(); funko != null; funko = reader.next()) {
+                funkos.add(funko);
+            }
+        }
+        return funkos;
+    }
+}
@@ -0,0 +1,102 @@
+package org.develop.backupManager;
+
+import org.develop.model.Funko;
+import org.develop.model.Modelo;
+import org.develop.services.files.BackupManagerImpl;
+import org.develop.services.files.FunkoCsvReader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Mide el coste por fila de leer un CSV de Funkos con el metodo anterior (BufferedReader, un String por linea y
+ * Funko.setFunko), con FunkoCsvReader sobre el archivo proyectado en memoria y con la lectura en paralelo de
+ * BackupManagerImpl, ordenada y sin ordenar, con todos los nucleos.
+ * No forma parte de los tests; se ejecuta a mano con el classpath de test:
+ * java org.develop.backupManager.FunkoCsvReaderBenchmark [filas] [iteraciones]
+ */
+public class FunkoCsvReaderBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Path file = Files.createTempFile("funkos", ".csv");
+        Modelo[] modelos = Modelo.values();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO");
+            writer.newLine();
+            for (int i = 0; i < rows; i++) {
+                writer.write(UUID.randomUUID() + ",Funko " + i + "," + modelos[i % modelos.length] + ","
+                        + (i % 100) + ".99," + LocalDate.of(2020, 1, 1).plusDays(i % 1000));
+                writer.newLine();
+            }
+        }
+        double megabytes = Files.size(file) / (1024.0 * 1024.0);
+
+        try {
+            for (int i = 0; i < iterations; i++) {
+                long legacy = legacy(file);
+                long mapped = mapped(file);
+                long ordered = parallel(file, true);
+                long unordered = parallel(file, false);
+                System.out.printf("Iteracion %d: lineas=%.0f MB/s, proyectado=%.0f MB/s, paralelo ordenado=%.0f MB/s, "
+                                + "paralelo sin ordenar=%.0f MB/s%n",
+                        i, megabytes / (legacy / 1e9), megabytes / (mapped / 1e9),
+                        megabytes / (ordered / 1e9), megabytes / (unordered / 1e9));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static long legacy(Path file) throws IOException {
+        long start = System.nanoTime();
+        long sum = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file.toFile()))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sum += Funko.builder().build().setFunko(line).getName().length();
+            }
+        }
+        consume(sum);
+        return System.nanoTime() - start;
+    }
+
+    private static long mapped(Path file) throws IOException {
+        long start = System.nanoTime();
+        long sum = 0;
+        try (FunkoCsvReader reader = FunkoCsvReader.open(file)) {
+            for (Funko funko = reader.next(); funko != null; funko = reader.next()) {
+                sum += funko.getName().length();
+            }
+        }
+        consume(sum);
+        return System.nanoTime() - start;
+    }
+
+    private static long parallel(Path file, boolean ordered) {
+        long start = System.nanoTime();
+        long sum = BackupManagerImpl.getInstance()
+                .readFileParallel(file, Runtime.getRuntime().availableProcessors(), ordered)
+                .map(funko -> (long) funko.getName().length())
+                .reduce(0L, Long::sum)
+                .block();
+        consume(sum);
+        return System.nanoTime() - start;
+    }
+
+    private static void consume(long value) {
+        if (value == 42) {
+            System.out.println();
+        }
+    }
+}
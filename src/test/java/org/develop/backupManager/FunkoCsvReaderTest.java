@@ -0,0 +1,131 @@
+package org.develop.backupManager;
+
+import org.develop.model.Funko;
+import org.develop.services.files.FunkoCsvReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FunkoCsvReaderTest {
+
+    private static final String HEADER = "COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameAsSetFunkoTest() throws IOException {
+        Path file = Paths.get("data", "funkos.csv");
+        List<String> lines = Files.readAllLines(file);
+
+        List<Funko> funkos = readAll(FunkoCsvReader.open(file));
+
+        assertEquals(lines.size() - 1, funkos.size());
+        for (int i = 0; i < funkos.size(); i++) {
+            assertSameFields(Funko.builder().build().setFunko(lines.get(i + 1)), funkos.get(i));
+        }
+    }
+
+    @Test
+    void smallWindowsTest() throws IOException {
+        Path file = Paths.get("data", "funkos.csv");
+        List<Funko> expected = readAll(FunkoCsvReader.open(file));
+
+        List<Funko> funkos;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long start = FunkoCsvReader.firstLineEnd(channel, FunkoCsvReader.WINDOW_SIZE);
+            funkos = readAll(new FunkoCsvReader(channel, start, channel.size(), 128));
+        }
+
+        assertEquals(expected.size(), funkos.size());
+        for (int i = 0; i < funkos.size(); i++) {
+            assertSameFields(expected.get(i), funkos.get(i));
+        }
+    }
+
+    @Test
+    void splitTest() throws IOException {
+        Path file = Paths.get("data", "funkos.csv");
+        List<Funko> expected = readAll(FunkoCsvReader.open(file));
+
+        List<Funko> funkos = new ArrayList<>();
+        long[] boundaries;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long start = FunkoCsvReader.firstLineEnd(channel, FunkoCsvReader.WINDOW_SIZE);
+            boundaries = FunkoCsvReader.split(channel, start, channel.size(), 7);
+            for (int i = 0; i + 1 < boundaries.length; i++) {
+                funkos.addAll(readAll(new FunkoCsvReader(channel, boundaries[i], boundaries[i + 1], FunkoCsvReader.WINDOW_SIZE)));
+            }
+        }
+
+        assertEquals(8, boundaries.length);
+        assertEquals(expected.size(), funkos.size());
+        for (int i = 0; i < funkos.size(); i++) {
+            assertSameFields(expected.get(i), funkos.get(i));
+        }
+    }
+
+    @Test
+    void edgeCasesTest() throws IOException {
+        List<String> rows = List.of(
+                "3b6c6f58-79b9-434b-82ab-01a2d6e4434a,Pokémon Ñ,ANIME,0.1,2024-02-30",
+                "f8f7ae42-5b01-4d3b-82ab-2d1a2d6e4434a,Con espacios ,OTROS,1e2,2023-02-29",
+                "6B6C6F58-7C6B-434B-82AB-01B2D6E4434A,Negativo,DISNEY,-3.50,2022-04-31",
+                "a8f7ae42-5b01-4d3b-82ab-2d1a2d6e4434,Muchas cifras,MARVEL,12345678901234567.5,2022-06-01,extra"
+        );
+        Path file = dir.resolve("edge.csv");
+        Files.writeString(file, HEADER + rows.get(0) + "\r\n\n" + rows.get(1) + "\r\n" + rows.get(2) + "\n" + rows.get(3));
+
+        List<Funko> funkos = readAll(FunkoCsvReader.open(file));
+
+        assertEquals(rows.size(), funkos.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertSameFields(Funko.builder().build().setFunko(rows.get(i)), funkos.get(i));
+        }
+    }
+
+    @Test
+    void invalidLineTest() throws IOException {
+        Path file = dir.resolve("invalid.csv");
+        Files.writeString(file, HEADER + "3b6c6f58-79b9-434b-82ab-01a2d6e4434a,Sin campos\n");
+
+        try (FunkoCsvReader reader = FunkoCsvReader.open(file)) {
+            assertThrows(IllegalArgumentException.class, reader::next);
+        }
+
+        Files.writeString(file, HEADER + "no-es-un-uuid,Nombre,ANIME,1.0,2022-01-01\n");
+        try (FunkoCsvReader reader = FunkoCsvReader.open(file)) {
+            assertThrows(IllegalArgumentException.class, reader::next);
+        }
+    }
+
+    private static List<Funko> readAll(FunkoCsvReader reader) throws IOException {
+        List<Funko> funkos = new ArrayList<>();
+        try (reader) {
+            for (Funko funko = reader.next(); funko != null; funko = reader.next()) {
+                funkos.add(funko);
+            }
+        }
+        return funkos;
+    }
+
+    private static void assertSameFields(Funko expected, Funko actual) {
+        assertAll(
+                ()-> assertEquals(expected.getUuid(), actual.getUuid()),
+                ()-> assertEquals(expected.getName(), actual.getName()),
+                ()-> assertEquals(expected.getModelo(), actual.getModelo()),
+                ()-> assertEquals(expected.getPrecio(), actual.getPrecio()),
+                ()-> assertEquals(expected.getFecha_lanzamiento(), actual.getFecha_lanzamiento())
+        );
+    }
+}
@@ -1,13 +1,17 @@
 package org.develop.cache;
 
+import org.develop.adapters.FunkoBinaryAdapter;
 import org.develop.model.Funko;
 import org.develop.model.Modelo;
+import org.develop.services.cache.OffHeapStore;
 import org.develop.services.funkos.FunkoCacheImpl;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -61,6 +65,62 @@ class FunkoCacheImplTest {
         );
     }
 
+    @Test
+    void secondaryIndexTest() {
+        funkoCache.put(funko1.getId(),funko1).block();
+        funkoCache.put(funko2.getId(),funko2).block();
+        Funko renamed = Funko.builder()
+                .id(1)
+                .uuid(funko1.getUuid())
+                .name("renamed")
+                .modelo(Modelo.OTROS)
+                .precio(2.0)
+                .build();
+
+        assertAll(
+                ()-> assertEquals(funko1, funkoCache.getByUuid(funko1.getUuid()).block()),
+                ()-> assertEquals(List.of(funko2), funkoCache.getByName("test2").collectList().block()),
+                ()-> assertTrue(funkoCache.getByName("tes").collectList().block().isEmpty())
+        );
+
+        funkoCache.put(renamed.getId(),renamed).block();
+        funkoCache.remove(funko2.getId()).block();
+
+        assertAll(
+                ()-> assertEquals(renamed, funkoCache.getByUuid(funko1.getUuid()).block()),
+                ()-> assertTrue(funkoCache.getByName("test").collectList().block().isEmpty()),
+                ()-> assertEquals(List.of(renamed), funkoCache.getByName("renamed").collectList().block()),
+                ()-> assertTrue(funkoCache.getByUuid(funko2.getUuid()).blockOptional().isEmpty())
+        );
+    }
+
+    @Test
+    void secondaryIndexEvictionTest() {
+        for (int i = 1; i <= 100; i++) {
+            funkoCache.put(i, Funko.builder()
+                    .id(i)
+                    .uuid(UUID.randomUUID())
+                    .name("funko" + i)
+                    .modelo(Modelo.OTROS)
+                    .precio(1.0)
+                    .build()).block();
+        }
+
+        long indexed = funkoCache.getCache().values().stream()
+                .filter(funko -> funkoCache.getByUuid(funko.getUuid()).blockOptional().isPresent())
+                .count();
+        long named = 0;
+        for (int i = 1; i <= 100; i++) {
+            named += funkoCache.getByName("funko" + i).count().block();
+        }
+
+        assertAll(
+                ()-> assertEquals(10, funkoCache.getCache().size()),
+                ()-> assertEquals(10, indexed)
+        );
+        assertEquals(10, named);
+    }
+
     @Test
     void getTest() {
         funkoCache.put(funko1.getId(),funko1).block();
@@ -86,6 +146,66 @@ class FunkoCacheImplTest {
     }
 
 
+    @Test
+    void secondLevelTest() {
+        FunkoCacheImpl twoLevels = new FunkoCacheImpl(1, null, null, new OffHeapStore(4096, 2, null));
+        twoLevels.put(funko1.getId(),funko1).block();
+        twoLevels.put(funko2.getId(),funko2).block();
+        Optional<Funko> fromSecondLevel = twoLevels.get(funko1.getId()).blockOptional();
+        twoLevels.shutdown();
+
+        assertAll(
+                ()-> assertTrue(fromSecondLevel.isPresent()),
+                ()-> assertEquals(funko1, fromSecondLevel.get()),
+                ()-> assertEquals(1, twoLevels.getSecondLevelStats().get().getHitCount())
+        );
+    }
+
+    @Test
+    void secondLevelKeepsWriteTimeTest() throws InterruptedException {
+        OffHeapStore secondLevel = new OffHeapStore(4096, 2, Duration.ofMillis(300));
+        FunkoCacheImpl twoLevels = new FunkoCacheImpl(10, Duration.ofMillis(300), null, secondLevel);
+        secondLevel.put(funko1.getId(), FunkoBinaryAdapter.toBytes(funko1));
+        Thread.sleep(200);
+        Optional<Funko> promoted = twoLevels.get(funko1.getId()).blockOptional();
+        Thread.sleep(150);
+        Optional<Funko> expired = twoLevels.get(funko1.getId()).blockOptional();
+        twoLevels.shutdown();
+
+        assertAll(
+                ()-> assertTrue(promoted.isPresent()),
+                ()-> assertTrue(expired.isEmpty())
+        );
+    }
+
+    @Test
+    void secondLevelKeepsLastPutTest() throws InterruptedException {
+        OffHeapStore secondLevel = new OffHeapStore(4096, 2, null);
+        FunkoCacheImpl twoLevels = new FunkoCacheImpl(10, null, null, secondLevel);
+        Funko renamed = Funko.builder()
+                .id(funko1.getId())
+                .uuid(funko1.getUuid())
+                .name("renamed")
+                .modelo(funko1.getModelo())
+                .precio(funko1.getPrecio())
+                .fecha_lanzamiento(funko1.getFecha_lanzamiento())
+                .build();
+        boolean consistent = true;
+        for (int i = 0; i < 200 && consistent; i++) {
+            Thread first = new Thread(() -> twoLevels.put(funko1.getId(), funko1).block());
+            Thread second = new Thread(() -> twoLevels.put(funko1.getId(), renamed).block());
+            first.start();
+            second.start();
+            first.join();
+            second.join();
+            Funko inSecondLevel = secondLevel.get(funko1.getId(), FunkoBinaryAdapter::read);
+            consistent = inSecondLevel.equals(twoLevels.getIfPresent(funko1.getId()));
+        }
+        twoLevels.shutdown();
+
+        assertTrue(consistent);
+    }
+
     @Test
     void clearForTimeTest() throws InterruptedException {
         funkoCache.put(funko1.getId(),funko1).block();
@@ -0,0 +1,89 @@
+package org.develop.cache;
+
+import org.develop.model.Funko;
+import org.develop.model.Modelo;
+import org.develop.services.funkos.FunkoCacheImpl;
+import org.develop.services.funkos.FunkoCacheSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FunkoCacheSnapshotTest {
+
+    private FunkoCacheImpl cache;
+    private Path file;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setup(){
+        cache = new FunkoCacheImpl(10);
+        file = dir.resolve("snapshot.txt");
+        for (int i = 1; i <= 5; i++) {
+            cache.put(i, Funko.builder()
+                    .id(i)
+                    .uuid(UUID.randomUUID())
+                    .name("test" + i)
+                    .modelo(Modelo.OTROS)
+                    .precio(1.0)
+                    .fecha_lanzamiento(LocalDate.of(2024,1,20))
+                    .build()).block();
+        }
+    }
+
+    @AfterEach
+    void teardown(){
+        cache.shutdown();
+    }
+
+    @Test
+    void saveLoadTest() throws IOException {
+        for (int round = 0; round < 5; round++) {
+            cache.get(4).block();
+        }
+        FunkoCacheSnapshot snapshot = new FunkoCacheSnapshot(file, cache, 3);
+
+        int saved = snapshot.save();
+        List<Integer> ids = snapshot.load();
+
+        assertAll(
+                ()-> assertEquals(3, saved),
+                ()-> assertEquals(3, ids.size()),
+                ()-> assertTrue(ids.contains(4)),
+                ()-> assertFalse(Files.exists(dir.resolve("snapshot.txt.tmp")))
+        );
+    }
+
+    @Test
+    void loadMissingOrInvalidTest() throws IOException {
+        FunkoCacheSnapshot snapshot = new FunkoCacheSnapshot(file, cache, 10);
+        assertTrue(snapshot.load().isEmpty());
+
+        Files.writeString(file, "3\nnoEsUnId\n1\n");
+
+        assertEquals(List.of(3, 1), snapshot.load());
+    }
+
+    @Test
+    void emptyCacheKeepsSnapshotTest() throws IOException {
+        FunkoCacheSnapshot snapshot = new FunkoCacheSnapshot(file, cache, 10);
+        snapshot.save();
+        cache.clear();
+
+        assertAll(
+                ()-> assertEquals(0, snapshot.save()),
+                ()-> assertEquals(5, snapshot.load().size())
+        );
+    }
+}
@@ -0,0 +1,106 @@
+package org.develop.cache;
+
+import org.develop.model.Funko;
+import org.develop.model.Modelo;
+import org.develop.model.Notificacion;
+import org.develop.services.funkos.FunkoSearchCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FunkoSearchCacheTest {
+
+    private FunkoSearchCache searchCache;
+    private Funko funko1, funko2;
+
+    @BeforeEach
+    void setup(){
+        searchCache = new FunkoSearchCache(2);
+
+        funko1 = Funko.builder()
+                .id(1)
+                .uuid(UUID.randomUUID())
+                .name("Stitch Hula")
+                .modelo(Modelo.DISNEY)
+                .precio(1.0)
+                .fecha_lanzamiento(LocalDate.of(2024,1,20))
+                .build();
+
+        funko2 = Funko.builder()
+                .id(2)
+                .uuid(UUID.randomUUID())
+                .name("Thor Hammer")
+                .modelo(Modelo.MARVEL)
+                .precio(1.5)
+                .fecha_lanzamiento(LocalDate.of(2026,4,10))
+                .build();
+    }
+
+    @Test
+    void putGetTest() {
+        searchCache.put("Stitch", List.of(funko1)).block();
+
+        var res = searchCache.get("Stitch").block();
+
+        assertAll(
+                ()-> assertNotNull(res),
+                ()-> assertEquals(1, res.size()),
+                ()-> assertTrue(searchCache.get("Thor").blockOptional().isEmpty())
+        );
+    }
+
+    @Test
+    void maxSizeTest() {
+        searchCache.put("a", List.of()).block();
+        searchCache.put("b", List.of()).block();
+        searchCache.get("a").block();
+        searchCache.put("c", List.of()).block();
+
+        assertAll(
+                ()-> assertEquals(2, searchCache.size()),
+                ()-> assertTrue(searchCache.get("a").blockOptional().isPresent()),
+                ()-> assertTrue(searchCache.get("b").blockOptional().isEmpty())
+        );
+    }
+
+    @Test
+    void invalidateNewByNameTest() {
+        searchCache.put("Stitch", List.of(funko1)).block();
+        searchCache.put("Thor", List.of(funko2)).block();
+        Funko nuevo = Funko.builder().id(3).name("Stitch Surfer").modelo(Modelo.DISNEY).build();
+
+        searchCache.invalidate(new Notificacion<>(Notificacion.Tipo.NEW, nuevo));
+
+        assertAll(
+                ()-> assertTrue(searchCache.get("Stitch").blockOptional().isEmpty()),
+                ()-> assertTrue(searchCache.get("Thor").blockOptional().isPresent())
+        );
+    }
+
+    @Test
+    void invalidateUpdatedAndDeletedByIdTest() {
+        searchCache.put("Stitch", List.of(funko1)).block();
+        searchCache.put("Thor", List.of(funko2)).block();
+        funko1.setName("Renamed");
+
+        searchCache.invalidate(new Notificacion<>(Notificacion.Tipo.UPDATED, funko1));
+        searchCache.invalidate(new Notificacion<>(Notificacion.Tipo.DELETED, funko2));
+
+        assertEquals(0, searchCache.size());
+    }
+
+    @Test
+    void putIfCurrentTest() {
+        long version = searchCache.version();
+        searchCache.invalidate(new Notificacion<>(Notificacion.Tipo.NEW, funko2));
+
+        searchCache.putIfCurrent("Stitch", List.of(funko1), version).block();
+
+        assertTrue(searchCache.get("Stitch").blockOptional().isEmpty());
+    }
+}
@@ -0,0 +1,104 @@
+package org.develop.cache;
+
+import org.develop.services.cache.OffHeapStore;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapStoreTest {
+
+    private static String decode(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+
+    private static byte[] value(int i) {
+        return ("valor-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void putGetRemoveTest() {
+        OffHeapStore store = new OffHeapStore(1024, 2, null);
+        store.put(1, value(1));
+        store.put(1, value(11));
+        store.put(2, value(2));
+        store.remove(2);
+
+        assertAll(
+                ()-> assertEquals("valor-11", store.get(1, OffHeapStoreTest::decode)),
+                ()-> assertNull(store.get(2, OffHeapStoreTest::decode)),
+                ()-> assertEquals(1, store.size())
+        );
+    }
+
+    @Test
+    void evictionKeepsReadEntriesTest() {
+        OffHeapStore store = new OffHeapStore(256, 4, null);
+        for (int i = 0; i < 10; i++) {
+            store.put(i, value(i));
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 5; i++) {
+                assertEquals("valor-" + i, store.get(i, OffHeapStoreTest::decode));
+            }
+            for (int i = 0; i < 20; i++) {
+                store.put(100 + round * 20 + i, value(100 + round * 20 + i));
+            }
+        }
+
+        assertAll(
+                ()-> assertEquals("valor-0", store.get(0, OffHeapStoreTest::decode)),
+                ()-> assertNull(store.get(5, OffHeapStoreTest::decode)),
+                ()-> assertTrue(store.stats().getSizeEvictionCount() > 0),
+                ()-> assertTrue(store.size() < 60)
+        );
+    }
+
+    @Test
+    void tooLargeValueTest() {
+        OffHeapStore store = new OffHeapStore(64, 2, null);
+
+        assertFalse(store.put(1, new byte[100]));
+        assertNull(store.get(1, OffHeapStoreTest::decode));
+    }
+
+    @Test
+    void getWithAgeTest() {
+        AtomicLong ticker = new AtomicLong();
+        OffHeapStore store = new OffHeapStore(1024, 2, Duration.ofSeconds(10), ticker::get);
+        store.put(1, value(1));
+        ticker.addAndGet(Duration.ofSeconds(4).toNanos());
+        Long age = store.getWithAge(1, (buffer, ageNanos) -> ageNanos);
+
+        assertEquals(Duration.ofSeconds(4).toNanos(), age);
+    }
+
+    @Test
+    void expireAfterWriteTest() {
+        AtomicLong ticker = new AtomicLong();
+        OffHeapStore store = new OffHeapStore(1024, 2, Duration.ofSeconds(10), ticker::get);
+        store.put(1, value(1));
+
+        ticker.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertEquals("valor-1", store.get(1, OffHeapStoreTest::decode));
+        ticker.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(store.get(1, OffHeapStoreTest::decode));
+    }
+
+    @Test
+    void clearTest() {
+        OffHeapStore store = new OffHeapStore(1024, 2, null);
+        store.put(1, value(1));
+        store.clear();
+        store.put(2, value(2));
+
+        assertAll(
+                ()-> assertNull(store.get(1, OffHeapStoreTest::decode)),
+                ()-> assertEquals("valor-2", store.get(2, OffHeapStoreTest::decode))
+        );
+    }
+}
@@ -0,0 +1,288 @@
+package org.develop.cache;
+
+import org.develop.services.cache.CacheStats;
+import org.develop.services.cache.TinyLfuCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyLfuCacheTest {
+
+    private TinyLfuCache<Integer, String> cache;
+
+    @BeforeEach
+    void setup(){
+        cache = new TinyLfuCache<>(100);
+    }
+
+    @Test
+    void putGetTest() {
+        cache.put(1, "uno").block();
+
+        assertAll(
+                ()-> assertEquals("uno", cache.get(1).block()),
+                ()-> assertTrue(cache.get(2).blockOptional().isEmpty()),
+                ()-> assertEquals(1, cache.size())
+        );
+    }
+
+    @Test
+    void removeAndClearTest() {
+        cache.put(1, "uno").block();
+        cache.put(2, "dos").block();
+        cache.remove(1).block();
+
+        assertAll(
+                ()-> assertTrue(cache.get(1).blockOptional().isEmpty()),
+                ()-> assertEquals(1, cache.asMap().size())
+        );
+
+        cache.clear();
+        assertTrue(cache.asMap().isEmpty());
+    }
+
+    @Test
+    void hottestTest() {
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "valor " + i).block();
+        }
+        for (int round = 0; round < 5; round++) {
+            cache.get(7).block();
+            cache.get(3).block();
+        }
+
+        List<Integer> hottest = cache.hottest(2);
+
+        assertAll(
+                ()-> assertEquals(2, hottest.size()),
+                ()-> assertTrue(hottest.containsAll(List.of(3, 7))),
+                ()-> assertEquals(10, cache.hottest(50).size())
+        );
+    }
+
+    @Test
+    void maxSizeTest() {
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "valor " + i).block();
+        }
+
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    void scanResistanceTest() {
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "valor " + i).block();
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get(i).block();
+            }
+            cache.cleanUp();
+        }
+
+        for (int i = 1000; i < 2000; i++) {
+            cache.put(i, "recorrido " + i).block();
+        }
+
+        long hot = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.asMap().containsKey(i)) {
+                hot++;
+            }
+        }
+        assertEquals(50, hot);
+    }
+
+    @Test
+    void expireAfterWriteTest() {
+        AtomicLong ticker = new AtomicLong();
+        TinyLfuCache<Integer, String> expiring = new TinyLfuCache<>(100, Duration.ofMinutes(1), null, ticker::get);
+        expiring.put(1, "uno").block();
+
+        ticker.addAndGet(Duration.ofSeconds(59).toNanos());
+        assertEquals("uno", expiring.get(1).block());
+
+        ticker.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertTrue(expiring.get(1).blockOptional().isEmpty());
+
+        expiring.cleanUp();
+        assertEquals(0, expiring.size());
+    }
+
+    @Test
+    void refreshAheadTest() throws InterruptedException {
+        AtomicLong ticker = new AtomicLong();
+        AtomicLong loads = new AtomicLong();
+        AtomicBoolean loaded = new AtomicBoolean();
+        CountDownLatch release = new CountDownLatch(1);
+        TinyLfuCache<Integer, String> refreshing = new TinyLfuCache<>(100, Duration.ofMinutes(1), null, ticker::get);
+        refreshing.refreshAfterWrite(Duration.ofSeconds(45), key -> Mono.fromCallable(() -> {
+            loads.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            loaded.set(true);
+            return "uno recargado";
+        }));
+        refreshing.put(1, "uno").block();
+
+        ticker.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertEquals("uno", refreshing.get(1).block());
+        assertEquals(0, loads.get());
+
+        ticker.addAndGet(Duration.ofSeconds(20).toNanos());
+        assertEquals("uno", refreshing.get(1).block());
+        assertFalse(loaded.get());
+        assertEquals("uno", refreshing.get(1).block());
+
+        release.countDown();
+        awaitValue(refreshing, 1, "uno recargado");
+
+        assertAll(
+                ()-> assertEquals(1, loads.get()),
+                ()-> assertEquals(1, refreshing.stats().getLoadSuccessCount())
+        );
+    }
+
+    @Test
+    void refreshAheadDiscardedTest() throws InterruptedException {
+        AtomicLong ticker = new AtomicLong();
+        Sinks.One<String> reload = Sinks.one();
+        TinyLfuCache<Integer, String> refreshing = new TinyLfuCache<>(100, Duration.ofMinutes(1), null, ticker::get);
+        refreshing.refreshAfterWrite(Duration.ofSeconds(45), key -> key == 1 ? reload.asMono() : Mono.empty());
+        refreshing.put(1, "uno").block();
+        refreshing.put(2, "dos").block();
+
+        ticker.addAndGet(Duration.ofSeconds(50).toNanos());
+        refreshing.get(1).block();
+        refreshing.put(1, "uno nuevo").block();
+        reload.tryEmitValue("uno antiguo");
+        refreshing.get(2).block();
+        awaitValue(refreshing, 2, null);
+
+        assertAll(
+                ()-> assertEquals("uno nuevo", refreshing.get(1).block()),
+                ()-> assertThrows(IllegalArgumentException.class,
+                        ()-> refreshing.refreshAfterWrite(Duration.ofMinutes(2), key -> Mono.empty()))
+        );
+    }
+
+    @Test
+    void expireAfterAccessTest() {
+        AtomicLong ticker = new AtomicLong();
+        TinyLfuCache<Integer, String> expiring = new TinyLfuCache<>(100, null, Duration.ofSeconds(10), ticker::get);
+        expiring.put(1, "uno").block();
+
+        ticker.addAndGet(Duration.ofSeconds(8).toNanos());
+        assertEquals("uno", expiring.get(1).block());
+        ticker.addAndGet(Duration.ofSeconds(8).toNanos());
+        expiring.cleanUp();
+        assertEquals("uno", expiring.get(1).block());
+
+        ticker.addAndGet(Duration.ofSeconds(11).toNanos());
+        expiring.cleanUp();
+        assertEquals(0, expiring.size());
+    }
+
+    @Test
+    void expireSweepTest() {
+        AtomicLong ticker = new AtomicLong();
+        TinyLfuCache<Integer, String> expiring = new TinyLfuCache<>(1000, Duration.ofMinutes(5), null, ticker::get);
+        for (int i = 0; i < 1000; i++) {
+            expiring.put(i, "valor " + i).block();
+            ticker.addAndGet(Duration.ofMillis(100).toNanos());
+        }
+
+        ticker.addAndGet(Duration.ofMinutes(3).toNanos());
+        expiring.cleanUp();
+        assertEquals(1000, expiring.size());
+
+        ticker.addAndGet(Duration.ofHours(3).toNanos());
+        expiring.cleanUp();
+        assertEquals(0, expiring.size());
+    }
+
+    @Test
+    void statsTest() {
+        AtomicLong ticker = new AtomicLong();
+        TinyLfuCache<Integer, String> small = new TinyLfuCache<>(2, Duration.ofSeconds(10), null, ticker::get);
+        small.put(1, "uno").block();
+        small.get(1).block();
+        small.get(2).block();
+        small.put(2, "dos").block();
+        small.put(3, "tres").block();
+        small.remove(3).block();
+        small.recordLoadSuccess(Duration.ofMillis(3).toNanos());
+        small.recordLoadFailure(Duration.ofMillis(1).toNanos());
+        ticker.addAndGet(Duration.ofSeconds(11).toNanos());
+        small.cleanUp();
+
+        CacheStats stats = small.stats();
+        assertAll(
+                ()-> assertEquals(1, stats.getHitCount()),
+                ()-> assertEquals(1, stats.getMissCount()),
+                ()-> assertEquals(0.5, stats.getHitRate()),
+                ()-> assertEquals(1, stats.getLoadSuccessCount()),
+                ()-> assertEquals(1, stats.getLoadFailureCount()),
+                ()-> assertEquals(2.0, stats.getAverageLoadMillis(), 0.001),
+                ()-> assertTrue(stats.getLoadLatencyPercentileMillis(99) >= 3.0),
+                ()-> assertEquals(1, stats.getSizeEvictionCount()),
+                ()-> assertEquals(1, stats.getExplicitRemovalCount()),
+                ()-> assertEquals(1, stats.getExpirationCount())
+        );
+    }
+
+    @Test
+    void concurrentAccessTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 50_000; i++) {
+                    int key = random.nextInt(500);
+                    int op = random.nextInt(10);
+                    if (op < 7) {
+                        String value = cache.get(key).block();
+                        assertTrue(value == null || value.equals("valor " + key));
+                    } else if (op < 9) {
+                        cache.put(key, "valor " + key).block();
+                    } else {
+                        cache.remove(key).block();
+                    }
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+        cache.cleanUp();
+
+        assertTrue(cache.size() <= 100);
+        cache.asMap().forEach((key, value) -> assertEquals("valor " + key, value));
+    }
+
+    private static void awaitValue(TinyLfuCache<Integer, String> cache, int key, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Objects.equals(expected, cache.getIfPresent(key)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, cache.getIfPresent(key));
+    }
+}
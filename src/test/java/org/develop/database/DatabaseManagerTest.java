@@ -0,0 +1,74 @@
+package org.develop.database;
+
+import io.r2dbc.spi.Connection;
+import org.develop.services.database.DatabaseManager;
+import org.develop.services.database.PoolStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseManagerTest {
+
+    private DatabaseManager databaseManager;
+
+    @BeforeEach
+    void setup(){
+        databaseManager = DatabaseManager.getInstance();
+    }
+
+    @Test
+    void poolWarmedUpTest() {
+        PoolStats stats = databaseManager.getPoolStats();
+
+        assertAll(
+                ()-> assertTrue(stats.getAllocatedSize() >= 10),
+                ()-> assertEquals(20, stats.getMaxAllocatedSize())
+        );
+    }
+
+    @Test
+    void acquireMetricsTest() {
+        long before = databaseManager.getPoolStats().getAcquireCount();
+
+        Connection connection = Mono.from(databaseManager.getConnectionFactory().create()).block();
+        PoolStats whileAcquired = databaseManager.getPoolStats();
+        Mono.from(connection.close()).block();
+
+        assertAll(
+                ()-> assertEquals(before + 1, whileAcquired.getAcquireCount()),
+                ()-> assertTrue(whileAcquired.getAcquiredSize() >= 1),
+                ()-> assertTrue(whileAcquired.getMaxAcquireMillis() >= whileAcquired.getMeanAcquireMillis())
+        );
+    }
+
+    @Test
+    void poolStatsFluxTest() {
+        PoolStats stats = databaseManager.poolStats(Duration.ofMillis(10)).blockFirst();
+
+        assertNotNull(stats);
+    }
+
+    @Test
+    void initScriptCreatesIndexesTest() {
+        databaseManager.initTables();
+
+        List<String> indexes = Flux.usingWhen(
+                databaseManager.getConnectionFactory().create(),
+                connection -> Flux.from(connection.createStatement(
+                        "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = 'FUNKO'").execute())
+                        .flatMap(result -> result.map((row, metadata) -> row.get(0, String.class))),
+                Connection::close
+        ).collectList().block();
+
+        assertAll(
+                ()-> assertTrue(indexes.contains("IDX_FUNKO_MODELO")),
+                ()-> assertTrue(indexes.contains("IDX_FUNKO_PRECIO"))
+        );
+    }
+}
@@ -0,0 +1,67 @@
+package org.develop.repositories;
+
+import org.develop.repositories.funkos.FunkoNameIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FunkoNameIndexTest {
+
+    private FunkoNameIndex nameIndex;
+
+    @BeforeEach
+    void setup() {
+        nameIndex = new FunkoNameIndex();
+    }
+
+    @Test
+    void searchTest() {
+        nameIndex.put(1, "Super test");
+        nameIndex.put(2, "test2");
+        nameIndex.put(3, "test");
+
+        assertAll(
+                ()-> assertEquals(List.of(3, 2, 1), nameIndex.search("test", 10)),
+                ()-> assertEquals(List.of(3), nameIndex.search("test", 1)),
+                ()-> assertTrue(nameIndex.search("Stitch", 10).isEmpty())
+        );
+    }
+
+    @Test
+    void loadSkipsWrittenIdsTest() {
+        nameIndex.beginLoad();
+        nameIndex.put(1, "Stitch");
+        nameIndex.remove(2);
+        nameIndex.load(1, "test");
+        nameIndex.load(2, "test2");
+        nameIndex.load(3, "test3");
+        nameIndex.endLoad();
+
+        assertAll(
+                ()-> assertEquals(List.of(3), nameIndex.search("test", 10)),
+                ()-> assertEquals(List.of(1), nameIndex.search("Stitch", 10)),
+                ()-> assertEquals(2, nameIndex.size())
+        );
+    }
+
+    @Test
+    void loadAfterClearTest() {
+        nameIndex.beginLoad();
+        nameIndex.load(1, "test");
+        nameIndex.clear();
+        nameIndex.load(2, "test2");
+        nameIndex.endLoad();
+
+        assertEquals(0, nameIndex.size());
+    }
+
+    @Test
+    void loadOutsideLoadingTest() {
+        nameIndex.load(1, "test");
+
+        assertEquals(0, nameIndex.size());
+    }
+}
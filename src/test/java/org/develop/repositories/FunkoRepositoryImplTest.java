@@ -1,5 +1,6 @@
 package org.develop.repositories;
 
+import org.develop.model.BackupChanges;
 import org.develop.model.Funko;
 import org.develop.model.Modelo;
 import org.develop.model.MyIDGenerator;
@@ -9,13 +10,18 @@ import org.develop.services.database.DatabaseManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import io.r2dbc.spi.Connection;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -65,6 +71,46 @@ class FunkoRepositoryImplTest {
         );
     }
 
+    @Test
+    void saveReturnsPersistedFunkoTest() {
+        Funko first = funkoRepository.save(funko1).block();
+        Funko second = funkoRepository.save(funko2).block();
+
+        assertAll(
+                ()-> assertEquals(1, first.getId()),
+                ()-> assertEquals(2, second.getId()),
+                ()-> assertTrue(second.getMyId() > first.getMyId()),
+                ()-> assertEquals(funko2.getModelo(), second.getModelo()),
+                ()-> assertEquals(funko2.getPrecio(), second.getPrecio()),
+                ()-> assertEquals(funko2.getFecha_lanzamiento(), second.getFecha_lanzamiento())
+        );
+    }
+
+    @Test
+    void saveAllTest() {
+        var saved = funkoRepository.saveAll(Flux.just(funko1, funko2), 1).collectList().block();
+        var list = funkoRepository.findAll().collectList().block();
+
+        assertAll(
+                ()-> assertEquals(2, saved.size()),
+                ()-> assertEquals(list.get(0).getId(), saved.get(0).getId()),
+                ()-> assertEquals(list.get(1).getId(), saved.get(1).getId()),
+                ()-> assertEquals(2, list.size()),
+                ()-> assertEquals(funko1.getUuid(), list.get(0).getUuid()),
+                ()-> assertEquals(funko2.getUuid(), list.get(1).getUuid())
+        );
+    }
+
+    @Test
+    void saveAllRollbackTest() {
+        funko2.setName(null);
+
+        assertThrows(Exception.class, ()-> funkoRepository.saveAll(Flux.just(funko1, funko2), 2).blockLast());
+        var list = funkoRepository.findAll().collectList().block();
+
+        assertTrue(list.isEmpty());
+    }
+
     @Test
     void updateTest() {
      Funko fknSave = funkoRepository.save(funko1).block();
@@ -86,6 +132,29 @@ class FunkoRepositoryImplTest {
         );
     }
 
+    @Test
+    void updateAllTest() {
+        Funko saved1 = funkoRepository.save(funko1).block();
+        Funko saved2 = funkoRepository.save(funko2).block();
+        saved1.setName("updated1");
+        saved2.setPrecio(9.5);
+        Funko missing = Funko.builder()
+                .id(-1)
+                .uuid(UUID.randomUUID())
+                .name("missing")
+                .modelo(Modelo.OTROS)
+                .precio(1.0)
+                .build();
+
+        List<Funko> updated = funkoRepository.updateAll(List.of(saved1, missing, saved2)).collectList().block();
+
+        assertAll(
+                ()-> assertEquals(List.of(saved1.getId(), saved2.getId()), updated.stream().map(Funko::getId).collect(Collectors.toList())),
+                ()-> assertEquals("updated1", funkoRepository.findById(saved1.getId()).block().getName()),
+                ()-> assertEquals(9.5, funkoRepository.findById(saved2.getId()).block().getPrecio())
+        );
+    }
+
     @Test
     void findAllTest() {
         funko1.setId(1);
@@ -104,6 +173,47 @@ class FunkoRepositoryImplTest {
         );
     }
 
+    @Test
+    void findAllPageTest() {
+        funkoRepository.saveAll(Flux.just(funko1, funko2)).blockLast();
+
+        List<Funko> first = funkoRepository.findAll(0, 1).collectList().block();
+        List<Funko> second = funkoRepository.findAll(first.get(0).getId(), 1).collectList().block();
+        List<Funko> third = funkoRepository.findAll(second.get(0).getId(), 1).collectList().block();
+
+        assertAll(
+                ()-> assertEquals(1, first.size()),
+                ()-> assertEquals(funko1.getUuid(), first.get(0).getUuid()),
+                ()-> assertEquals(1, second.size()),
+                ()-> assertEquals(funko2.getUuid(), second.get(0).getUuid()),
+                ()-> assertTrue(third.isEmpty())
+        );
+    }
+
+    @Test
+    void streamAllTest() {
+        var funkos = Flux.range(0, 25)
+                .map(i -> Funko.builder()
+                        .uuid(UUID.randomUUID())
+                        .name("test" + i)
+                        .modelo(Modelo.ANIME)
+                        .precio(i)
+                        .fecha_lanzamiento(LocalDate.of(2024,1,20))
+                        .build());
+        funkoRepository.saveAll(funkos).blockLast();
+
+        List<Funko> list = funkoRepository.streamAll(0, 10).collectList().block();
+        List<Funko> resumed = funkoRepository.streamAll(list.get(19).getId(), 10).collectList().block();
+
+        assertAll(
+                ()-> assertEquals(25, list.size()),
+                ()-> assertEquals("test0", list.get(0).getName()),
+                ()-> assertEquals("test24", list.get(24).getName()),
+                ()-> assertEquals(5, resumed.size()),
+                ()-> assertEquals("test20", resumed.get(0).getName())
+        );
+    }
+
     @Test
     void findByIdTest() {
     Funko fknSave = funkoRepository.save(funko1).block();
@@ -118,6 +228,20 @@ class FunkoRepositoryImplTest {
     );
     }
 
+    @Test
+    void findByIdsTest() {
+        Funko fk1 = funkoRepository.save(funko1).block();
+        Funko fk2 = funkoRepository.save(funko2).block();
+
+        List<Funko> found = funkoRepository.findByIds(List.of(fk2.getId(), 100, fk1.getId(), fk2.getId())).collectList().block();
+
+        assertAll(
+                ()-> assertEquals(2, found.size()),
+                ()-> assertEquals(fk2.getUuid(), found.get(0).getUuid()),
+                ()-> assertEquals(fk1.getUuid(), found.get(1).getUuid())
+        );
+    }
+
     @Test
     void findByIdErrorTest(){
      Optional<Funko> fknId = funkoRepository.findById(100).blockOptional();
@@ -160,6 +284,72 @@ class FunkoRepositoryImplTest {
      );
     }
 
+    @Test
+    void findByNameRankedLimitTest() {
+        funko1.setName("Super test");
+        funkoRepository.save(funko1).block();
+        funkoRepository.save(funko2).block();
+        Funko exact = funkoRepository.save(Funko.builder()
+                .uuid(UUID.randomUUID())
+                .name("test")
+                .modelo(Modelo.DISNEY)
+                .precio(2.0)
+                .fecha_lanzamiento(LocalDate.of(2024,1,20))
+                .build()).block();
+
+        var all = funkoRepository.findByName("test", 10).collectList().block();
+        var limited = funkoRepository.findByName("test", 1).collectList().block();
+
+        assertAll(
+                ()-> assertEquals(3, all.size()),
+                ()-> assertEquals(exact.getUuid(), all.get(0).getUuid()),
+                ()-> assertEquals(funko2.getUuid(), all.get(1).getUuid()),
+                ()-> assertEquals(funko1.getUuid(), all.get(2).getUuid()),
+                ()-> assertEquals(1, limited.size()),
+                ()-> assertEquals(exact.getUuid(), limited.get(0).getUuid())
+        );
+    }
+
+    @Test
+    void findByNameLimitAfterNameCheckTest() {
+        Funko exact = funkoRepository.save(funko1).block();
+        funkoRepository.save(funko2).block();
+        funkoRepository.findByName("test").collectList().block();
+        // Cambio hecho fuera del repositorio: el indice sigue teniendo el nombre anterior
+        Mono.usingWhen(
+                DatabaseManager.getInstance().getConnectionFactory().create(),
+                connection -> Mono.from(connection.createStatement("UPDATE FUNKO SET name = 'Stitch' WHERE id = ?")
+                        .bind(0, exact.getId())
+                        .execute()).flatMap(result -> Mono.from(result.getRowsUpdated())),
+                Connection::close
+        ).block();
+
+        var limited = funkoRepository.findByName("test", 1).collectList().block();
+
+        assertAll(
+                ()-> assertEquals(1, limited.size()),
+                ()-> assertEquals(funko2.getUuid(), limited.get(0).getUuid())
+        );
+    }
+
+    @Test
+    void findByNameAfterUpdateAndDeleteTest() {
+        Funko saved = funkoRepository.save(funko1).block();
+        Funko other = funkoRepository.save(funko2).block();
+        saved.setName("Stitch");
+        funkoRepository.update(saved).block();
+        funkoRepository.deleteById(other.getId()).block();
+
+        var byOldName = funkoRepository.findByName("test").collectList().block();
+        var byNewName = funkoRepository.findByName("itc").collectList().block();
+
+        assertAll(
+                ()-> assertTrue(byOldName.isEmpty()),
+                ()-> assertEquals(1, byNewName.size()),
+                ()-> assertEquals(saved.getUuid(), byNewName.get(0).getUuid())
+        );
+    }
+
     @Test
     void findByUuidTest() {
         funkoRepository.save(funko1).block();
@@ -171,4 +361,185 @@ class FunkoRepositoryImplTest {
                 ()-> assertEquals(funkUUID.get().getName(),funko1.getName())
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void findMostExpensiveTest() {
+        funkoRepository.saveAll(Flux.just(funko1, funko2)).blockLast();
+
+        var res = funkoRepository.findMostExpensive().blockOptional();
+
+        assertAll(
+                ()-> assertTrue(res.isPresent()),
+                ()-> assertEquals(funko2.getUuid(), res.get().getUuid())
+        );
+    }
+
+    @Test
+    void findAveragePrecioTest() {
+        assertTrue(funkoRepository.findAveragePrecio().blockOptional().isEmpty());
+
+        funkoRepository.saveAll(Flux.just(funko1, funko2)).blockLast();
+
+        assertEquals(1.25, funkoRepository.findAveragePrecio().block());
+    }
+
+    @Test
+    void findStatsByModeloTest() {
+        funko2.setModelo(Modelo.OTROS);
+        funko2.setPrecio(3.0);
+        funkoRepository.saveAll(Flux.just(funko1, funko2)).blockLast();
+
+        var stats = funkoRepository.findStatsByModelo().collectList().block();
+
+        assertAll(
+                ()-> assertEquals(1, stats.size()),
+                ()-> assertEquals(Modelo.OTROS, stats.get(0).getModelo()),
+                ()-> assertEquals(2, stats.get(0).getCount()),
+                ()-> assertEquals(2.0, stats.get(0).getPrecioMedio()),
+                ()-> assertEquals(1.0, stats.get(0).getPrecioMinimo()),
+                ()-> assertEquals(3.0, stats.get(0).getPrecioMaximo())
+        );
+    }
+
+    @Test
+    void findByModeloTest() {
+        funkoRepository.saveAll(Flux.just(funko1, funko2)).blockLast();
+
+        var list = funkoRepository.findByModelo(Modelo.MARVEL).collectList().block();
+
+        assertAll(
+                ()-> assertEquals(1, list.size()),
+                ()-> assertEquals(funko2.getUuid(), list.get(0).getUuid())
+        );
+    }
+
+    @Test
+    void streamChangedTest() {
+        LocalDateTime t1 = LocalDateTime.of(2023, 10, 1, 10, 0);
+        LocalDateTime t2 = t1.plusMinutes(1);
+        LocalDateTime t3 = t1.plusMinutes(2);
+        funkoRepository.upsertAll(Flux.just(
+                restored(1, t1), restored(2, t2), restored(3, t2), restored(4, t3), restored(5, t3.plusMinutes(1))
+        )).block();
+
+        List<Funko> changed = funkoRepository.streamChanged(t1, t3, 1).collectList().block();
+
+        assertEquals(List.of(2, 3, 4), changed.stream().map(Funko::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void deleteTombstoneTest() {
+        LocalDateTime before = LocalDateTime.now().minusHours(1);
+        Funko saved1 = funkoRepository.save(funko1).block();
+        Funko saved2 = funkoRepository.save(funko2).block();
+
+        funkoRepository.deleteById(saved1.getId()).block();
+        List<Funko> deleted = funkoRepository.streamDeleted(before, LocalDateTime.now().plusHours(1), 10).collectList().block();
+        funkoRepository.deleteAll().block();
+        List<Funko> allDeleted = funkoRepository.streamDeleted(before, LocalDateTime.now().plusHours(1), 1).collectList().block();
+
+        assertAll(
+                ()-> assertEquals(1, deleted.size()),
+                ()-> assertEquals(saved1.getId(), deleted.get(0).getId()),
+                ()-> assertEquals(saved1.getUuid(), deleted.get(0).getUuid()),
+                ()-> assertEquals(List.of(saved1.getId(), saved2.getId()),
+                        allDeleted.stream().map(Funko::getId).sorted().collect(Collectors.toList()))
+        );
+    }
+
+    @Test
+    void pruneDeletedTest() {
+        LocalDateTime before = LocalDateTime.now().minusHours(1);
+        Funko saved1 = funkoRepository.save(funko1).block();
+        Funko saved2 = funkoRepository.save(funko2).block();
+        funkoRepository.deleteById(saved1.getId()).block();
+        LocalDateTime until = funkoRepository.streamDeleted(before, LocalDateTime.now().plusHours(1), 10)
+                .blockFirst().getUpdated_at();
+        funkoRepository.deleteById(saved2.getId()).block();
+
+        Long pruned = funkoRepository.pruneDeleted(until).block();
+        List<Funko> deleted = funkoRepository.streamDeleted(before, LocalDateTime.now().plusHours(1), 10).collectList().block();
+
+        assertAll(
+                ()-> assertEquals(1, pruned),
+                ()-> assertEquals(List.of(saved2.getId()), deleted.stream().map(Funko::getId).collect(Collectors.toList()))
+        );
+    }
+
+    @Test
+    void upsertAndPurgeTest() {
+        LocalDateTime time = LocalDateTime.of(2023, 10, 1, 10, 0);
+        Funko restored = restored(10, time);
+
+        Long written = funkoRepository.upsertAll(Flux.just(restored, restored(11, time))).block();
+        funkoRepository.resetIdSequence().block();
+        Funko saved = funkoRepository.save(funko1).block();
+        Long purged = funkoRepository.purgeAll(Flux.just(10)).block();
+
+        assertAll(
+                ()-> assertEquals(2, written),
+                ()-> assertEquals(12, saved.getId()),
+                ()-> assertEquals(1, purged),
+                ()-> assertNull(funkoRepository.findById(10).block()),
+                ()-> assertEquals(time, funkoRepository.findById(11).block().getUpdated_at()),
+                ()-> assertTrue(funkoRepository.streamDeleted(time.minusYears(1), LocalDateTime.now().plusHours(1), 10)
+                        .collectList().block().isEmpty())
+        );
+
+        funkoRepository.purgeAll().block();
+
+        assertTrue(funkoRepository.findAll().collectList().block().isEmpty());
+    }
+
+    @Test
+    void restoreAllTest() {
+        LocalDateTime time = LocalDateTime.of(2023, 10, 1, 10, 0);
+        Funko saved = funkoRepository.save(funko1).block();
+        funkoRepository.deleteById(funkoRepository.save(funko2).block().getId()).block();
+
+        Long rows = funkoRepository.restoreAll(Flux.just(
+                BackupChanges.builder().changed(Flux.just(restored(10, time), restored(11, time))).build(),
+                BackupChanges.builder().changed(Flux.just(restored(12, time))).deleted(Flux.just(10)).build()
+        )).block();
+
+        assertAll(
+                ()-> assertEquals(4, rows),
+                ()-> assertEquals(List.of(11, 12),
+                        funkoRepository.findAll().map(Funko::getId).sort().collectList().block()),
+                ()-> assertTrue(funkoRepository.findByName(saved.getName()).collectList().block().isEmpty()),
+                ()-> assertEquals(1, funkoRepository.findByName("restored12").collectList().block().size()),
+                ()-> assertTrue(funkoRepository.streamDeleted(time.minusYears(1), LocalDateTime.now().plusHours(1), 10)
+                        .collectList().block().isEmpty())
+        );
+    }
+
+    @Test
+    void restoreAllRollbackTest() {
+        LocalDateTime time = LocalDateTime.of(2023, 10, 1, 10, 0);
+        Funko saved = funkoRepository.save(funko1).block();
+
+        assertThrows(Exception.class, () -> funkoRepository.restoreAll(Flux.just(
+                BackupChanges.builder().changed(Flux.just(restored(10, time))).build(),
+                BackupChanges.builder().changed(Flux.error(new IllegalStateException("Copia cortada"))).build()
+        )).block());
+
+        assertAll(
+                ()-> assertEquals(List.of(saved.getId()),
+                        funkoRepository.findAll().map(Funko::getId).sort().collectList().block()),
+                ()-> assertEquals(1, funkoRepository.findByName(saved.getName()).collectList().block().size())
+        );
+    }
+
+    private static Funko restored(int id, LocalDateTime updatedAt) {
+        return Funko.builder()
+                .id(id)
+                .uuid(UUID.randomUUID())
+                .name("restored" + id)
+                .modelo(Modelo.ANIME)
+                .precio(id)
+                .fecha_lanzamiento(LocalDate.of(2023, 1, 1))
+                .created_at(updatedAt)
+                .updated_at(updatedAt)
+                .build();
+    }
+}
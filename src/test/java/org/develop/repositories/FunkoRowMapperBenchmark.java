@@ -0,0 +1,79 @@
+package org.develop.repositories;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.develop.model.Funko;
+import org.develop.model.Modelo;
+import org.develop.model.MyIDGenerator;
+import org.develop.repositories.funkos.FunkoRepositoryImpl;
+import org.develop.repositories.funkos.FunkoRowMapper;
+import org.develop.services.database.DatabaseManager;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Mide el coste por fila de convertir un recorrido completo de la tabla FUNKO con el mapeo anterior
+ * (columnas por nombre y Modelo.valueOf) y con FunkoRowMapper.
+ * No forma parte de los tests; se ejecuta a mano con el classpath de test:
+ * java org.develop.repositories.FunkoRowMapperBenchmark [filas] [iteraciones]
+ */
+public class FunkoRowMapperBenchmark {
+
+    private static final BiFunction<Row, RowMetadata, Funko> LEGACY = (row, rowMetadata) ->
+            Funko.builder()
+                    .id(row.get("id", Integer.class))
+                    .myId(row.get("myid", Long.class))
+                    .name(row.get("name", String.class))
+                    .uuid(row.get("uuid", UUID.class))
+                    .modelo(Modelo.valueOf(row.get("modelo", Object.class).toString()))
+                    .precio(row.get("precio", Double.class))
+                    .fecha_lanzamiento(row.get("fecha_lanzamiento", LocalDate.class))
+                    .created_at(row.get("created_at", LocalDateTime.class))
+                    .updated_at(row.get("updated_at", LocalDateTime.class))
+                    .build();
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        DatabaseManager db = DatabaseManager.getInstance();
+        db.initTables();
+        FunkoRepositoryImpl repository = FunkoRepositoryImpl.getInstance(db, MyIDGenerator.getInstance());
+        Modelo[] modelos = Modelo.values();
+        repository.saveAll(Flux.range(0, rows)
+                .map(i -> Funko.builder()
+                        .uuid(UUID.randomUUID())
+                        .name("Funko " + i)
+                        .modelo(modelos[i % modelos.length])
+                        .precio(i % 100)
+                        .fecha_lanzamiento(LocalDate.of(2023, 1, 1))
+                        .build()), 1000).blockLast();
+
+        ConnectionPool pool = db.getConnectionPool();
+        for (int i = 0; i < iterations; i++) {
+            long legacy = scan(pool, () -> LEGACY);
+            long indexed = scan(pool, FunkoRowMapper::forResult);
+            System.out.printf("Iteracion %d: nombre=%.1f ns/fila, indice=%.1f ns/fila%n",
+                    i, (double) legacy / rows, (double) indexed / rows);
+        }
+        db.initTables();
+    }
+
+    private static long scan(ConnectionPool pool, Supplier<BiFunction<Row, RowMetadata, Funko>> mapper) {
+        long start = System.nanoTime();
+        Flux.usingWhen(
+                pool.create(),
+                connection -> Flux.from(connection.createStatement("SELECT * FROM FUNKO").execute())
+                        .flatMap(result -> result.map(mapper.get())),
+                Connection::close
+        ).blockLast();
+        return System.nanoTime() - start;
+    }
+}
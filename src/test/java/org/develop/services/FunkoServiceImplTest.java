@@ -1,20 +1,33 @@
 package org.develop.services;
 
+import org.develop.model.BackupChanges;
+import org.develop.model.BackupInfo;
 import org.develop.model.Funko;
 import org.develop.model.Modelo;
 import org.develop.repositories.funkos.FunkoRepository;
+import org.develop.services.files.BackupFormat;
+import org.develop.services.files.BackupIndex;
 import org.develop.services.files.BackupManagerImpl;
+import org.develop.services.funkos.FunkoNotification;
 import org.develop.services.funkos.FunkoServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -30,6 +43,8 @@ class FunkoServiceImplTest {
     FunkoRepository repository;
     @Mock
     BackupManagerImpl backupManager;
+    @Mock
+    FunkoNotification notification;
 
     @InjectMocks
     FunkoServiceImpl service;
@@ -87,6 +102,69 @@ class FunkoServiceImplTest {
         verify(repository,times(1)).findById(1);
     }
 
+    @Test
+    void findByIdConcurrentMisses() {
+        when(repository.findById(1)).thenReturn(Mono.just(funko1).delayElement(Duration.ofMillis(100)));
+
+        var res = Flux.range(0, 20)
+                .flatMap(i -> service.findById(1))
+                .collectList()
+                .block();
+
+        assertAll(
+                ()-> assertEquals(res.size(),20),
+                ()-> assertTrue(res.stream().allMatch(funko -> funko.getUuid().equals(funko1.getUuid())))
+        );
+        verify(repository,times(1)).findById(1);
+    }
+
+    @Test
+    void findByIdCacheStats() {
+        when(repository.findById(1)).thenReturn(Mono.just(funko1));
+
+        service.findById(1).block();
+        service.findById(1).block();
+        var stats = service.getCacheStats();
+
+        assertAll(
+                ()-> assertEquals(1, stats.getHitCount()),
+                ()-> assertEquals(1, stats.getMissCount()),
+                ()-> assertEquals(1, stats.getLoadSuccessCount())
+        );
+    }
+
+    @Test
+    void findByUuidCached() {
+        when(repository.findById(1)).thenReturn(Mono.just(funko1));
+
+        service.findById(1).block();
+        var res = service.findByUuid(funko1.getUuid()).block();
+
+        assertEquals(funko1.getId(), res.getId());
+        verify(repository, never()).findByUuid(any());
+    }
+
+    @Test
+    void findByUuid() {
+        when(repository.findByUuid(funko2.getUuid())).thenReturn(Mono.just(funko2));
+
+        service.findByUuid(funko2.getUuid()).block();
+        var res = service.findById(2).block();
+
+        assertEquals(funko2.getUuid(), res.getUuid());
+        verify(repository, times(1)).findByUuid(funko2.getUuid());
+        verify(repository, never()).findById(anyInt());
+    }
+
+    @Test
+    void findByUuidError() {
+        when(repository.findByUuid(funko1.getUuid())).thenReturn(Mono.empty());
+
+        var res = assertThrows(Exception.class, ()->service.findByUuid(funko1.getUuid()).block());
+
+        assertTrue(res.getMessage().contains("Funko with uuid " + funko1.getUuid() + " not found"));
+    }
+
     @Test
     void findByIdError() {
 
@@ -99,6 +177,82 @@ class FunkoServiceImplTest {
         verify(repository, times(1)).findById(1);
     }
 
+    @Test
+    void findByIdNegativeCached() {
+        when(repository.findById(1)).thenReturn(Mono.empty());
+
+        assertThrows(Exception.class, ()->service.findById(1).block());
+        var res = assertThrows(Exception.class, ()->service.findById(1).block());
+
+        assertTrue(res.getMessage().contains("Funko with id 1 not found"));
+        verify(repository, times(1)).findById(1);
+    }
+
+    @Test
+    void findByIdNegativeInvalidatedOnSave() {
+        when(repository.findById(1)).thenReturn(Mono.empty()).thenReturn(Mono.just(funko1));
+        when(repository.save(funko1)).thenReturn(Mono.just(funko1));
+
+        assertThrows(Exception.class, ()->service.findById(1).block());
+        service.save(funko1).block();
+        var res = service.findById(1).block();
+
+        assertEquals(funko1.getUuid(), res.getUuid());
+        verify(repository, times(2)).findById(1);
+    }
+
+    @Test
+    void findByUuidNegativeCached() {
+        when(repository.findByUuid(funko1.getUuid())).thenReturn(Mono.empty());
+
+        assertThrows(Exception.class, ()->service.findByUuid(funko1.getUuid()).block());
+        assertThrows(Exception.class, ()->service.findByUuid(funko1.getUuid()).block());
+
+        verify(repository, times(1)).findByUuid(funko1.getUuid());
+    }
+
+    @Test
+    void findByIds() {
+        when(repository.findById(1)).thenReturn(Mono.just(funko1));
+        when(repository.findByIds(List.of(2, 3))).thenReturn(Flux.just(funko2));
+
+        service.findById(1).block();
+        var res = service.findByIds(List.of(2, 1, 3, 2)).collectList().block();
+
+        assertAll(
+                ()-> assertEquals(res.size(),2),
+                ()-> assertEquals(res.get(0).getUuid(),funko2.getUuid()),
+                ()-> assertEquals(res.get(1).getUuid(),funko1.getUuid())
+        );
+        verify(repository,times(1)).findByIds(List.of(2, 3));
+    }
+
+    @Test
+    void findByIdsCached() {
+        when(repository.findByIds(List.of(1, 2))).thenReturn(Flux.just(funko1, funko2));
+
+        service.findByIds(List.of(1, 2)).collectList().block();
+        var res = service.findByIds(List.of(1, 2)).collectList().block();
+
+        assertEquals(res.size(),2);
+        verify(repository,times(1)).findByIds(List.of(1, 2));
+    }
+
+    @Test
+    void warmUp() {
+        when(repository.findByIds(List.of(1, 2))).thenReturn(Flux.just(funko1, funko2));
+
+        var loaded = service.warmUp(List.of(1, 2)).block();
+        var res = service.findById(2).block();
+
+        assertAll(
+                ()-> assertEquals(2L, loaded),
+                ()-> assertEquals(funko2.getUuid(), res.getUuid()),
+                ()-> assertEquals(0L, service.ready().block())
+        );
+        verify(repository, never()).findById(anyInt());
+    }
+
     @Test
     void findByName() {
         var listFunk = List.of(funko1,funko2);
@@ -117,9 +271,21 @@ class FunkoServiceImplTest {
         verify(repository,times(1)).findByName("test");
     }
 
+    @Test
+    void findByNameCached() {
+        var listFunk = List.of(funko1,funko2);
+
+        when(repository.findByName("test")).thenReturn(Flux.fromIterable(listFunk));
+
+        service.findByName("test").collectList().block();
+        var res = service.findByName("test").collectList().block();
+
+        assertEquals(res.size(),2);
+        verify(repository,times(1)).findByName("test");
+    }
+
     @Test
     void save() {
-        when(repository.findByUuid(funko1.getUuid())).thenReturn(Mono.just(funko1));
         when(repository.save(funko1)).thenReturn(Mono.just(funko1));
 
         var res = service.saveWithOutNotification(funko1).block();
@@ -131,6 +297,23 @@ class FunkoServiceImplTest {
         );
 
         verify(repository,times(1)).save(funko1);
+        verify(repository,never()).findByUuid(any());
+    }
+
+    @Test
+    void saveAll() {
+        var listFunk = Flux.just(funko1,funko2);
+        when(repository.saveAll(listFunk)).thenReturn(listFunk);
+
+        var res = service.saveAll(listFunk).collectList().block();
+
+        assertAll(
+                ()-> assertEquals(res.size(),2),
+                ()-> assertEquals(res.get(0).getUuid(),funko1.getUuid())
+        );
+
+        verify(repository,times(1)).saveAll(listFunk);
+        verify(notification,times(2)).notify(any());
     }
 
     @Test
@@ -181,12 +364,175 @@ class FunkoServiceImplTest {
     void backup() {
         var listFunk = List.of(funko1,funko2);
 
-        when(backupManager.writeFile("funkosTest.json",listFunk)).thenReturn(Mono.just(true));
-        when(repository.findAll()).thenReturn(Flux.fromIterable(listFunk));
+        Flux<Funko> funkos = Flux.fromIterable(listFunk);
+        when(repository.streamAll(0, 500)).thenReturn(funkos);
+        when(backupManager.writeFile("funkosTest.json",funkos, BackupFormat.JSON)).thenReturn(Mono.just(true));
 
         var res = service.backup("funkosTest.json").block();
 
         assertTrue(res);
+        verify(repository, never()).findAll();
+    }
+
+    @Test
+    void backupBinary() {
+        Flux<Funko> funkos = Flux.fromIterable(List.of(funko1,funko2));
+        when(repository.streamAll(0, 500)).thenReturn(funkos);
+        when(backupManager.writeFile("funkosTest.bin.gz",funkos, BackupFormat.BINARY_GZIP)).thenReturn(Mono.just(true));
+
+        var res = service.backup("funkosTest.bin.gz").block();
+
+        assertTrue(res);
+    }
+
+    @Test
+    void backupIncremental() throws IOException {
+        Path index = Paths.get("").toAbsolutePath().resolve("data").resolve("chainTest.index");
+        try {
+            Flux<Funko> all = Flux.just(funko1, funko2);
+            when(repository.streamAll(0, 500)).thenReturn(all);
+            when(backupManager.writeFile("chainTest.0.bin.gz", all, BackupFormat.BINARY_GZIP)).thenReturn(Mono.just(true));
+            when(repository.pruneDeleted(any())).thenReturn(Mono.just(0L));
+            when(repository.streamChanged(any(), any(), eq(500))).thenReturn(Flux.just(funko1));
+            when(repository.streamDeleted(any(), any(), eq(500))).thenReturn(Flux.just(funko2));
+            when(backupManager.writeIncremental(eq("chainTest.1.bin.gz"), any(), any())).thenReturn(Mono.just(true));
+
+            var full = service.backupIncremental("chainTest").block();
+            var incremental = service.backupIncremental("chainTest").block();
+            List<BackupInfo> backups = new BackupIndex(index).load();
+
+            assertAll(
+                    ()-> assertTrue(full),
+                    ()-> assertTrue(incremental),
+                    ()-> assertEquals(2, backups.size()),
+                    ()-> assertFalse(backups.get(0).isIncremental()),
+                    ()-> assertTrue(backups.get(1).isIncremental()),
+                    ()-> assertEquals(backups.get(0).getUntil(), backups.get(1).getSince())
+            );
+            verify(repository).streamChanged(backups.get(0).getUntil(), backups.get(1).getUntil(), 500);
+            verify(repository).streamDeleted(backups.get(0).getUntil(), backups.get(1).getUntil(), 500);
+        } finally {
+            Files.deleteIfExists(index);
+        }
+    }
+
+    @Test
+    void backupFullReplacesChain() throws IOException {
+        Path data = Paths.get("").toAbsolutePath().resolve("data");
+        Path index = data.resolve("chainTest.index");
+        LocalDateTime until = LocalDateTime.of(2023, 10, 1, 10, 0);
+        try {
+            BackupIndex backupIndex = new BackupIndex(index);
+            backupIndex.append(BackupInfo.builder().file("chainTest.0.bin.gz").until(until).build());
+            backupIndex.append(BackupInfo.builder().file("chainTest.1.bin.gz").incremental(true)
+                    .since(until).until(until.plusHours(1)).build());
+            Files.writeString(data.resolve("chainTest.0.bin.gz"), "");
+            Files.writeString(data.resolve("chainTest.1.bin.gz"), "");
+            Flux<Funko> all = Flux.just(funko1, funko2);
+            when(repository.streamAll(0, 500)).thenReturn(all);
+            when(backupManager.writeFile("chainTest.2.bin.gz", all, BackupFormat.BINARY_GZIP)).thenReturn(Mono.just(true));
+            when(repository.pruneDeleted(any())).thenReturn(Mono.just(3L));
+
+            var res = service.backupFull("chainTest").block();
+            List<BackupInfo> backups = backupIndex.load();
+
+            assertAll(
+                    ()-> assertTrue(res),
+                    ()-> assertEquals(1, backups.size()),
+                    ()-> assertEquals("chainTest.2.bin.gz", backups.get(0).getFile()),
+                    ()-> assertFalse(Files.exists(data.resolve("chainTest.0.bin.gz"))),
+                    ()-> assertFalse(Files.exists(data.resolve("chainTest.1.bin.gz")))
+            );
+            verify(repository).pruneDeleted(backups.get(0).getUntil());
+        } finally {
+            Files.deleteIfExists(index);
+            Files.deleteIfExists(data.resolve("chainTest.0.bin.gz"));
+            Files.deleteIfExists(data.resolve("chainTest.1.bin.gz"));
+        }
+    }
+
+    @Test
+    void backupIncrementalError() throws IOException {
+        Path index = Paths.get("").toAbsolutePath().resolve("data").resolve("chainTest.index");
+        try {
+            Flux<Funko> all = Flux.just(funko1, funko2);
+            when(repository.streamAll(0, 500)).thenReturn(all);
+            when(backupManager.writeFile("chainTest.0.bin.gz", all, BackupFormat.BINARY_GZIP)).thenReturn(Mono.just(false));
+
+            var res = service.backupIncremental("chainTest").block();
+
+            assertAll(
+                    ()-> assertFalse(res),
+                    ()-> assertFalse(Files.exists(index))
+            );
+        } finally {
+            Files.deleteIfExists(index);
+        }
+    }
+
+    @Test
+    void restore() throws IOException {
+        Path index = Paths.get("").toAbsolutePath().resolve("data").resolve("chainTest.index");
+        LocalDateTime until = LocalDateTime.of(2023, 10, 1, 10, 0);
+        try {
+            BackupIndex backupIndex = new BackupIndex(index);
+            backupIndex.append(BackupInfo.builder().file("chainTest.0.bin.gz").until(until).build());
+            backupIndex.append(BackupInfo.builder().file("chainTest.1.bin.gz").incremental(true)
+                    .since(until).until(until.plusHours(1)).build());
+            List<Integer> purged = new ArrayList<>();
+            when(backupManager.verifyBackup(any())).thenReturn(Mono.just(2L));
+            List<Funko> changed = new ArrayList<>();
+            when(backupManager.readBackup("chainTest.0.bin.gz")).thenReturn(Flux.just(funko1, funko2));
+            when(backupManager.readBackup("chainTest.1.bin.gz")).thenReturn(Flux.just(funko1));
+            when(backupManager.readDeleted("chainTest.1.bin.gz")).thenReturn(Flux.just(funko2));
+            when(repository.restoreAll(any())).thenAnswer(invocation -> invocation.<Flux<BackupChanges>>getArgument(0)
+                    .concatMap(changes -> changes.getChanged().doOnNext(changed::add)
+                            .thenMany(changes.getDeleted().doOnNext(purged::add)))
+                    .count());
+            when(repository.resetIdSequence()).thenReturn(Mono.empty());
+
+            var res = service.restore("chainTest").block();
+
+            assertAll(
+                    ()-> assertEquals(2, res),
+                    ()-> assertEquals(List.of(funko1, funko2, funko1), changed),
+                    ()-> assertEquals(List.of(funko2.getId()), purged)
+            );
+            InOrder order = inOrder(backupManager, repository);
+            order.verify(backupManager).verifyBackup("chainTest.0.bin.gz");
+            order.verify(backupManager).verifyBackup("chainTest.1.bin.gz");
+            order.verify(repository).restoreAll(any());
+            order.verify(repository).resetIdSequence();
+        } finally {
+            Files.deleteIfExists(index);
+        }
+    }
+
+    @Test
+    void restoreCorruptBackup() throws IOException {
+        Path index = Paths.get("").toAbsolutePath().resolve("data").resolve("chainTest.index");
+        LocalDateTime until = LocalDateTime.of(2023, 10, 1, 10, 0);
+        try {
+            BackupIndex backupIndex = new BackupIndex(index);
+            backupIndex.append(BackupInfo.builder().file("chainTest.0.bin.gz").until(until).build());
+            backupIndex.append(BackupInfo.builder().file("chainTest.1.bin.gz").incremental(true)
+                    .since(until).until(until.plusHours(1)).build());
+            when(backupManager.verifyBackup("chainTest.0.bin.gz")).thenReturn(Mono.just(2L));
+            when(backupManager.verifyBackup("chainTest.1.bin.gz")).thenReturn(Mono.error(new IOException("Cortada")));
+
+            assertThrows(Exception.class, () -> service.restore("chainTest").block());
+
+            verify(repository, never()).restoreAll(any());
+        } finally {
+            Files.deleteIfExists(index);
+        }
+    }
+
+    @Test
+    void restoreWithoutBackups() {
+        assertThrows(Exception.class, () -> service.restore("missingChainTest").block());
+
+        verify(repository, never()).restoreAll(any());
     }
 
     @Test
@@ -202,4 +548,40 @@ class FunkoServiceImplTest {
                 ()-> assertEquals(res.size(),2)
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void importFile() {
+        var listFunk = List.of(funko1,funko2);
+
+        when(backupManager.readFile("funkosTest.csv")).thenReturn(Flux.fromIterable(listFunk));
+        when(repository.saveAll(any(), eq(1)))
+                .thenReturn(Flux.just(funko1))
+                .thenReturn(Flux.error(new RuntimeException("Error de prueba")));
+
+        var res = service.importFile("funkosTest.csv", 1, 1).block();
+
+        assertAll(
+                ()-> assertNotNull(res),
+                ()-> assertEquals(1, res.getInserted()),
+                ()-> assertEquals(1, res.getFailed()),
+                ()-> assertFalse(res.getElapsed().isNegative())
+        );
+        verify(repository,times(2)).saveAll(any(), eq(1));
+        verify(notification,times(1)).notify(any());
+    }
+
+    @Test
+    void importFileParallel() {
+        when(backupManager.readFileParallel("funkosTest.csv", false)).thenReturn(Flux.just(funko1, funko2));
+        when(repository.saveAll(any(), eq(2))).thenReturn(Flux.just(funko1, funko2));
+
+        var res = service.importFileParallel("funkosTest.csv", 2, 1, false).block();
+
+        assertAll(
+                ()-> assertEquals(2, res.getInserted()),
+                ()-> assertEquals(0, res.getFailed())
+        );
+        verify(backupManager, never()).readFile(any());
+        verify(notification,times(2)).notify(any());
+    }
+}
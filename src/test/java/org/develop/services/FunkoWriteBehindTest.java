@@ -0,0 +1,162 @@
+package org.develop.services;
+
+import org.develop.model.Funko;
+import org.develop.model.Modelo;
+import org.develop.repositories.funkos.FunkoRepository;
+import org.develop.services.funkos.FunkoWriteBehind;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FunkoWriteBehindTest {
+
+    private Funko funko1, funko2;
+    private final List<Funko> flushed = new ArrayList<>();
+    private FunkoWriteBehind writeBehind;
+
+    @Mock
+    FunkoRepository repository;
+
+    @BeforeEach
+    void setup(){
+        funko1 = Funko.builder()
+                .id(1)
+                .uuid(UUID.randomUUID())
+                .name("test")
+                .modelo(Modelo.OTROS)
+                .precio(1.0)
+                .fecha_lanzamiento(LocalDate.of(2024,1,20))
+                .build();
+
+        funko2 = Funko.builder()
+                .id(2)
+                .uuid(UUID.randomUUID())
+                .name("test2")
+                .modelo(Modelo.MARVEL)
+                .precio(1.5)
+                .fecha_lanzamiento(LocalDate.of(2026,4,10))
+                .build();
+
+        writeBehind = new FunkoWriteBehind(repository, Duration.ofHours(1), 100, flushed::add);
+    }
+
+    @AfterEach
+    void teardown(){
+        writeBehind.shutdown();
+    }
+
+    @Test
+    void coalesceTest() {
+        Funko funko1Updated = Funko.builder()
+                .id(1)
+                .uuid(funko1.getUuid())
+                .name("updated")
+                .modelo(Modelo.OTROS)
+                .precio(2.0)
+                .build();
+        when(repository.updateAll(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Funko>>getArgument(0)));
+
+        writeBehind.enqueue(funko1);
+        writeBehind.enqueue(funko2);
+        writeBehind.enqueue(funko1Updated);
+
+        assertAll(
+                ()-> assertEquals(2, writeBehind.size()),
+                ()-> assertEquals(funko1Updated, writeBehind.pending(1))
+        );
+
+        writeBehind.flush().block();
+
+        assertAll(
+                ()-> assertEquals(0, writeBehind.size()),
+                ()-> assertNull(writeBehind.pending(1)),
+                ()-> assertEquals(2, flushed.size()),
+                ()-> assertTrue(flushed.contains(funko1Updated)),
+                ()-> assertTrue(flushed.contains(funko2))
+        );
+        verify(repository, times(1)).updateAll(anyList());
+    }
+
+    @Test
+    void maxPendingTest() {
+        when(repository.updateAll(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Funko>>getArgument(0)));
+        writeBehind.shutdown();
+        writeBehind = new FunkoWriteBehind(repository, Duration.ofHours(1), 2, flushed::add);
+
+        writeBehind.enqueue(funko1);
+        writeBehind.enqueue(funko2);
+
+        verify(repository, timeout(1000).times(1)).updateAll(anyList());
+    }
+
+    @Test
+    void discardTest() {
+        writeBehind.enqueue(funko1);
+        writeBehind.discard(1);
+
+        writeBehind.flush().block();
+
+        assertAll(
+                ()-> assertNull(writeBehind.pending(1)),
+                ()-> assertTrue(flushed.isEmpty())
+        );
+        verify(repository, never()).updateAll(anyList());
+    }
+
+    @Test
+    void missingTest() {
+        List<Integer> missing = new ArrayList<>();
+        when(repository.updateAll(anyList())).thenReturn(Flux.just(funko2));
+        writeBehind.shutdown();
+        writeBehind = new FunkoWriteBehind(repository, Duration.ofHours(1), 100, flushed::add, missing::add);
+
+        writeBehind.enqueue(funko1);
+        writeBehind.enqueue(funko2);
+        writeBehind.flush().block();
+
+        assertAll(
+                ()-> assertEquals(List.of(funko2), flushed),
+                ()-> assertEquals(List.of(1), missing),
+                ()-> assertNull(writeBehind.pending(1))
+        );
+    }
+
+    @Test
+    void flushErrorTest() {
+        when(repository.updateAll(anyList())).thenReturn(Flux.error(new RuntimeException("DB caida")));
+
+        writeBehind.enqueue(funko1);
+        writeBehind.flush().block();
+
+        assertAll(
+                ()-> assertEquals(1, writeBehind.size()),
+                ()-> assertEquals(funko1, writeBehind.pending(1)),
+                ()-> assertTrue(flushed.isEmpty())
+        );
+    }
+
+    @Test
+    void shutdownTest() {
+        when(repository.updateAll(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Funko>>getArgument(0)));
+
+        writeBehind.enqueue(funko1);
+        writeBehind.shutdown();
+
+        assertEquals(List.of(funko1), flushed);
+    }
+}